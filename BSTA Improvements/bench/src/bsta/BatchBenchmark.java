@@ -0,0 +1,120 @@
+package bsta;
+
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A batch of random keys added to, or looked up in, a tree built by random
+ * insertion: once with a call of add or contains per key, and once with a
+ * single call of addAllSorted or containsAll, which sorts the batch and
+ * starts each search where the one before it ended. Half of the batch keys
+ * are odd, so half of the adds insert and half of the lookups miss. The
+ * batch methods are passed the keys in random order, so their times include
+ * the sort.
+ *
+ * The add benchmarks work on a fresh copy of the tree each invocation, so
+ * every invocation inserts the same keys.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class BatchBenchmark {
+
+    @Param({Trees.BINARY_SEARCH_TREE, Trees.RED_BLACK_TREE,
+        Trees.BINARY_SEARCH_TREE_ARRAY, Trees.AVL_TREE_ARRAY})
+    String impl;
+
+    @Param({"1000000"})
+    int size;
+
+    @Param({"1000", "100000"})
+    int batchSize;
+
+    Integer[] batch;
+    boolean[] found;
+    Set<Integer> tree;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        tree = Trees.create(impl);
+        for (Integer key : KeyStreams.insertionOrder(KeyStreams.RANDOM, size,
+                42)) {
+            tree.add(key);
+        }
+        Random random = new Random(43);
+        batch = new Integer[batchSize];
+        for (int i = 0; i < batchSize; i++) {
+            batch[i] = random.nextInt(2 * size);
+        }
+        found = new boolean[batchSize];
+    }
+
+    /*
+     * A copy of the tree for the add benchmarks, made before each
+     * invocation and outside the timing.
+     */
+    @State(Scope.Thread)
+    public static class Copy {
+
+        Set<Integer> set;
+
+        @Setup(Level.Invocation)
+        public void copyTree(BatchBenchmark benchmark) {
+            set = Trees.copy(benchmark.impl, benchmark.tree);
+        }
+    }
+
+    @Benchmark
+    public boolean addPerKey(Copy copy) {
+        boolean changed = false;
+        for (Integer key : batch) {
+            changed |= copy.set.add(key);
+        }
+        return changed;
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public boolean addAllSorted(Copy copy) {
+        Set<Integer> set = copy.set;
+        return (set instanceof BinarySearchTree)
+                ? ((BinarySearchTree<Integer>) set).addAllSorted(batch)
+                : ((BinarySearchTreeArray<Integer>) set).addAllSorted(batch);
+    }
+
+    @Benchmark
+    public int containsPerKey() {
+        int hits = 0;
+        for (Integer key : batch) {
+            if (tree.contains(key)) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public boolean containsAll() {
+        return (tree instanceof BinarySearchTree)
+                ? ((BinarySearchTree<Integer>) tree).containsAll(batch, found)
+                : ((BinarySearchTreeArray<Integer>) tree).containsAll(batch,
+                        found);
+    }
+}
@@ -0,0 +1,97 @@
+package bsta;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * contains on the balanced trees with lookup caches of several capacities
+ * (0 is no cache), under Zipf(1.1) lookups, where a few hot keys take most
+ * of the accesses, and under uniformly random ones, where the cache almost
+ * never hits and only adds its own cost. Half of the lookups are for keys
+ * that are not in the tree, to exercise the cached misses. The hit rate of
+ * each trial is printed at its end.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class CacheBenchmark {
+
+    @Param({Trees.RED_BLACK_TREE, Trees.AVL_TREE_ARRAY})
+    String impl;
+
+    @Param({KeyStreams.ZIPF, KeyStreams.RANDOM})
+    String distribution;
+
+    @Param({"0", "1024", "65536"})
+    int capacity;
+
+    @Param({"1000000"})
+    int size;
+
+    Integer[] accesses;
+    int next;
+    Set<Integer> set;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        set = Trees.create(impl);
+        for (Integer key : KeyStreams.insertionOrder(KeyStreams.RANDOM, size,
+                42)) {
+            set.add(key);
+        }
+        if (set instanceof BinarySearchTree) {
+            ((BinarySearchTree<Integer>) set).setLookupCacheCapacity(capacity);
+        } else {
+            ((BinarySearchTreeArray<Integer>) set)
+                    .setLookupCacheCapacity(capacity);
+        }
+        // The keys are the even numbers 2i; making every other one odd
+        // makes half of the lookups misses. As in SplayBenchmark, the
+        // popularity ranking is a second shuffle of the keys.
+        Integer[] ranked = KeyStreams.insertionOrder(KeyStreams.RANDOM, size,
+                44);
+        for (int i = 1; i < ranked.length; i += 2) {
+            ranked[i] = ranked[i] + 1;
+        }
+        accesses = KeyStreams.accessOrder(distribution, ranked, 43);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        long hits, misses;
+        if (set instanceof BinarySearchTree) {
+            hits = ((BinarySearchTree<Integer>) set).lookupCacheHits();
+            misses = ((BinarySearchTree<Integer>) set).lookupCacheMisses();
+        } else {
+            hits = ((BinarySearchTreeArray<Integer>) set).lookupCacheHits();
+            misses = ((BinarySearchTreeArray<Integer>) set).lookupCacheMisses();
+        }
+        if (hits + misses > 0) {
+            System.out.printf("lookup cache hit rate %.3f%n",
+                    (double) hits / (hits + misses));
+        }
+    }
+
+    @Benchmark
+    public boolean contains() {
+        Integer key = accesses[next];
+        next = (next + 1 == accesses.length) ? 0 : next + 1;
+        return set.contains(key);
+    }
+}
@@ -0,0 +1,90 @@
+package bsta;
+
+import java.util.Comparator;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * contains and remove+add on String keys, for trees using the natural
+ * ordering and trees given an explicit Comparator. The natural-ordering
+ * numbers should match those from before Comparator support was added,
+ * since that path still has a single compareTo call site.
+ *
+ * To keep several key types live in the JVM, as they are in a service,
+ * the setup also exercises Integer-keyed trees before measuring.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ComparatorBenchmark {
+
+    @Param({Trees.BINARY_SEARCH_TREE, Trees.BINARY_SEARCH_TREE_ARRAY})
+    String impl;
+
+    @Param({"natural", "comparator"})
+    String ordering;
+
+    @Param({"100000"})
+    int size;
+
+    String[] keys;
+    int next;
+    Set<String> tree;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Comparator<String> comparator = "natural".equals(ordering) ? null
+                : Comparator.<String>naturalOrder();
+        Random random = new Random(42);
+        keys = new String[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = "key-" + random.nextInt();
+        }
+        tree = Trees.BINARY_SEARCH_TREE.equals(impl)
+                ? new BinarySearchTree<>(comparator)
+                : new BinarySearchTreeArray<>(comparator);
+        for (String key : keys) {
+            tree.add(key);
+        }
+
+        Set<Integer> other = Trees.create(impl);
+        for (int i = 0; i < 100000; i++) {
+            other.add(random.nextInt(size));
+            other.contains(random.nextInt(size));
+        }
+    }
+
+    private String nextKey() {
+        String key = keys[next];
+        next = (next + 1 == keys.length) ? 0 : next + 1;
+        return key;
+    }
+
+    @Benchmark
+    public boolean contains() {
+        return tree.contains(nextKey());
+    }
+
+    @Benchmark
+    public boolean removeAdd() {
+        String key = nextKey();
+        tree.remove(key);
+        return tree.add(key);
+    }
+}
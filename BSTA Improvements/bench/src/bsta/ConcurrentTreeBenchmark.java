@@ -0,0 +1,89 @@
+package bsta;
+
+import java.util.Collections;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A shared tree under a 95/5 mix of contains and remove+add, for the
+ * StampedLock facade against Collections.synchronizedSet around the same
+ * AVLTreeArray. The thread count is set on the command line; to see how
+ * reads scale, run it once per count:
+ *
+ *   ant bench -Djmh.args="ConcurrentTreeBenchmark -t 1"
+ *   ant bench -Djmh.args="ConcurrentTreeBenchmark -t 8"
+ *   ant bench -Djmh.args="ConcurrentTreeBenchmark -t 32"
+ *   ant bench -Djmh.args="ConcurrentTreeBenchmark -t 64"
+ *
+ * Throughput is reported for all threads together.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConcurrentTreeBenchmark {
+
+    static final String STAMPED_LOCK = "ConcurrentBinarySearchTreeArray";
+    static final String SYNCHRONIZED = "synchronizedSet";
+
+    // Percentage of operations that are contains; the rest are remove+add.
+    static final int READ_PERCENT = 95;
+
+    @Param({STAMPED_LOCK, SYNCHRONIZED})
+    String impl;
+
+    @Param({"1000000"})
+    int size;
+
+    Integer[] keys;
+    Set<Integer> set;
+
+    @State(Scope.Thread)
+    public static class ThreadKeys {
+
+        Random random;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            random = new Random(Thread.currentThread().getId());
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        keys = KeyStreams.insertionOrder(KeyStreams.RANDOM, size, 42);
+        AVLTreeArray<Integer> tree = new AVLTreeArray<>();
+        set = STAMPED_LOCK.equals(impl)
+                ? new ConcurrentBinarySearchTreeArray<>(tree)
+                : Collections.synchronizedSet(tree);
+        for (Integer key : keys) {
+            set.add(key);
+        }
+    }
+
+    @Benchmark
+    public boolean mixed(ThreadKeys threadKeys) {
+        Random random = threadKeys.random;
+        Integer key = keys[random.nextInt(keys.length)];
+        if (random.nextInt(100) < READ_PERCENT) {
+            return set.contains(key);
+        }
+        set.remove(key);
+        return set.add(key);
+    }
+}
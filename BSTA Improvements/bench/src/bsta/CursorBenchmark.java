@@ -0,0 +1,83 @@
+package bsta;
+
+import java.util.NavigableSet;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Local lookups in a tree built by random insertion: each key is within
+ * distance elements of the one before, in a random walk over the keys, as a
+ * reader of a time series moves back and forth around its window. ceiling
+ * descends from the root each time; a Cursor climbs from where the last
+ * seek left it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class CursorBenchmark {
+
+    @Param({Trees.BINARY_SEARCH_TREE, Trees.RED_BLACK_TREE,
+        Trees.BINARY_SEARCH_TREE_ARRAY, Trees.AVL_TREE_ARRAY})
+    String impl;
+
+    @Param({"1000000"})
+    int size;
+
+    @Param({"4", "64", "4096"})
+    int distance;
+
+    Integer[] accesses;
+    int next;
+    NavigableSet<Integer> set;
+    Cursor<Integer> cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        set = (NavigableSet<Integer>) Trees.create(impl);
+        for (Integer key : KeyStreams.insertionOrder(KeyStreams.RANDOM, size,
+                42)) {
+            set.add(key);
+        }
+        cursor = (set instanceof BinarySearchTree)
+                ? ((BinarySearchTree<Integer>) set).cursor()
+                : ((BinarySearchTreeArray<Integer>) set).cursor();
+        Random random = new Random(43);
+        accesses = new Integer[KeyStreams.MAX_STREAM_LENGTH];
+        int position = size / 2;
+        for (int i = 0; i < accesses.length; i++) {
+            position += random.nextInt(2 * distance + 1) - distance;
+            position = Math.max(0, Math.min(size - 1, position));
+            // Odd keys fall between the elements, as timestamps would.
+            accesses[i] = 2 * position + random.nextInt(2);
+        }
+    }
+
+    @Benchmark
+    public Integer ceiling() {
+        Integer key = accesses[next];
+        next = (next + 1 == accesses.length) ? 0 : next + 1;
+        return set.ceiling(key);
+    }
+
+    @Benchmark
+    public boolean seek() {
+        Integer key = accesses[next];
+        next = (next + 1 == accesses.length) ? 0 : next + 1;
+        return cursor.seek(key);
+    }
+}
@@ -0,0 +1,74 @@
+package bsta;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * contains on the array trees with and without a Bloom filter (0 bits per
+ * key is none), for keys that are in the tree and for keys that fall between
+ * them, in random order. The filter should turn most misses into a single
+ * memory access, and add that access to every hit.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class FilterBenchmark {
+
+    @Param({Trees.BINARY_SEARCH_TREE_ARRAY, Trees.AVL_TREE_ARRAY})
+    String impl;
+
+    @Param({"1000000", "10000000"})
+    int size;
+
+    @Param({"0", "10"})
+    int bitsPerKey;
+
+    Integer[] hits, misses;
+    int next;
+    BinarySearchTreeArray<Integer> set;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Integer[] keys = KeyStreams.insertionOrder(KeyStreams.RANDOM, size,
+                42);
+        set = (BinarySearchTreeArray<Integer>) Trees.create(impl);
+        for (Integer key : keys) {
+            set.add(key);
+        }
+        set.setFilterBitsPerKey(bitsPerKey);
+        hits = KeyStreams.accessOrder(KeyStreams.RANDOM, keys, 43);
+        // The keys are the even numbers 2i, so each odd one is a miss.
+        misses = new Integer[hits.length];
+        for (int i = 0; i < hits.length; i++) {
+            misses[i] = hits[i] + 1;
+        }
+    }
+
+    @Benchmark
+    public boolean containsHit() {
+        Integer key = hits[next];
+        next = (next + 1 == hits.length) ? 0 : next + 1;
+        return set.contains(key);
+    }
+
+    @Benchmark
+    public boolean containsMiss() {
+        Integer key = misses[next];
+        next = (next + 1 == misses.length) ? 0 : next + 1;
+        return set.contains(key);
+    }
+}
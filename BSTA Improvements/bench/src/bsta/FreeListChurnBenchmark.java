@@ -0,0 +1,76 @@
+package bsta;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Insert/remove churn on a tree of a fixed size: every operation removes a
+ * present key and adds it straight back, so each one frees an array slot
+ * and then reuses it. Run with "-prof gc" and compare gc.alloc.rate.norm;
+ * with the int freeList the only allocation left in BinarySearchTreeArray
+ * is the new Entry, and FlatBinarySearchTreeArray allocates nothing.
+ *
+ * The keys are boxed up front so that the benchmark itself does not
+ * allocate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FreeListChurnBenchmark {
+
+    @Param({"1000", "100000"})
+    int size;
+
+    Integer[] keys;
+    int next;
+    BinarySearchTreeArray<Integer> treeArray;
+    FlatBinarySearchTreeArray<Integer> flatTreeArray;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        keys = new Integer[size];
+        treeArray = new BinarySearchTreeArray<>();
+        flatTreeArray = new FlatBinarySearchTreeArray<>();
+        for (int i = 0; i < size; i++) {
+            keys[i] = random.nextInt();
+            treeArray.add(keys[i]);
+            flatTreeArray.add(keys[i]);
+        }
+    }
+
+    private Integer nextKey() {
+        Integer key = keys[next];
+        next = (next + 1 == keys.length) ? 0 : next + 1;
+        return key;
+    }
+
+    @Benchmark
+    public boolean treeArrayChurn() {
+        Integer key = nextKey();
+        treeArray.remove(key);
+        return treeArray.add(key);
+    }
+
+    @Benchmark
+    public boolean flatTreeArrayChurn() {
+        Integer key = nextKey();
+        flatTreeArray.remove(key);
+        return flatTreeArray.add(key);
+    }
+}
@@ -0,0 +1,75 @@
+package bsta;
+
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * contains on a frozen EytzingerSet against getEntry on the trees it could
+ * be frozen from, at sizes well beyond the last-level cache. The trees are
+ * built the usual way, by adding the keys in random order; the EytzingerSet
+ * is frozen from an AVLTreeArray built like that. Half of the lookups miss.
+ *
+ * The keys are boxed Integers, so every structure still follows one
+ * reference per comparison to reach the key; the EytzingerSet saves the
+ * loads of the links and of the Entry objects themselves.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class FrozenSetBenchmark {
+
+    static final String FROZEN = "EytzingerSet";
+
+    @Param({Trees.BINARY_SEARCH_TREE, Trees.RED_BLACK_TREE,
+        Trees.BINARY_SEARCH_TREE_ARRAY, Trees.AVL_TREE_ARRAY, FROZEN})
+    String impl;
+
+    @Param({"1000000", "10000000"})
+    int size;
+
+    Integer[] accesses;
+    int next;
+    Set<Integer> set;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Integer[] keys = KeyStreams.insertionOrder(KeyStreams.RANDOM, size,
+                42);
+        Set<Integer> tree = Trees.create(FROZEN.equals(impl)
+                ? Trees.AVL_TREE_ARRAY : impl);
+        for (Integer key : keys) {
+            tree.add(key);
+        }
+        set = FROZEN.equals(impl)
+                ? ((AVLTreeArray<Integer>) tree).freeze() : tree;
+        Random random = new Random(43);
+        accesses = new Integer[KeyStreams.MAX_STREAM_LENGTH];
+        for (int i = 0; i < accesses.length; i++) {
+            // Even keys are present, odd keys are not.
+            accesses[i] = random.nextInt(2 * size);
+        }
+    }
+
+    @Benchmark
+    public boolean contains() {
+        Integer key = accesses[next];
+        next = (next + 1 == accesses.length) ? 0 : next + 1;
+        return set.contains(key);
+    }
+}
@@ -0,0 +1,89 @@
+package bsta;
+
+import java.util.Random;
+import org.apache.commons.math3.distribution.ZipfDistribution;
+import org.apache.commons.math3.random.Well19937c;
+
+/**
+ * Key streams for the benchmarks. The keys of a tree of size n are the even
+ * numbers 0, 2, ..., 2(n - 1), so that odd numbers are guaranteed misses.
+ * All keys are boxed up front so that the benchmarks themselves do not
+ * allocate.
+ */
+final class KeyStreams {
+
+    static final String RANDOM = "random";
+    static final String SORTED = "sorted";
+    static final String ZIPF = "zipf";
+
+    // Exponent of the Zipfian access stream.
+    static final double ZIPF_EXPONENT = 1.1;
+
+    // Access streams longer than this are cycled rather than materialised.
+    static final int MAX_STREAM_LENGTH = 1 << 20;
+
+    private KeyStreams() {
+    }
+
+    /*
+     * Returns the n keys of a tree in the order they are inserted: shuffled
+     * for the random and zipf streams, ascending for the sorted stream.
+     */
+    static Integer[] insertionOrder(String distribution, int n, long seed) {
+        Integer[] keys = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = 2 * i;
+        }
+        if (!SORTED.equals(distribution)) {
+            shuffle(keys, new Random(seed));
+        }
+        return keys;
+    }
+
+    /*
+     * Returns a stream of lookups of present keys, taken from keys (in
+     * insertion order): uniformly random, ascending, or Zipfian over a
+     * random popularity ranking.
+     */
+    static Integer[] accessOrder(String distribution, Integer[] keys,
+            long seed) {
+        int n = keys.length;
+        int length = Math.min(n, MAX_STREAM_LENGTH);
+        Integer[] stream = new Integer[length];
+        Random random = new Random(seed);
+        switch (distribution) {
+            case SORTED:
+                Integer[] ascending = insertionOrder(SORTED, n, seed);
+                for (int i = 0; i < length; i++) {
+                    stream[i] = ascending[(int) ((long) i * n / length)];
+                }
+                break;
+            case ZIPF:
+                // keys is already shuffled, so rank r maps to a random key.
+                ZipfDistribution zipf = new ZipfDistribution(
+                        new Well19937c(seed), n, ZIPF_EXPONENT);
+                for (int i = 0; i < length; i++) {
+                    stream[i] = keys[zipf.sample() - 1];
+                }
+                break;
+            case RANDOM:
+                for (int i = 0; i < length; i++) {
+                    stream[i] = keys[random.nextInt(n)];
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown distribution: "
+                        + distribution);
+        }
+        return stream;
+    }
+
+    private static void shuffle(Object[] a, Random random) {
+        for (int i = a.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            Object t = a[i];
+            a[i] = a[j];
+            a[j] = t;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package bsta;
+
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * long keys held in LongBinarySearchTreeArray, against the same keys boxed
+ * into a BinarySearchTreeArray of Long and a TreeSet of Long. The keys
+ * arrive as primitives, as they do in our services, so the boxed trees pay
+ * for Long.valueOf on every call; run with -prof gc to see it.
+ * OffHeapLongBinarySearchTreeArray shows what the same tree costs when its
+ * nodes are read from direct buffers instead of Java arrays.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PrimitiveTreeBenchmark {
+
+    @Param({"100000", "1000000"})
+    int size;
+
+    long[] keys;
+    int next;
+    LongBinarySearchTreeArray primitiveTree;
+    OffHeapLongBinarySearchTreeArray offHeapTree;
+    BinarySearchTreeArray<Long> boxedTree;
+    TreeSet<Long> treeSet;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        keys = new long[size];
+        primitiveTree = new LongBinarySearchTreeArray();
+        offHeapTree = new OffHeapLongBinarySearchTreeArray();
+        boxedTree = new BinarySearchTreeArray<>();
+        treeSet = new TreeSet<>();
+        for (int i = 0; i < size; i++) {
+            keys[i] = random.nextLong();
+            primitiveTree.add(keys[i]);
+            offHeapTree.add(keys[i]);
+            boxedTree.add(keys[i]);
+            treeSet.add(keys[i]);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        offHeapTree.close();
+    }
+
+    private long nextKey() {
+        long key = keys[next];
+        next = (next + 1 == keys.length) ? 0 : next + 1;
+        return key;
+    }
+
+    @Benchmark
+    public boolean primitiveContains() {
+        return primitiveTree.contains(nextKey());
+    }
+
+    @Benchmark
+    public boolean offHeapContains() {
+        return offHeapTree.contains(nextKey());
+    }
+
+    @Benchmark
+    public boolean boxedContains() {
+        return boxedTree.contains(nextKey());
+    }
+
+    @Benchmark
+    public boolean treeSetContains() {
+        return treeSet.contains(nextKey());
+    }
+
+    @Benchmark
+    public boolean primitiveRemoveAdd() {
+        long key = nextKey();
+        primitiveTree.remove(key);
+        return primitiveTree.add(key);
+    }
+
+    @Benchmark
+    public boolean offHeapRemoveAdd() {
+        long key = nextKey();
+        offHeapTree.remove(key);
+        return offHeapTree.add(key);
+    }
+
+    @Benchmark
+    public boolean boxedRemoveAdd() {
+        long key = nextKey();
+        boxedTree.remove(key);
+        return boxedTree.add(key);
+    }
+
+    @Benchmark
+    public boolean treeSetRemoveAdd() {
+        long key = nextKey();
+        treeSet.remove(key);
+        return treeSet.add(key);
+    }
+}
@@ -0,0 +1,84 @@
+package bsta;
+
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Write throughput of a shared set under remove+add of random keys, for
+ * ShardedBinarySearchTreeArray against the single-lock
+ * ConcurrentBinarySearchTreeArray. The thread count is set on the command
+ * line; to see how writes scale, run it once per count:
+ *
+ *   ant bench -Djmh.args="ShardedTreeBenchmark -t 1"
+ *   ant bench -Djmh.args="ShardedTreeBenchmark -t 8"
+ *   ant bench -Djmh.args="ShardedTreeBenchmark -t 32"
+ *   ant bench -Djmh.args="ShardedTreeBenchmark -t 64"
+ *
+ * Throughput is reported for all threads together.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ShardedTreeBenchmark {
+
+    static final String SHARDED = "ShardedBinarySearchTreeArray";
+    static final String SINGLE_LOCK = "ConcurrentBinarySearchTreeArray";
+
+    @Param({SHARDED, SINGLE_LOCK})
+    String impl;
+
+    @Param({"64"})
+    int shards;
+
+    @Param({"1000000"})
+    int size;
+
+    Integer[] keys;
+    Set<Integer> set;
+
+    @State(Scope.Thread)
+    public static class ThreadKeys {
+
+        Random random;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            random = new Random(Thread.currentThread().getId());
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        keys = KeyStreams.insertionOrder(KeyStreams.RANDOM, size, 42);
+        set = SHARDED.equals(impl)
+                ? new ShardedBinarySearchTreeArray<Integer>(shards, null)
+                : new ConcurrentBinarySearchTreeArray<Integer>(
+                        new AVLTreeArray<Integer>());
+        for (Integer key : keys) {
+            set.add(key);
+        }
+    }
+
+    @Benchmark
+    public boolean removeAdd(ThreadKeys threadKeys) {
+        Integer key = keys[threadKeys.random.nextInt(keys.length)];
+        set.remove(key);
+        return set.add(key);
+    }
+}
@@ -0,0 +1,69 @@
+package bsta;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * contains on the splay trees against the unbalanced trees they extend and
+ * the balanced trees, under Zipf(1.1) lookups, where a few keys take most
+ * of the accesses, and under uniformly random ones, where splaying only
+ * costs. All trees are built by adding the keys in random order; the splay
+ * trees then settle into the shape the lookups give them during warmup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class SplayBenchmark {
+
+    @Param({Trees.BINARY_SEARCH_TREE, Trees.RED_BLACK_TREE, Trees.SPLAY_TREE,
+        Trees.BINARY_SEARCH_TREE_ARRAY, Trees.AVL_TREE_ARRAY,
+        Trees.SPLAY_TREE_ARRAY})
+    String impl;
+
+    @Param({KeyStreams.ZIPF, KeyStreams.RANDOM})
+    String distribution;
+
+    @Param({"1000000"})
+    int size;
+
+    Integer[] accesses;
+    int next;
+    Set<Integer> set;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Integer[] keys = KeyStreams.insertionOrder(KeyStreams.RANDOM, size,
+                42);
+        set = Trees.create(impl);
+        for (Integer key : keys) {
+            set.add(key);
+        }
+        // The popularity ranking is a second shuffle of the keys, not the
+        // insertion order, which would put the hottest keys near the root
+        // of every tree from the start.
+        accesses = KeyStreams.accessOrder(distribution,
+                KeyStreams.insertionOrder(KeyStreams.RANDOM, size, 44), 43);
+    }
+
+    @Benchmark
+    public boolean contains() {
+        Integer key = accesses[next];
+        next = (next + 1 == accesses.length) ? 0 : next + 1;
+        return set.contains(key);
+    }
+}
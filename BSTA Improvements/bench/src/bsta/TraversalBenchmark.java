@@ -0,0 +1,62 @@
+package bsta;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * A full traversal of a tree built by random insertion, once with an
+ * Iterator, whose next() calls successor and so climbs back up through
+ * entries it has already visited, and once with forEach, which keeps the
+ * entries still to come on a stack instead.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class TraversalBenchmark {
+
+    @Param({Trees.BINARY_SEARCH_TREE, Trees.RED_BLACK_TREE,
+        Trees.BINARY_SEARCH_TREE_ARRAY, Trees.AVL_TREE_ARRAY})
+    String impl;
+
+    @Param({"1000000"})
+    int size;
+
+    Set<Integer> set;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        set = Trees.create(impl);
+        for (Integer key : KeyStreams.insertionOrder(KeyStreams.RANDOM, size,
+                42)) {
+            set.add(key);
+        }
+    }
+
+    @Benchmark
+    public void iterator(Blackhole blackhole) {
+        for (Integer key : set) {
+            blackhole.consume(key);
+        }
+    }
+
+    @Benchmark
+    public void forEach(Blackhole blackhole) {
+        set.forEach(blackhole::consume);
+    }
+}
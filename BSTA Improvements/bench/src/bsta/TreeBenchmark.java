@@ -0,0 +1,125 @@
+package bsta;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * The main benchmark suite: every tree implementation, under random, sorted
+ * and Zipfian key streams, from 1K to 10M elements. Each benchmark reports
+ * throughput and average time; add "-prof gc" for the allocation rate.
+ *
+ * The per-element benchmarks (contains, removeAdd) take one key of the
+ * access stream per operation; the whole-tree benchmarks (build, iterate,
+ * copy, equalsCopy) work on all size elements per operation.
+ *
+ * Sorted input turns the unbalanced trees into linked lists, which cannot
+ * be built in reasonable time beyond about 100K elements, so those
+ * combinations fail in setup and are skipped; narrow the run with -p to
+ * avoid them altogether.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class TreeBenchmark {
+
+    static final int MAX_UNBALANCED_SORTED_SIZE = 100000;
+
+    @Param({Trees.BINARY_SEARCH_TREE, Trees.RED_BLACK_TREE,
+        Trees.BINARY_SEARCH_TREE_ARRAY,
+        Trees.RICHARDS_BINARY_SEARCH_TREE_ARRAY,
+        Trees.FLAT_BINARY_SEARCH_TREE_ARRAY, Trees.AVL_TREE_ARRAY,
+        Trees.TREE_SET})
+    String impl;
+
+    @Param({KeyStreams.RANDOM, KeyStreams.SORTED, KeyStreams.ZIPF})
+    String distribution;
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    int size;
+
+    Integer[] keys;
+    Integer[] accesses;
+    int next;
+    Set<Integer> tree;
+    Set<Integer> copy;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        if (Trees.isUnbalanced(impl) && KeyStreams.SORTED.equals(distribution)
+                && size > MAX_UNBALANCED_SORTED_SIZE) {
+            throw new IllegalStateException("Skipped: " + impl
+                    + " degenerates to a list on sorted input of " + size);
+        }
+        keys = KeyStreams.insertionOrder(distribution, size, 42);
+        accesses = KeyStreams.accessOrder(distribution, keys, 43);
+        tree = Trees.create(impl);
+        for (Integer key : keys) {
+            tree.add(key);
+        }
+        copy = Trees.copy(impl, tree);
+    }
+
+    private Integer nextAccess() {
+        Integer key = accesses[next];
+        next = (next + 1 == accesses.length) ? 0 : next + 1;
+        return key;
+    }
+
+    @Benchmark
+    public boolean contains() {
+        return tree.contains(nextAccess());
+    }
+
+    @Benchmark
+    public boolean removeAdd() {
+        Integer key = nextAccess();
+        tree.remove(key);
+        return tree.add(key);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Set<Integer> build() {
+        Set<Integer> result = Trees.create(impl);
+        for (Integer key : keys) {
+            result.add(key);
+        }
+        return result;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void iterate(Blackhole blackhole) {
+        for (Integer key : tree) {
+            blackhole.consume(key);
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Set<Integer> copy() {
+        return Trees.copy(impl, tree);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public boolean equalsCopy() {
+        return tree.equals(copy);
+    }
+}
@@ -0,0 +1,97 @@
+package bsta;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The tree implementations the benchmarks compare, created and copied by
+ * name so that they can be selected with a JMH @Param.
+ */
+final class Trees {
+
+    static final String BINARY_SEARCH_TREE = "BinarySearchTree";
+    static final String RED_BLACK_TREE = "RedBlackTree";
+    static final String BINARY_SEARCH_TREE_ARRAY = "BinarySearchTreeArray";
+    static final String RICHARDS_BINARY_SEARCH_TREE_ARRAY
+            = "RichardsBinarySearchTreeArray";
+    static final String FLAT_BINARY_SEARCH_TREE_ARRAY
+            = "FlatBinarySearchTreeArray";
+    static final String AVL_TREE_ARRAY = "AVLTreeArray";
+    static final String SPLAY_TREE = "SplayTree";
+    static final String SPLAY_TREE_ARRAY = "SplayTreeArray";
+    static final String TREE_SET = "TreeSet";
+
+    private Trees() {
+    }
+
+    /*
+     * Returns an empty tree of the named implementation.
+     */
+    static Set<Integer> create(String impl) {
+        switch (impl) {
+            case BINARY_SEARCH_TREE:
+                return new BinarySearchTree<>();
+            case RED_BLACK_TREE:
+                return new RedBlackTree<>();
+            case BINARY_SEARCH_TREE_ARRAY:
+                return new BinarySearchTreeArray<>();
+            case RICHARDS_BINARY_SEARCH_TREE_ARRAY:
+                return new RichardsBinarySearchTreeArray<>();
+            case FLAT_BINARY_SEARCH_TREE_ARRAY:
+                return new FlatBinarySearchTreeArray<>();
+            case AVL_TREE_ARRAY:
+                return new AVLTreeArray<>();
+            case SPLAY_TREE:
+                return new SplayTree<>();
+            case SPLAY_TREE_ARRAY:
+                return new SplayTreeArray<>();
+            case TREE_SET:
+                return new TreeSet<>();
+            default:
+                throw new IllegalArgumentException("Unknown tree: " + impl);
+        }
+    }
+
+    /*
+     * Returns a copy of tree made with its implementation's copy
+     * constructor.
+     */
+    static Set<Integer> copy(String impl, Set<Integer> tree) {
+        switch (impl) {
+            case BINARY_SEARCH_TREE:
+                return new BinarySearchTree<>((BinarySearchTree<Integer>) tree);
+            case RED_BLACK_TREE:
+                return new RedBlackTree<>((RedBlackTree<Integer>) tree);
+            case BINARY_SEARCH_TREE_ARRAY:
+                return new BinarySearchTreeArray<>(
+                        (BinarySearchTreeArray<Integer>) tree);
+            case RICHARDS_BINARY_SEARCH_TREE_ARRAY:
+                return new RichardsBinarySearchTreeArray<>(
+                        (RichardsBinarySearchTreeArray<Integer>) tree);
+            case FLAT_BINARY_SEARCH_TREE_ARRAY:
+                return new FlatBinarySearchTreeArray<>(
+                        (FlatBinarySearchTreeArray<Integer>) tree);
+            case AVL_TREE_ARRAY:
+                return new AVLTreeArray<>((AVLTreeArray<Integer>) tree);
+            case SPLAY_TREE:
+                return new SplayTree<>((SplayTree<Integer>) tree);
+            case SPLAY_TREE_ARRAY:
+                return new SplayTreeArray<>((SplayTreeArray<Integer>) tree);
+            case TREE_SET:
+                return new TreeSet<>((TreeSet<Integer>) tree);
+            default:
+                throw new IllegalArgumentException("Unknown tree: " + impl);
+        }
+    }
+
+    /*
+     * Returns true if the named implementation does no rebalancing, so
+     * that sorted input degrades it to a linked list.
+     */
+    static boolean isUnbalanced(String impl) {
+        return impl.equals(BINARY_SEARCH_TREE)
+                || impl.equals(BINARY_SEARCH_TREE_ARRAY)
+                || impl.equals(RICHARDS_BINARY_SEARCH_TREE_ARRAY)
+                || impl.equals(FLAT_BINARY_SEARCH_TREE_ARRAY);
+    }
+}
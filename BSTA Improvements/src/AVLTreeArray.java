@@ -0,0 +1,271 @@
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+
+/**
+ * A BinarySearchTreeArray that keeps itself balanced by the AVL rule: at
+ * every Entry the heights of the left and right subtrees differ by at most
+ * one. The height of the tree is then below 1.45 log2(n + 2), so add, remove
+ * and contains take O(log n) time in the worst case, even for sorted input.
+ *
+ * The int-index layout of BinarySearchTreeArray is kept: rotations rewrite
+ * the left, right and parent indices in place and never move an Entry to a
+ * different array position. The height of the subtree rooted at each
+ * position is kept in a byte array parallel to tree.
+ *
+ * @param <E> the element type, ordered by the Comparable interface
+ */
+public class AVLTreeArray<E> extends BinarySearchTreeArray<E> {
+
+    // height[i] is the height of the subtree rooted at tree[i]; a leaf has
+    // height 1 and a free position height 0. An AVL tree that fits in an
+    // int-indexed array is never more than 45 levels high, so a byte will do.
+    protected byte[] height;
+
+    /**
+     * Initializes this AVLTreeArray object to be empty, to contain only
+     * elements of type E, to be ordered by the Comparable interface, and to
+     * contain no duplicate elements.
+     */
+    public AVLTreeArray() {
+        this(DEFAULT_SIZE);
+    }//default constructor
+
+    /**
+     * Initialises this AVLTreeArray object to be empty, with a specified
+     * initial capacity.
+     *
+     * @param capacity - the initial capacity of this AVLTreeArray object.
+     *
+     * @throws IllegalArgumentException - if capacity is non-positive
+     */
+    public AVLTreeArray(int capacity) {
+        this(capacity, null);
+    }
+
+    /**
+     * Initializes this AVLTreeArray object to be empty, to contain only
+     * elements of type E, to be ordered by a specified Comparator, and to
+     * contain no duplicate elements.
+     *
+     * @param comparator - the Comparator that will order the elements of this
+     * AVLTreeArray object, or null for their natural ordering.
+     */
+    public AVLTreeArray(Comparator<? super E> comparator) {
+        this(DEFAULT_SIZE, comparator);
+    }
+
+    /**
+     * Initialises this AVLTreeArray object to be empty, with a specified
+     * initial capacity and ordering.
+     *
+     * @param capacity - the initial capacity of this AVLTreeArray object.
+     * @param comparator - the Comparator that will order the elements of this
+     * AVLTreeArray object, or null for their natural ordering.
+     *
+     * @throws IllegalArgumentException - if capacity is non-positive
+     */
+    public AVLTreeArray(int capacity, Comparator<? super E> comparator) {
+        super(capacity, comparator);
+        height = new byte[capacity];
+    }
+
+    /**
+     * Initialises this AVLTreeArray object to contain a copy of specified
+     * AVLTreeArray object.
+     *
+     * @param otherTree the specified AVLTreeArray object that this
+     * AVLTreeArray object will be assigned a copy of.
+     */
+    public AVLTreeArray(AVLTreeArray<? extends E> otherTree) {
+        super(otherTree);
+        height = otherTree.height.clone();
+    } // copy constructor
+
+    @Override
+    protected BinarySearchTreeArray<E> newEmptyTree(int capacity) {
+        return new AVLTreeArray<E>(capacity, comparator);
+    }
+
+    @Override
+    protected void resize(int newLength) {
+        super.resize(newLength);
+        height = Arrays.copyOf(height, newLength);
+    }
+
+    @Override
+    protected void relocate(int[] newPosition, int newLength) {
+        super.relocate(newPosition, newLength);
+        byte[] newHeight = new byte[newLength];
+        for (int p = 0; p < newPosition.length; p++) {
+            if (newPosition[p] != NIL) {
+                newHeight[newPosition[p]] = height[p];
+            }
+        }
+        height = newHeight;
+    }
+
+    /*
+     * Builds the perfectly balanced tree of BinarySearchTreeArray and then
+     * fills in the height of every position, so that an AVLTreeArray can be
+     * filled from sorted input in O(n) time too.
+     */
+    @Override
+    protected void buildFromSorted(Iterator<? extends E> sorted, int size,
+            boolean verifyOrder) {
+        super.buildFromSorted(sorted, size, verifyOrder);
+        computeHeights(root);
+    }
+
+    private int computeHeights(int x) {
+        if (x == NIL) {
+            return 0;
+        }
+        int h = 1 + Math.max(computeHeights(tree[x].left),
+                computeHeights(tree[x].right));
+        height[x] = (byte) h;
+        return h;
+    }
+
+    @Override
+    protected void fixAfterInsertion(int x) {
+        height[x] = 1;
+        rebalance(tree[x].parent);
+    }
+
+    /**
+     * Deletes the element in a specified Entry object from this AVLTreeArray
+     * and rebalances the path above the Entry that was unlinked. Unlike
+     * BinarySearchTreeArray, the Entry is unlinked by redirecting its
+     * parent's link, so no other Entry changes array position. The
+     * worstTime(n) is O(log n).
+     *
+     * @param p – the array position of the Entry whose element is to be
+     * deleted from this AVLTreeArray object.
+     *
+     * @return the (now empty) contents of the array position that was freed.
+     */
+    @Override
+    protected Entry<E> deleteEntry(int p) {
+        size--;
+        // If p has two children, replace p's element with p's successor's
+        // element, then make p reference that successor.
+        if (tree[p].left != NIL && tree[p].right != NIL) {
+            int s = successor(p);
+            tree[p].element = tree[s].element;
+            p = s;
+        } //p has two children
+
+        // At this point, p has either no children or one child.
+        Entry<E> entry = tree[p];
+        int replacement = (entry.left != NIL) ? entry.left : entry.right;
+        int parentP = entry.parent;
+        if (replacement != NIL) {
+            tree[replacement].parent = parentP;
+        }
+        if (parentP == NIL) {
+            root = replacement;
+        } else if (tree[parentP].left == p) {
+            tree[parentP].left = replacement;
+        } else {
+            tree[parentP].right = replacement;
+        }
+        tree[p] = null;
+        height[p] = 0;
+        freeSlot(p);
+        rebalance(parentP);
+        return tree[p];
+    }//method deleteEntry
+
+    /*
+     * Walks up from position x to the root, restoring the heights and the
+     * AVL rule on the way. Stops early once a subtree comes out with the
+     * same height it had before, since nothing above it can have changed.
+     */
+    protected void rebalance(int x) {
+        while (x != NIL) {
+            int oldHeight = height[x];
+            int balance = heightOf(tree[x].left) - heightOf(tree[x].right);
+            if (balance > 1) {
+                int l = tree[x].left;
+                if (heightOf(tree[l].left) < heightOf(tree[l].right)) {
+                    rotateLeft(l);
+                }
+                x = rotateRight(x);
+            } else if (balance < -1) {
+                int r = tree[x].right;
+                if (heightOf(tree[r].right) < heightOf(tree[r].left)) {
+                    rotateRight(r);
+                }
+                x = rotateLeft(x);
+            } else {
+                updateHeight(x);
+            }
+            if (height[x] == oldHeight) {
+                break;
+            }
+            x = tree[x].parent;
+        } // while
+    }
+
+    /*
+     * Performs a left rotation around position p by rewriting indices:
+     * p's right child takes p's place and p becomes its left child.
+     * Returns the position of the new subtree root.
+     */
+    protected int rotateLeft(int p) {
+        int r = tree[p].right;
+        tree[p].right = tree[r].left;
+        if (tree[r].left != NIL) {
+            tree[tree[r].left].parent = p;
+        }
+        replaceChild(tree[p].parent, p, r);
+        tree[r].left = p;
+        tree[p].parent = r;
+        updateHeight(p);
+        updateHeight(r);
+        return r;
+    }
+
+    /*
+     * Performs a right rotation around position p by rewriting indices:
+     * p's left child takes p's place and p becomes its right child.
+     * Returns the position of the new subtree root.
+     */
+    protected int rotateRight(int p) {
+        int l = tree[p].left;
+        tree[p].left = tree[l].right;
+        if (tree[l].right != NIL) {
+            tree[tree[l].right].parent = p;
+        }
+        replaceChild(tree[p].parent, p, l);
+        tree[l].right = p;
+        tree[p].parent = l;
+        updateHeight(p);
+        updateHeight(l);
+        return l;
+    }
+
+    /*
+     * Makes child take oldChild's place under parent (or as the root).
+     */
+    private void replaceChild(int parent, int oldChild, int child) {
+        tree[child].parent = parent;
+        if (parent == NIL) {
+            root = child;
+        } else if (tree[parent].left == oldChild) {
+            tree[parent].left = child;
+        } else {
+            tree[parent].right = child;
+        }
+    }
+
+    private int heightOf(int x) {
+        return (x == NIL) ? 0 : height[x];
+    }
+
+    private void updateHeight(int x) {
+        height[x] = (byte) (1 + Math.max(heightOf(tree[x].left),
+                heightOf(tree[x].right)));
+    }
+}
@@ -3,12 +3,47 @@
  * @author greg
  */
 import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
-public class BinarySearchTree<E> extends AbstractSet<E> {
+public class BinarySearchTree<E> extends AbstractSet<E>
+        implements NavigableTree<E> {
 
     protected Entry<E> root;
     protected int size;
 
+    // The number of elements added to or removed from this tree so far. A
+    // Cursor compares it with the count it last saw to tell whether the
+    // tree has changed under it.
+    protected int modCount;
+
+    // The optional lookup cache in front of getEntry, off while cacheKeys is
+    // null: a 2-way set-associative table of recent lookups, misses (a null
+    // Entry) as well as hits. Set s is slots 2s and 2s + 1, and
+    // cacheRecent[s] is the way of it used last, so the other one is evicted.
+    // A slot is good only while cacheStamps holds the modCount it was filled
+    // under, so that every add or removal invalidates the table at once.
+    private Object[] cacheKeys;
+    private Entry<E>[] cacheEntries;
+    private int[] cacheHashes, cacheStamps;
+    private byte[] cacheRecent;
+    private long cacheHits, cacheMisses;
+
+    // The initial depth of the stack used by forEach; it grows if the tree
+    // is deeper. A balanced tree of 2^31 elements is at most 62 levels high.
+    private static final int WALK_STACK_SIZE = 64;
+
+    // The stack forEach walks with, kept between calls so that a walk
+    // allocates nothing. A walk takes it out and puts it back when done;
+    // a walk that finds it out, because it was started from the action of
+    // another or in another thread, makes a stack of its own.
+    private final AtomicReference<Entry<E>[]> walkStack =
+            new AtomicReference<Entry<E>[]>();
+
+    // The ordering of this tree, or null for the natural ordering of the
+    // elements (their Comparable interface).
+    protected final Comparator<? super E> comparator;
+
     protected static class Entry<E> {
 
         protected E element;
@@ -40,9 +75,22 @@ public class BinarySearchTree<E> extends AbstractSet<E> {
      * contain no duplicate elements.
      */
     public BinarySearchTree() {
+        this((Comparator<? super E>) null);
+    } // default constructor
+
+    /**
+     * Initializes this BinarySearchTree object to be empty, to contain only
+     * elements of type E, to be ordered by a specified Comparator, and to
+     * contain no duplicate elements.
+     *
+     * @param comparator – the Comparator that will order the elements of
+     * this BinarySearchTree object, or null for their natural ordering.
+     */
+    public BinarySearchTree(Comparator<? super E> comparator) {
+        this.comparator = comparator;
         root = null;
         size = 0;
-    } // default constructor
+    } // constructor with Comparator
 
     /**
      * Returns the size of this BinarySearchTree object.
@@ -63,11 +111,205 @@ public class BinarySearchTree<E> extends AbstractSet<E> {
      * @param otherTree - the specified BinarySearchTree object that this
      * BinarySearchTree object will be assigned a shallow copy of.
      */
+    @SuppressWarnings("unchecked")
     public BinarySearchTree(BinarySearchTree<? extends E> otherTree) {
+        comparator = (Comparator<? super E>) otherTree.comparator;
         root = copy(otherTree.root, null);
         size = otherTree.size;
     } // copy constructor
 
+    /**
+     * Returns a BinarySearchTree object that contains the elements of a
+     * specified array, which must already be in strictly ascending order.
+     * The tree is built perfectly balanced in one pass over the array, with
+     * no comparisons. The worstTime(n) is O(n).
+     *
+     * @param sorted – the elements, in strictly ascending order.
+     *
+     * @return a balanced BinarySearchTree containing the elements of sorted.
+     *
+     * @throws NullPointerException – if sorted or any of its elements is null.
+     */
+    public static <E> BinarySearchTree<E> fromSorted(E[] sorted) {
+        return fromSorted(sorted, false);
+    } // method fromSorted
+
+    /**
+     * Returns a BinarySearchTree object that contains the elements of a
+     * specified array, which must already be in strictly ascending order.
+     * The worstTime(n) is O(n).
+     *
+     * @param sorted – the elements, in strictly ascending order.
+     * @param verifyOrder – if true, each element is compared with the one
+     * before it to check the order; if false, no comparisons are made and
+     * out-of-order input gives a tree that does not find its elements.
+     *
+     * @return a balanced BinarySearchTree containing the elements of sorted.
+     *
+     * @throws IllegalArgumentException – if verifyOrder is true and sorted is
+     * not in strictly ascending order.
+     * @throws NullPointerException – if sorted or any of its elements is null.
+     */
+    public static <E> BinarySearchTree<E> fromSorted(E[] sorted,
+            boolean verifyOrder) {
+        return fromSorted(Arrays.asList(sorted).iterator(), sorted.length,
+                verifyOrder);
+    } // method fromSorted
+
+    /**
+     * Returns a BinarySearchTree object that contains the elements of a
+     * specified List, which must already be in strictly ascending order.
+     * The worstTime(n) is O(n).
+     *
+     * @param sorted – the elements, in strictly ascending order.
+     *
+     * @return a balanced BinarySearchTree containing the elements of sorted.
+     *
+     * @throws NullPointerException – if sorted or any of its elements is null.
+     */
+    public static <E> BinarySearchTree<E> fromSorted(
+            List<? extends E> sorted) {
+        return fromSorted(sorted, false);
+    } // method fromSorted
+
+    /**
+     * Returns a BinarySearchTree object that contains the elements of a
+     * specified List, which must already be in strictly ascending order.
+     * The worstTime(n) is O(n).
+     *
+     * @param sorted – the elements, in strictly ascending order.
+     * @param verifyOrder – if true, each element is compared with the one
+     * before it to check the order.
+     *
+     * @return a balanced BinarySearchTree containing the elements of sorted.
+     *
+     * @throws IllegalArgumentException – if verifyOrder is true and sorted is
+     * not in strictly ascending order.
+     * @throws NullPointerException – if sorted or any of its elements is null.
+     */
+    public static <E> BinarySearchTree<E> fromSorted(
+            List<? extends E> sorted, boolean verifyOrder) {
+        return fromSorted(sorted.iterator(), sorted.size(), verifyOrder);
+    } // method fromSorted
+
+    /**
+     * Returns a BinarySearchTree object that contains the next size elements
+     * of a specified Iterator, which must deliver them in strictly ascending
+     * order. The elements are read exactly once, in order. The worstTime(n)
+     * is O(n).
+     *
+     * @param sorted – the source of the elements, in strictly ascending order.
+     * @param size – the number of elements to read from sorted.
+     * @param verifyOrder – if true, each element is compared with the one
+     * before it to check the order.
+     *
+     * @return a balanced BinarySearchTree containing the elements read.
+     *
+     * @throws IllegalArgumentException – if size is negative, or if
+     * verifyOrder is true and the elements are not in strictly ascending
+     * order.
+     * @throws NoSuchElementException – if sorted has fewer than size elements.
+     * @throws NullPointerException – if sorted or any of its elements is null.
+     */
+    public static <E> BinarySearchTree<E> fromSorted(
+            Iterator<? extends E> sorted, int size, boolean verifyOrder) {
+        return fromSorted(sorted, size, null, verifyOrder);
+    } // method fromSorted
+
+    /**
+     * Returns a BinarySearchTree object, ordered by a specified Comparator,
+     * that contains the next size elements of a specified Iterator, which
+     * must deliver them in strictly ascending order according to that
+     * Comparator. The worstTime(n) is O(n).
+     *
+     * @param sorted – the source of the elements, in strictly ascending order.
+     * @param size – the number of elements to read from sorted.
+     * @param comparator – the ordering of the new tree, or null for the
+     * natural ordering of the elements.
+     * @param verifyOrder – if true, each element is compared with the one
+     * before it to check the order.
+     *
+     * @return a balanced BinarySearchTree containing the elements read.
+     *
+     * @throws IllegalArgumentException – if size is negative, or if
+     * verifyOrder is true and the elements are not in strictly ascending
+     * order.
+     * @throws NoSuchElementException – if sorted has fewer than size elements.
+     * @throws NullPointerException – if sorted or any of its elements is null.
+     */
+    public static <E> BinarySearchTree<E> fromSorted(
+            Iterator<? extends E> sorted, int size,
+            Comparator<? super E> comparator, boolean verifyOrder) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Negative size: " + size);
+        }
+        BinarySearchTree<E> result = new BinarySearchTree<E>(comparator);
+        if (verifyOrder) {
+            sorted = result.new OrderCheckingIterator(sorted);
+        }
+        result.buildFromSorted(sorted, size);
+        return result;
+    } // method fromSorted
+
+    /*
+     * Fills this empty tree with size elements taken in order from sorted,
+     * perfectly balanced. Subclasses that keep extra information in their
+     * entries override this method to fill it in afterwards.
+     */
+    protected void buildFromSorted(Iterator<? extends E> sorted, int size) {
+        root = buildFromSorted(0, size - 1, null, sorted);
+        this.size = size;
+    } // method buildFromSorted
+
+    /*
+     * Builds a perfectly balanced subtree from the elements lo..hi (counted
+     * in order) of sorted, consuming them in order, and returns its root.
+     */
+    protected Entry<E> buildFromSorted(int lo, int hi, Entry<E> parent,
+            Iterator<? extends E> sorted) {
+        if (lo > hi) {
+            return null;
+        }
+        int mid = (lo + hi) >>> 1;
+        Entry<E> entry = newEntry(null, parent);
+        entry.left = buildFromSorted(lo, mid - 1, entry, sorted);
+        entry.element = sorted.next();
+        if (entry.element == null) {
+            throw new NullPointerException();
+        }
+        entry.right = buildFromSorted(mid + 1, hi, entry, sorted);
+        return entry;
+    } // method buildFromSorted
+
+    /*
+     * Passes on the elements of another Iterator, checking that each one
+     * is strictly greater than the one before it in this tree's ordering.
+     */
+    private class OrderCheckingIterator implements Iterator<E> {
+
+        private final Iterator<? extends E> source;
+        private E previous;
+
+        OrderCheckingIterator(Iterator<? extends E> source) {
+            this.source = source;
+        }
+
+        public boolean hasNext() {
+            return source.hasNext();
+        }
+
+        public E next() {
+            E element = source.next();
+            if (previous != null && element != null
+                    && compare(previous, element) >= 0) {
+                throw new IllegalArgumentException("Not in strictly "
+                        + "ascending order: " + previous + ", " + element);
+            }
+            previous = element;
+            return element;
+        }
+    } // class OrderCheckingIterator
+
     protected Entry<E> copy(Entry<? extends E> p, Entry<E> parent) {
         if (p != null) {
             Entry<E> q = new Entry<E>(p.element, parent);
@@ -128,42 +370,313 @@ public class BinarySearchTree<E> extends AbstractSet<E> {
      *
      */
     @Override
+    @SuppressWarnings("unchecked")
     public boolean add(E element) {
+        if (element == null) {
+            throw new NullPointerException();
+        }
         if (root == null) {
-            if (element == null) {
-                throw new NullPointerException();
+            if (comparator != null) {
+                comparator.compare(element, element); // type check
             }
-            root = new Entry<E>(element, null);
+            root = newEntry(element, null);
             size++;
+            modCount++;
+            fixAfterInsertion(root);
             return true;
         } // empty tree
-        else {
-            Entry<E> temp = root;
-            int comp;
-            while (true) {
-                comp = ((Comparable) element).compareTo(temp.element);
-                if (comp == 0) {
+        Entry<E> temp = root, parent;
+        int comp;
+        // One descent loop per kind of ordering, so that each has a single
+        // comparison call site.
+        Comparator<? super E> cpr = comparator;
+        if (cpr != null) {
+            do {
+                parent = temp;
+                comp = cpr.compare(element, temp.element);
+                if (comp < 0) {
+                    temp = temp.left;
+                } else if (comp > 0) {
+                    temp = temp.right;
+                } else {
                     return false;
                 }
+            } while (temp != null);
+        } else {
+            Comparable<? super E> key = (Comparable<? super E>) element;
+            do {
+                parent = temp;
+                comp = key.compareTo(temp.element);
                 if (comp < 0) {
-                    if (temp.left != null) {
-                        temp = temp.left;
-                    } else {
-                        temp.left = new Entry<E>(element, temp);
-                        size++;
-                        return true;
-                    } // temp.left == null
-                } else if (temp.right != null) {
+                    temp = temp.left;
+                } else if (comp > 0) {
                     temp = temp.right;
                 } else {
-                    temp.right = new Entry<E>(element, temp);
-                    size++;
-                    return true;
-                } // temp.right == null
-            } // while
-        } // root not null
+                    return false;
+                }
+            } while (temp != null);
+        }
+        Entry<E> e = newEntry(element, parent);
+        if (comp < 0) {
+            parent.left = e;
+        } else {
+            parent.right = e;
+        }
+        size++;
+        modCount++;
+        fixAfterInsertion(e);
+        return true;
     } // method add
 
+    /**
+     * Creates the Entry object that will house a newly added element.
+     * Subclasses that keep extra information in their entries override this
+     * method to return their own kind of Entry.
+     *
+     * @param element – the element to be housed in the new Entry.
+     * @param parent – the parent of the new Entry.
+     *
+     * @return a new Entry object housing element.
+     */
+    protected Entry<E> newEntry(E element, Entry<E> parent) {
+        return new Entry<E>(element, parent);
+    } // method newEntry
+
+    /**
+     * Restores the shape of this BinarySearchTree object after a new Entry
+     * has been linked in as a leaf. A plain BinarySearchTree does no
+     * rebalancing, so this method does nothing; balanced subclasses override
+     * it.
+     *
+     * @param x – the Entry object that has just been inserted.
+     */
+    protected void fixAfterInsertion(Entry<E> x) {
+    } // method fixAfterInsertion
+
+    /**
+     * Ensures that this BinarySearchTree object contains every element of a
+     * specified array. The elements are sorted first, unless they are in
+     * ascending order already, and each search then starts not from the
+     * root but from where the search for the one before it ended, climbing
+     * only as far as the nearest ancestor whose subtree holds the next
+     * element. Consecutive elements of a large batch are close together in
+     * the tree, so most searches take a few steps. The worstTime(n, m) is
+     * O(m log m + m n), and averageTime(n, m) is O(m log m + m log(n / m + 1)).
+     *
+     * @param batch – the elements to add; the array itself is not changed.
+     *
+     * @return true – if this BinarySearchTree object changed as a result of
+     * this method call; otherwise, return false.
+     *
+     * @throws ClassCastException – if an element cannot be compared to the
+     * elements of this BinarySearchTree object.
+     * @throws NullPointerException – if batch or any of its elements is null.
+     */
+    public boolean addAllSorted(E[] batch) {
+        E[] keys = batch;
+        for (int i = 1; i < keys.length; i++) {
+            if (compare(keys[i - 1], keys[i]) > 0) {
+                keys = batch.clone();
+                Arrays.sort(keys, comparator);
+                break;
+            }
+        } // for
+        boolean changed = false;
+        Entry<E> finger = null;
+        for (E key : keys) {
+            if (key == null) {
+                throw new NullPointerException();
+            }
+            if (root == null) {
+                changed |= add(key);
+                finger = root;
+                continue;
+            }
+            Entry<E> x = (finger == null) ? root : climb(finger, key), parent;
+            int comp;
+            do {
+                parent = x;
+                comp = compare(key, x.element);
+                if (comp < 0) {
+                    x = x.left;
+                } else if (comp > 0) {
+                    x = x.right;
+                } else {
+                    break;
+                }
+            } while (x != null);
+            if (comp == 0) {
+                finger = parent;
+                continue;
+            }
+            Entry<E> e = newEntry(key, parent);
+            if (comp < 0) {
+                parent.left = e;
+            } else {
+                parent.right = e;
+            }
+            size++;
+            modCount++;
+            fixAfterInsertion(e);
+            finger = e;
+            changed = true;
+        } // for
+        return changed;
+    } // method addAllSorted
+
+    /**
+     * Determines, for each element of a specified array, whether this
+     * BinarySearchTree object contains it. As in addAllSorted, the
+     * elements are searched for in ascending order, each search starting
+     * from where the one before it ended; if they are not in ascending order
+     * already, their positions are sorted by element first, so that out
+     * still lines up with sorted. The worstTime(n, m) is O(m log m + m n),
+     * and averageTime(n, m) is O(m log m + m log(n / m + 1)).
+     *
+     * @param sorted – the elements to look for, best in ascending order;
+     * the array itself is not changed.
+     * @param out – the array in which out[i] is set to true if sorted[i] is
+     * in this BinarySearchTree object, and to false otherwise.
+     *
+     * @return true – if every element of sorted is in this BinarySearchTree
+     * object; otherwise, return false.
+     *
+     * @throws ClassCastException – if an element cannot be compared to the
+     * elements of this BinarySearchTree object.
+     * @throws IllegalArgumentException – if out is shorter than sorted.
+     * @throws NullPointerException – if sorted, out or any element of sorted
+     * is null.
+     */
+    public boolean containsAll(E[] sorted, boolean[] out) {
+        if (out.length < sorted.length) {
+            throw new IllegalArgumentException("out is shorter than sorted");
+        }
+        int[] order = null;
+        for (int i = 1; i < sorted.length; i++) {
+            if (compare(sorted[i - 1], sorted[i]) > 0) {
+                order = new int[sorted.length];
+                for (int j = 0; j < order.length; j++) {
+                    order[j] = j;
+                }
+                sortWithPositions(sorted.clone(), order);
+                break;
+            }
+        } // for
+        boolean all = true;
+        Entry<E> finger = null;
+        for (int k = 0; k < sorted.length; k++) {
+            int i = (order == null) ? k : order[k];
+            E key = sorted[i];
+            if (key == null) {
+                throw new NullPointerException();
+            }
+            Entry<E> x = (finger == null) ? root : climb(finger, key);
+            boolean found = false;
+            while (x != null) {
+                finger = x;
+                int comp = compare(key, x.element);
+                if (comp < 0) {
+                    x = x.left;
+                } else if (comp > 0) {
+                    x = x.right;
+                } else {
+                    found = true;
+                    break;
+                }
+            } // while
+            out[i] = found;
+            all &= found;
+        } // for
+        return all;
+    } // method containsAll
+
+    /*
+     * Sorts keys, in place, into ascending order by the ordering of this
+     * tree, moving each positions[i] along with keys[i], so that containsAll
+     * can sort the positions of its keys without boxing them. A merge
+     * sort, stable and O(m log m) for m keys.
+     */
+    private void sortWithPositions(Object[] keys, int[] positions) {
+        mergeSort(keys.clone(), positions.clone(), keys, positions, 0,
+                keys.length);
+    } // method sortWithPositions
+
+    /*
+     * Sorts the range lo to hi of srcKeys into dstKeys, with the positions
+     * alongside; the two pairs of arrays hold the same entries in that range
+     * on entry, and each level of the recursion sorts its halves into the
+     * other pair and merges them back.
+     */
+    private void mergeSort(Object[] srcKeys, int[] srcPositions,
+            Object[] dstKeys, int[] dstPositions, int lo, int hi) {
+        if (hi - lo < 8) {
+            for (int i = lo + 1; i < hi; i++) {
+                Object key = dstKeys[i];
+                int position = dstPositions[i], j = i;
+                for (; j > lo && compare(dstKeys[j - 1], key) > 0; j--) {
+                    dstKeys[j] = dstKeys[j - 1];
+                    dstPositions[j] = dstPositions[j - 1];
+                }
+                dstKeys[j] = key;
+                dstPositions[j] = position;
+            }
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        mergeSort(dstKeys, dstPositions, srcKeys, srcPositions, lo, mid);
+        mergeSort(dstKeys, dstPositions, srcKeys, srcPositions, mid, hi);
+        for (int i = lo, p = lo, q = mid; i < hi; i++) {
+            if (q >= hi || p < mid && compare(srcKeys[p], srcKeys[q]) <= 0) {
+                dstKeys[i] = srcKeys[p];
+                dstPositions[i] = srcPositions[p++];
+            } else {
+                dstKeys[i] = srcKeys[q];
+                dstPositions[i] = srcPositions[q++];
+            }
+        }
+    } // method mergeSort
+
+    /*
+     * Returns the Entry from which to search for key, which is not less than
+     * the element last searched for from x: x itself, or the nearest ancestor
+     * of x whose subtree holds key. Only the ancestors of which x is in the
+     * left subtree bound it from above, so the walk climbs from one of those
+     * to the next until key is less than its element.
+     */
+    private Entry<E> climb(Entry<E> x, E key) {
+        for (;;) {
+            Entry<E> a = x;
+            while (a.parent != null && a == a.parent.right) {
+                a = a.parent;
+            }
+            Entry<E> upper = a.parent;
+            if (upper == null || compare(key, upper.element) < 0) {
+                return x;
+            }
+            x = upper;
+        } // for
+    } // method climb
+
+    /*
+     * The mirror image of climb, for a key less than the element of x:
+     * returns x itself, or the nearest ancestor of x whose subtree holds
+     * key, climbing through the ancestors of which x is in the right
+     * subtree until key is greater than one's element.
+     */
+    private Entry<E> climbBack(Entry<E> x, E key) {
+        for (;;) {
+            Entry<E> a = x;
+            while (a.parent != null && a == a.parent.left) {
+                a = a.parent;
+            }
+            Entry<E> lower = a.parent;
+            if (lower == null || compare(key, lower.element) > 0) {
+                return x;
+            }
+            x = lower;
+        } // for
+    } // method climbBack
+
     /**
      * Ensures that this BinarySearchTree object does not contain a specified
      * element. The worstTime(n) is O(n) and averageTime(n) is O(log n).
@@ -203,14 +716,22 @@ public class BinarySearchTree<E> extends AbstractSet<E> {
      * @throws NullPointerException – if obj is null.
      *
      */
+    @SuppressWarnings("unchecked")
     protected Entry<E> getEntry(Object obj) {
         int comp;
         if (obj == null) {
             throw new NullPointerException();
         }
+        if (cacheKeys != null) {
+            return getCachedEntry(obj);
+        }
+        if (comparator != null) {
+            return getEntryUsingComparator(obj);
+        }
+        Comparable<? super E> key = (Comparable<? super E>) obj;
         Entry<E> e = root;
         while (e != null) {
-            comp = ((Comparable) obj).compareTo(e.element);
+            comp = key.compareTo(e.element);
             if (comp == 0) {
                 return e;
             } else if (comp < 0) {
@@ -222,6 +743,348 @@ public class BinarySearchTree<E> extends AbstractSet<E> {
         return null;
     } // method getEntry
 
+    /*
+     * The version of getEntry for trees ordered by a Comparator. Keeping it
+     * apart leaves the natural-ordering loop with a single compareTo call
+     * site that the JIT compiler can inline.
+     */
+    @SuppressWarnings("unchecked")
+    protected Entry<E> getEntryUsingComparator(Object obj) {
+        E key = (E) obj;
+        Comparator<? super E> cpr = comparator;
+        Entry<E> e = root;
+        while (e != null) {
+            int comp = cpr.compare(key, e.element);
+            if (comp == 0) {
+                return e;
+            } else if (comp < 0) {
+                e = e.left;
+            } else {
+                e = e.right;
+            }
+        } // while
+        return null;
+    } // method getEntryUsingComparator
+
+    /*
+     * The version of getEntry for a tree with its lookup cache on. A slot
+     * answers for obj if it is current and holds a key with the same hash
+     * code that compares equal to obj; otherwise the Entry is found from the
+     * root and stored in place of the way of its set used less recently.
+     */
+    private Entry<E> getCachedEntry(Object obj) {
+        int hash = obj.hashCode();
+        int set = (hash ^ (hash >>> 16)) & (cacheRecent.length - 1);
+        int slot = 2 * set;
+        if (!cacheHolds(slot, obj, hash) && !cacheHolds(++slot, obj, hash)) {
+            cacheMisses++;
+            Entry<E> e = root;
+            while (e != null) {
+                int comp = compare(obj, e.element);
+                if (comp == 0) {
+                    break;
+                }
+                e = (comp < 0) ? e.left : e.right;
+            } // while
+            slot = 2 * set + (cacheRecent[set] ^ 1);
+            cacheKeys[slot] = obj;
+            cacheEntries[slot] = e;
+            cacheHashes[slot] = hash;
+            cacheStamps[slot] = modCount;
+            cacheRecent[set] = (byte) (slot & 1);
+            return e;
+        }
+        cacheHits++;
+        cacheRecent[set] = (byte) (slot & 1);
+        return cacheEntries[slot];
+    } // method getCachedEntry
+
+    /*
+     * Determines whether the lookup cache slot holds the result for obj.
+     */
+    private boolean cacheHolds(int slot, Object obj, int hash) {
+        Object key = cacheKeys[slot];
+        return cacheStamps[slot] == modCount && cacheHashes[slot] == hash
+                && key != null && (key == obj || compare(obj, key) == 0);
+    } // method cacheHolds
+
+    /**
+     * Puts a lookup cache with a specified number of slots in front of
+     * contains, remove and the other methods that look up a single element,
+     * or takes it away. The cache remembers the outcome of recent lookups,
+     * found or not, so that a key that is looked up again is answered
+     * without descending the tree; it is 2-way set-associative, and a key
+     * that is not in it evicts the less recently used of the two keys whose
+     * hash codes share its set. Adding or removing an element empties it.
+     * The slots are allocated here, so lookups allocate nothing. The hit and
+     * miss counts start again from zero.
+     *
+     * A cached key is recognised by its hashCode method and then by the
+     * ordering of this BinarySearchTree object. Lookups write to the cache,
+     * so a tree with a cache must not be read by several threads at once
+     * without locking. The contains method of a SplayTree does its own
+     * descent while splaying, and so does not use the cache.
+     *
+     * @param capacity – the number of keys the cache can hold, rounded up to
+     * a power of 2 of at least 2; or 0 to turn the cache off.
+     *
+     * @throws IllegalArgumentException – if capacity is negative or greater
+     * than 2^30.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public void setLookupCacheCapacity(int capacity) {
+        if (capacity < 0 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("Lookup cache capacity not in "
+                    + "[0, 2^30]: " + capacity);
+        }
+        cacheHits = 0;
+        cacheMisses = 0;
+        if (capacity == 0) {
+            cacheKeys = null;
+            cacheEntries = null;
+            cacheHashes = cacheStamps = null;
+            cacheRecent = null;
+            return;
+        }
+        int slots = Math.max(2, Integer.highestOneBit(capacity - 1) << 1);
+        cacheKeys = new Object[slots];
+        cacheEntries = new Entry[slots];
+        cacheHashes = new int[slots];
+        cacheStamps = new int[slots];
+        cacheRecent = new byte[slots / 2];
+    } // method setLookupCacheCapacity
+
+    /**
+     * Returns the number of keys the lookup cache of this BinarySearchTree
+     * object can hold.
+     *
+     * @return the capacity of the lookup cache, or 0 if it is off.
+     */
+    public int lookupCacheCapacity() {
+        return (cacheKeys == null) ? 0 : cacheKeys.length;
+    } // method lookupCacheCapacity
+
+    /**
+     * Returns the number of lookups the lookup cache of this BinarySearchTree
+     * object has answered since its capacity was last set.
+     *
+     * @return the number of cache hits.
+     */
+    public long lookupCacheHits() {
+        return cacheHits;
+    } // method lookupCacheHits
+
+    /**
+     * Returns the number of lookups that went past the lookup cache of this
+     * BinarySearchTree object to the tree since its capacity was last set.
+     *
+     * @return the number of cache misses.
+     */
+    public long lookupCacheMisses() {
+        return cacheMisses;
+    } // method lookupCacheMisses
+
+    /**
+     * Compares two elements by the ordering of this BinarySearchTree object:
+     * its Comparator if it has one, otherwise the elements' Comparable
+     * interface.
+     *
+     * @param a – the first element to compare.
+     * @param b – the second element to compare.
+     *
+     * @return a negative integer, zero or a positive integer as a is less
+     * than, equal to or greater than b.
+     *
+     * @throws ClassCastException – if a and b cannot be compared.
+     */
+    @SuppressWarnings("unchecked")
+    protected final int compare(Object a, Object b) {
+        return (comparator == null) ? ((Comparable<Object>) a).compareTo(b)
+                : comparator.compare((E) a, (E) b);
+    } // method compare
+
+    /**
+     * Returns the Comparator that orders the elements of this
+     * BinarySearchTree object, or null if it uses their natural ordering.
+     *
+     * @return the Comparator of this BinarySearchTree object, or null.
+     */
+    public Comparator<? super E> comparator() {
+        return comparator;
+    } // method comparator
+
+    /**
+     * Returns an immutable copy of this BinarySearchTree object, with its
+     * elements in Eytzinger order in a flat array for faster lookups. Later
+     * changes to this BinarySearchTree object do not affect the copy. The
+     * worstTime(n) is O(n).
+     *
+     * @return an EytzingerSet containing the elements of this
+     * BinarySearchTree object, with the same ordering.
+     */
+    public EytzingerSet<E> freeze() {
+        return new EytzingerSet<E>(iterator(), size, comparator);
+    } // method freeze
+
+    /**
+     * Returns a new balanced tree holding the elements that are in this
+     * BinarySearchTree object, in another one, or in both. The two are
+     * merged in one linear pass over their elements in order, and the
+     * result is built from the merged sequence, so the worstTime(n, m) is
+     * O(n + m). Where an element is in both, the one from this tree is kept.
+     *
+     * @param other – the BinarySearchTree to merge with this one.
+     *
+     * @return a BinarySearchTree, of the same class and with the same
+     * ordering as this one, holding the union of the two.
+     *
+     * @throws IllegalArgumentException – if other is ordered differently.
+     * @throws NullPointerException – if other is null.
+     */
+    public BinarySearchTree<E> union(BinarySearchTree<? extends E> other) {
+        return merge(other, UNION);
+    } // method union
+
+    /**
+     * Returns a new balanced tree holding the elements that are in both this
+     * BinarySearchTree object and another one. If one tree is much smaller
+     * than the other, its elements are looked up in the larger one, in
+     * O(m log n) time; otherwise the two are merged as by union, in
+     * O(n + m) time.
+     *
+     * @param other – the BinarySearchTree to intersect with this one.
+     *
+     * @return a BinarySearchTree, of the same class and with the same
+     * ordering as this one, holding the intersection of the two.
+     *
+     * @throws IllegalArgumentException – if other is ordered differently.
+     * @throws NullPointerException – if other is null.
+     */
+    public BinarySearchTree<E> intersect(
+            BinarySearchTree<? extends E> other) {
+        checkOrdering(other);
+        int small = Math.min(size, other.size), large = Math.max(size,
+                other.size);
+        if ((long) small * (32 - Integer.numberOfLeadingZeros(large))
+                >= large) {
+            return merge(other, INTERSECTION);
+        }
+        Object[] common = new Object[small];
+        int[] count = {0};
+        if (size <= other.size) {
+            forEach(element -> {
+                if (other.getEntry(element) != null) {
+                    common[count[0]++] = element;
+                }
+            });
+        } else {
+            other.forEach(element -> {
+                Entry<E> e = getEntry(element);
+                if (e != null) {
+                    common[count[0]++] = e.element;
+                }
+            });
+        }
+        return build(common, count[0]);
+    } // method intersect
+
+    /**
+     * Returns a new balanced tree holding the elements of this
+     * BinarySearchTree object that are not in another one. The two are
+     * merged as by union, so the worstTime(n, m) is O(n + m).
+     *
+     * @param other – the BinarySearchTree whose elements are left out.
+     *
+     * @return a BinarySearchTree, of the same class and with the same
+     * ordering as this one, holding the difference of the two.
+     *
+     * @throws IllegalArgumentException – if other is ordered differently.
+     * @throws NullPointerException – if other is null.
+     */
+    public BinarySearchTree<E> difference(
+            BinarySearchTree<? extends E> other) {
+        return merge(other, DIFFERENCE);
+    } // method difference
+
+    private static final int UNION = 0, INTERSECTION = 1, DIFFERENCE = 2;
+
+    /*
+     * Merges the elements of this tree and other, in order, keeping those
+     * that op calls for, and builds a balanced tree from them.
+     */
+    private BinarySearchTree<E> merge(BinarySearchTree<? extends E> other,
+            int op) {
+        checkOrdering(other);
+        Object[] a = toSortedArray(this), b = toSortedArray(other);
+        Object[] out = new Object[(op == UNION) ? a.length + b.length
+                : a.length];
+        int i = 0, j = 0, k = 0;
+        while (i < a.length && j < b.length) {
+            int comp = compare(a[i], b[j]);
+            if (comp < 0) {
+                if (op != INTERSECTION) {
+                    out[k++] = a[i];
+                }
+                i++;
+            } else if (comp > 0) {
+                if (op == UNION) {
+                    out[k++] = b[j];
+                }
+                j++;
+            } else {
+                if (op != DIFFERENCE) {
+                    out[k++] = a[i];
+                }
+                i++;
+                j++;
+            }
+        } // while
+        if (op != INTERSECTION) {
+            while (i < a.length) {
+                out[k++] = a[i++];
+            }
+        }
+        if (op == UNION) {
+            while (j < b.length) {
+                out[k++] = b[j++];
+            }
+        }
+        return build(out, k);
+    } // method merge
+
+    @SuppressWarnings("unchecked")
+    private BinarySearchTree<E> build(Object[] sorted, int count) {
+        BinarySearchTree<E> result = newEmptyTree();
+        result.buildFromSorted(
+                (Iterator<E>) Arrays.asList(sorted).iterator(), count);
+        return result;
+    } // method build
+
+    private void checkOrdering(BinarySearchTree<?> other) {
+        if (!Objects.equals(comparator, other.comparator)) {
+            throw new IllegalArgumentException("The trees are ordered "
+                    + "differently");
+        }
+    } // method checkOrdering
+
+    private static Object[] toSortedArray(BinarySearchTree<?> t) {
+        Object[] elements = new Object[t.size];
+        int[] count = {0};
+        t.forEach(element -> elements[count[0]++] = element);
+        return elements;
+    } // method toSortedArray
+
+    /**
+     * Returns a new, empty tree of the same class and ordering as this
+     * BinarySearchTree object, for the results of union, intersect and
+     * difference. Subclasses override it to return their own class.
+     *
+     * @return an empty BinarySearchTree with the same ordering.
+     */
+    protected BinarySearchTree<E> newEmptyTree() {
+        return new BinarySearchTree<E>(comparator);
+    } // method newEmptyTree
+
     /**
      * Deletes the element in a specified Entry object from this
      * BinarySearchTree.
@@ -235,6 +1098,7 @@ public class BinarySearchTree<E> extends AbstractSet<E> {
      */
     protected Entry<E> deleteEntry(Entry<E> p) {
         size--;
+        modCount++;
 // If p has two children, replace p’s element with p’s successor’s
 // element, then make p reference that successor.
         if (p.left != null && p.right != null) {
@@ -263,7 +1127,7 @@ public class BinarySearchTree<E> extends AbstractSet<E> {
         else if (p.parent == null) {
             root = null;
         } else if (p == p.parent.left) {
-////            p.parent.left = null;
+            p.parent.left = null;
         } else {
             p.parent.right = null;
         } // p has a parent but no children
@@ -304,11 +1168,424 @@ public class BinarySearchTree<E> extends AbstractSet<E> {
     } // method successor
 
     /**
-     * Returns an iterator positioned at the smallest element in this
-     * BinarySearchTree object.
+     * Finds the predecessor of a specified Entry object in this
+     * BinarySearchTree. The worstTime(n) is O(n) and averageTime(n) is
+     * constant.
      *
-     * @return an iterator positioned at the smallest element (according to the
-     * element class’s implementation of the Comparable interface) in this
+     * @param e – the Entry object whose predecessor is to be found.
+     *
+     * @return the predecessor of e, if e has a predecessor; otherwise, return
+     * null.
+     */
+    protected Entry<E> predecessor(Entry<E> e) {
+        if (e == null) {
+            return null;
+        } else if (e.left != null) {
+// predecessor is rightmost Entry in left subtree of e
+            Entry<E> p = e.left;
+            while (p.right != null) {
+                p = p.right;
+            }
+            return p;
+        } // e has a left child
+        else {
+// go up the tree to the right as far as possible, then go up
+// to the left.
+            Entry<E> p = e.parent;
+            Entry<E> ch = e;
+            while (p != null && ch == p.left) {
+                ch = p;
+                p = p.parent;
+            } // while
+            return p;
+        } // e has no left child
+    } // method predecessor
+
+    /*
+     * The Entry objects of the smallest and largest elements, or null if
+     * this BinarySearchTree object is empty.
+     */
+    protected Entry<E> getFirstEntry() {
+        Entry<E> p = root;
+        if (p != null) {
+            while (p.left != null) {
+                p = p.left;
+            }
+        }
+        return p;
+    } // method getFirstEntry
+
+    protected Entry<E> getLastEntry() {
+        Entry<E> p = root;
+        if (p != null) {
+            while (p.right != null) {
+                p = p.right;
+            }
+        }
+        return p;
+    } // method getLastEntry
+
+    /*
+     * The Entry objects of the smallest element greater than or equal to
+     * (ceiling) or greater than (higher) a specified element, and of the
+     * largest element less than or equal to (floor) or less than (lower) it,
+     * or null if there is none. Each is one descent from the root, like
+     * getEntry, remembering the last Entry passed on the wanted side.
+     */
+    protected Entry<E> getCeilingEntry(E element) {
+        if (element == null) {
+            throw new NullPointerException();
+        }
+        Entry<E> p = root, found = null;
+        while (p != null) {
+            int comp = compare(element, p.element);
+            if (comp == 0) {
+                return p;
+            } else if (comp < 0) {
+                found = p;
+                p = p.left;
+            } else {
+                p = p.right;
+            }
+        } // while
+        return found;
+    } // method getCeilingEntry
+
+    protected Entry<E> getHigherEntry(E element) {
+        if (element == null) {
+            throw new NullPointerException();
+        }
+        Entry<E> p = root, found = null;
+        while (p != null) {
+            if (compare(element, p.element) < 0) {
+                found = p;
+                p = p.left;
+            } else {
+                p = p.right;
+            }
+        } // while
+        return found;
+    } // method getHigherEntry
+
+    protected Entry<E> getFloorEntry(E element) {
+        if (element == null) {
+            throw new NullPointerException();
+        }
+        Entry<E> p = root, found = null;
+        while (p != null) {
+            int comp = compare(element, p.element);
+            if (comp == 0) {
+                return p;
+            } else if (comp > 0) {
+                found = p;
+                p = p.right;
+            } else {
+                p = p.left;
+            }
+        } // while
+        return found;
+    } // method getFloorEntry
+
+    protected Entry<E> getLowerEntry(E element) {
+        if (element == null) {
+            throw new NullPointerException();
+        }
+        Entry<E> p = root, found = null;
+        while (p != null) {
+            if (compare(element, p.element) > 0) {
+                found = p;
+                p = p.right;
+            } else {
+                p = p.left;
+            }
+        } // while
+        return found;
+    } // method getLowerEntry
+
+    private static <E> E elementOf(Entry<E> e) {
+        return (e == null) ? null : e.element;
+    }
+
+    /**
+     * Returns the smallest element in this BinarySearchTree object. The
+     * worstTime(n) is O(n) and averageTime(n) is O(log n).
+     *
+     * @return the smallest element in this BinarySearchTree object.
+     *
+     * @throws NoSuchElementException – if this BinarySearchTree object is
+     * empty.
+     */
+    @Override
+    public E first() {
+        Entry<E> e = getFirstEntry();
+        if (e == null) {
+            throw new NoSuchElementException();
+        }
+        return e.element;
+    } // method first
+
+    /**
+     * Returns the largest element in this BinarySearchTree object. The
+     * worstTime(n) is O(n) and averageTime(n) is O(log n).
+     *
+     * @return the largest element in this BinarySearchTree object.
+     *
+     * @throws NoSuchElementException – if this BinarySearchTree object is
+     * empty.
+     */
+    @Override
+    public E last() {
+        Entry<E> e = getLastEntry();
+        if (e == null) {
+            throw new NoSuchElementException();
+        }
+        return e.element;
+    } // method last
+
+    /**
+     * Returns the largest element in this BinarySearchTree object that is
+     * less than a specified element, or null if there is none. The
+     * worstTime(n) is O(n) and averageTime(n) is O(log n).
+     *
+     * @param element – the element to compare with.
+     *
+     * @return the largest element less than element, or null.
+     *
+     * @throws ClassCastException – if element cannot be compared to the
+     * elements of this BinarySearchTree object.
+     * @throws NullPointerException – if element is null.
+     */
+    @Override
+    public E lower(E element) {
+        return elementOf(getLowerEntry(element));
+    } // method lower
+
+    /**
+     * Returns the largest element in this BinarySearchTree object that is
+     * less than or equal to a specified element, or null if there is none.
+     * The worstTime(n) is O(n) and averageTime(n) is O(log n).
+     *
+     * @param element – the element to compare with.
+     *
+     * @return the largest element less than or equal to element, or null.
+     *
+     * @throws ClassCastException – if element cannot be compared to the
+     * elements of this BinarySearchTree object.
+     * @throws NullPointerException – if element is null.
+     */
+    @Override
+    public E floor(E element) {
+        return elementOf(getFloorEntry(element));
+    } // method floor
+
+    /**
+     * Returns the smallest element in this BinarySearchTree object that is
+     * greater than or equal to a specified element, or null if there is
+     * none. The worstTime(n) is O(n) and averageTime(n) is O(log n).
+     *
+     * @param element – the element to compare with.
+     *
+     * @return the smallest element greater than or equal to element, or
+     * null.
+     *
+     * @throws ClassCastException – if element cannot be compared to the
+     * elements of this BinarySearchTree object.
+     * @throws NullPointerException – if element is null.
+     */
+    @Override
+    public E ceiling(E element) {
+        return elementOf(getCeilingEntry(element));
+    } // method ceiling
+
+    /**
+     * Returns the smallest element in this BinarySearchTree object that is
+     * greater than a specified element, or null if there is none. The
+     * worstTime(n) is O(n) and averageTime(n) is O(log n).
+     *
+     * @param element – the element to compare with.
+     *
+     * @return the smallest element greater than element, or null.
+     *
+     * @throws ClassCastException – if element cannot be compared to the
+     * elements of this BinarySearchTree object.
+     * @throws NullPointerException – if element is null.
+     */
+    @Override
+    public E higher(E element) {
+        return elementOf(getHigherEntry(element));
+    } // method higher
+
+    /**
+     * Removes and returns the smallest element in this BinarySearchTree
+     * object, or returns null if it is empty. The worstTime(n) is O(n) and
+     * averageTime(n) is O(log n).
+     *
+     * @return the smallest element, or null.
+     */
+    @Override
+    public E pollFirst() {
+        Entry<E> e = getFirstEntry();
+        if (e == null) {
+            return null;
+        }
+        E element = e.element;
+        deleteEntry(e);
+        return element;
+    } // method pollFirst
+
+    /**
+     * Removes and returns the largest element in this BinarySearchTree
+     * object, or returns null if it is empty. The worstTime(n) is O(n) and
+     * averageTime(n) is O(log n).
+     *
+     * @return the largest element, or null.
+     */
+    @Override
+    public E pollLast() {
+        Entry<E> e = getLastEntry();
+        if (e == null) {
+            return null;
+        }
+        E element = e.element;
+        deleteEntry(e);
+        return element;
+    } // method pollLast
+
+    /**
+     * Returns a view of the elements of this BinarySearchTree object in
+     * descending order. The view is backed by this tree.
+     *
+     * @return a descending view of this BinarySearchTree object.
+     */
+    @Override
+    public NavigableSet<E> descendingSet() {
+        return new TreeSubSet<E>(this, true, null, true, true, null, true,
+                true);
+    } // method descendingSet
+
+    /**
+     * Returns an iterator over the elements of this BinarySearchTree object
+     * in descending order.
+     *
+     * @return an iterator positioned at the largest element.
+     */
+    @Override
+    public Iterator<E> descendingIterator() {
+        return new RangeIterator(getLastEntry(), null, true);
+    } // method descendingIterator
+
+    /**
+     * Returns a view of the elements of this BinarySearchTree object from
+     * fromElement to toElement. The view is backed by this tree; iterating
+     * over its k elements takes O(log n + k) time on average, beginning with
+     * a single descent to its smallest element.
+     *
+     * @param fromElement – the low end of the view.
+     * @param fromInclusive – true if fromElement is in the view.
+     * @param toElement – the high end of the view.
+     * @param toInclusive – true if toElement is in the view.
+     *
+     * @return a view of the elements in the range.
+     *
+     * @throws IllegalArgumentException – if fromElement is greater than
+     * toElement.
+     * @throws NullPointerException – if fromElement or toElement is null.
+     */
+    @Override
+    public NavigableSet<E> subSet(E fromElement, boolean fromInclusive,
+            E toElement, boolean toInclusive) {
+        return new TreeSubSet<E>(this, false, fromElement, fromInclusive,
+                false, toElement, toInclusive, false);
+    } // method subSet
+
+    /**
+     * Returns a view of the elements of this BinarySearchTree object less
+     * than (or equal to, if inclusive) toElement. The view is backed by this
+     * tree.
+     *
+     * @param toElement – the high end of the view.
+     * @param inclusive – true if toElement is in the view.
+     *
+     * @return a view of the elements below toElement.
+     *
+     * @throws NullPointerException – if toElement is null.
+     */
+    @Override
+    public NavigableSet<E> headSet(E toElement, boolean inclusive) {
+        return new TreeSubSet<E>(this, true, null, true, false, toElement,
+                inclusive, false);
+    } // method headSet
+
+    /**
+     * Returns a view of the elements of this BinarySearchTree object greater
+     * than (or equal to, if inclusive) fromElement. The view is backed by
+     * this tree.
+     *
+     * @param fromElement – the low end of the view.
+     * @param inclusive – true if fromElement is in the view.
+     *
+     * @return a view of the elements above fromElement.
+     *
+     * @throws NullPointerException – if fromElement is null.
+     */
+    @Override
+    public NavigableSet<E> tailSet(E fromElement, boolean inclusive) {
+        return new TreeSubSet<E>(this, false, fromElement, inclusive, true,
+                null, true, false);
+    } // method tailSet
+
+    @Override
+    public SortedSet<E> subSet(E fromElement, E toElement) {
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public SortedSet<E> headSet(E toElement) {
+        return headSet(toElement, false);
+    }
+
+    @Override
+    public SortedSet<E> tailSet(E fromElement) {
+        return tailSet(fromElement, true);
+    }
+
+    /**
+     * Returns an iterator over the elements of this BinarySearchTree object
+     * that lie between two bounds. It finds the Entry at each end of the
+     * range with one descent from the root, then follows successor (or
+     * predecessor) links from one to the other. The worstTime(n) is O(n),
+     * and averageTime(n) is O(log n) to start and constant per element.
+     *
+     * @param lo – the low end of the range, or null for no low end.
+     * @param loInclusive – true if lo itself is in the range.
+     * @param hi – the high end of the range, or null for no high end.
+     * @param hiInclusive – true if hi itself is in the range.
+     * @param descending – true to iterate from hi down to lo.
+     *
+     * @return an iterator over the elements in the range.
+     */
+    @Override
+    public Iterator<E> rangeIterator(E lo, boolean loInclusive, E hi,
+            boolean hiInclusive, boolean descending) {
+        Entry<E> lowest = (lo == null) ? getFirstEntry()
+                : loInclusive ? getCeilingEntry(lo) : getHigherEntry(lo);
+        Entry<E> highest = (hi == null) ? getLastEntry()
+                : hiInclusive ? getFloorEntry(hi) : getLowerEntry(hi);
+        if (lowest == null || highest == null
+                || compare(lowest.element, highest.element) > 0) {
+            return new RangeIterator(null, null, descending);
+        }
+        return descending
+                ? new RangeIterator(highest, predecessor(lowest), true)
+                : new RangeIterator(lowest, successor(highest), false);
+    } // method rangeIterator
+
+    /**
+     * Returns an iterator positioned at the smallest element in this
+     * BinarySearchTree object.
+     *
+     * @return an iterator positioned at the smallest element (according to the
+     * element class’s implementation of the Comparable interface) in this
      * BinarySearchTree object.
      */
     @Override
@@ -392,4 +1669,415 @@ public class BinarySearchTree<E> extends AbstractSet<E> {
             lastReturned = null;
         } // method remove
     }
+
+    protected class RangeIterator implements Iterator<E> {
+
+        protected Entry<E> lastReturned = null,
+                next;
+
+        // The element just past the end of the range, or null for the end of
+        // the tree. It is held by element rather than by Entry because
+        // deleteEntry may move an element into another Entry.
+        protected final E fenceElement;
+        protected final boolean descending;
+
+        /**
+         * Positions this RangeIterator at first, to stop at the Entry that
+         * holds the element of fence.
+         */
+        protected RangeIterator(Entry<E> first, Entry<E> fence,
+                boolean descending) {
+            next = first;
+            fenceElement = (fence == null) ? null : fence.element;
+            this.descending = descending;
+        } // constructor
+
+        @Override
+        public boolean hasNext() {
+            return next != null && next.element != fenceElement;
+        } // method hasNext
+
+        @Override
+        public E next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            lastReturned = next;
+            next = descending ? predecessor(next) : successor(next);
+            return lastReturned.element;
+        } // method next
+
+        @Override
+        public void remove() {
+            if (lastReturned == null) {
+                throw new IllegalStateException();
+            }
+            // When going up, deleting an Entry with two children moves its
+            // successor's element, the next one, into it.
+            if (!descending && lastReturned.left != null
+                    && lastReturned.right != null) {
+                next = lastReturned;
+            }
+            deleteEntry(lastReturned);
+            lastReturned = null;
+        } // method remove
+    } // class RangeIterator
+
+    /**
+     * Returns a Cursor over this BinarySearchTree object, on no element
+     * until it is moved there by seek.
+     *
+     * @return a Cursor over this BinarySearchTree object.
+     */
+    public Cursor<E> cursor() {
+        return new TreeCursor();
+    } // method cursor
+
+    protected class TreeCursor implements Cursor<E> {
+
+        // The Entry this TreeCursor is on, or null if it is on no element,
+        // and the element it was on, kept in case the Entry is unlinked.
+        protected Entry<E> current;
+        protected E element;
+
+        // Where the next seek starts: current, or the last Entry reached if
+        // that was none, or null for the root.
+        protected Entry<E> finger;
+
+        protected int expectedModCount = modCount;
+
+        /**
+         * Moves this TreeCursor to the smallest element greater than or
+         * equal to key, climbing from where it is (or was last) only as far
+         * as the nearest ancestor whose subtree can hold key, and then
+         * descending. The worstTime(n) is O(n), and averageTime(n) is
+         * O(log d), where d is the number of elements between key and the
+         * element this TreeCursor was on.
+         */
+        @Override
+        public boolean seek(E key) {
+            if (key == null) {
+                throw new NullPointerException();
+            }
+            if (expectedModCount != modCount) {
+                finger = null;
+                expectedModCount = modCount;
+            }
+            Entry<E> x = (finger == null) ? root
+                    : (compare(key, finger.element) >= 0)
+                    ? climb(finger, key) : climbBack(finger, key);
+            Entry<E> last = null, ceiling = null;
+            while (x != null) {
+                last = x;
+                int comp = compare(key, x.element);
+                if (comp < 0) {
+                    ceiling = x;
+                    x = x.left;
+                } else if (comp > 0) {
+                    x = x.right;
+                } else {
+                    ceiling = x;
+                    break;
+                }
+            } // while
+// If the descent from below the root found nothing, the ceiling is the
+// ancestor climb stopped under.
+            if (ceiling == null) {
+                ceiling = successor(last);
+            }
+            moveTo(ceiling, last);
+            return current != null;
+        } // method seek
+
+        /**
+         * Moves this TreeCursor to the successor of the Entry it is on. The
+         * worstTime(n) is O(n) and averageTime(n) is constant, or O(log n)
+         * if the tree has changed since this TreeCursor last moved.
+         */
+        @Override
+        public boolean next() {
+            if (current == null) {
+                return false;
+            }
+            Entry<E> e = (expectedModCount == modCount) ? successor(current)
+                    : getHigherEntry(element);
+            moveTo(e, current);
+            return current != null;
+        } // method next
+
+        /**
+         * Moves this TreeCursor to the predecessor of the Entry it is on. The
+         * worstTime(n) is O(n) and averageTime(n) is constant, or O(log n)
+         * if the tree has changed since this TreeCursor last moved.
+         */
+        @Override
+        public boolean prev() {
+            if (current == null) {
+                return false;
+            }
+            Entry<E> e = (expectedModCount == modCount) ? predecessor(current)
+                    : getLowerEntry(element);
+            moveTo(e, current);
+            return current != null;
+        } // method prev
+
+        @Override
+        public E element() {
+            if (current == null) {
+                throw new NoSuchElementException();
+            }
+            return element;
+        } // method element
+
+        /*
+         * Puts this TreeCursor on e, or on no element if e is null, in which
+         * case the next seek starts from near.
+         */
+        private void moveTo(Entry<E> e, Entry<E> near) {
+            if (expectedModCount != modCount) {
+                near = null;
+                expectedModCount = modCount;
+            }
+            current = e;
+            element = (e == null) ? null : e.element;
+            finger = (e == null) ? near : e;
+        } // method moveTo
+    } // class TreeCursor
+
+    /**
+     * Performs an action on each element of this BinarySearchTree object, in
+     * ascending order. Unlike iteration, it never calls successor or climbs
+     * parent links: it keeps the entries still to come on one stack, so each
+     * Entry is reached twice, and the stack is kept by the tree between
+     * calls, so that it allocates nothing. The worstTime(n) is O(n).
+     *
+     * @param action – the action to perform on each element.
+     *
+     * @throws ConcurrentModificationException – if action changes this
+     * BinarySearchTree object.
+     * @throws NullPointerException – if action is null.
+     */
+    @Override
+    public void forEach(Consumer<? super E> action) {
+        Objects.requireNonNull(action);
+        Entry<E> first = getFirstEntry();
+        if (first != null) {
+            walk(first, getLastEntry(), action);
+        }
+    } // method forEach
+
+    /**
+     * Performs an action on each element of this BinarySearchTree object
+     * that lies between two bounds, in ascending order. It descends to the
+     * Entry at each end of the range and then walks the tree between them
+     * with a stack, as forEach does. The worstTime(n) is O(n), and
+     * averageTime(n) is O(log n + k) for k elements in the range.
+     *
+     * @param lo – the low end of the range, or null for no low end.
+     * @param loInclusive – true if lo itself is in the range.
+     * @param hi – the high end of the range, or null for no high end.
+     * @param hiInclusive – true if hi itself is in the range.
+     * @param action – the action to perform on each element in the range.
+     *
+     * @throws ClassCastException – if lo or hi cannot be compared to the
+     * elements of this BinarySearchTree object.
+     * @throws ConcurrentModificationException – if action changes this
+     * BinarySearchTree object.
+     * @throws NullPointerException – if action is null.
+     */
+    @Override
+    public void forEachInRange(E lo, boolean loInclusive, E hi,
+            boolean hiInclusive, Consumer<? super E> action) {
+        Objects.requireNonNull(action);
+        Entry<E> lowest = (lo == null) ? getFirstEntry()
+                : loInclusive ? getCeilingEntry(lo) : getHigherEntry(lo);
+        Entry<E> highest = (hi == null) ? getLastEntry()
+                : hiInclusive ? getFloorEntry(hi) : getLowerEntry(hi);
+        if (lowest != null && highest != null
+                && compare(lowest.element, highest.element) <= 0) {
+            walk(lowest, highest, action);
+        }
+    } // method forEachInRange
+
+    /*
+     * Performs action on the elements from first to last, in ascending
+     * order. The stack holds the entries whose elements are still to come
+     * and whose right subtrees have not been entered, nearest on top: each
+     * Entry is pushed once on the way down and visited once when it is
+     * popped, and the walk never climbs parent links. It starts with the
+     * ancestors of first that lie to its right.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private void walk(Entry<E> first, Entry<E> last,
+            Consumer<? super E> action) {
+        int expectedModCount = modCount;
+        Entry<E>[] stack = walkStack.getAndSet(null);
+        if (stack == null) {
+            stack = new Entry[WALK_STACK_SIZE];
+        }
+        int depth = 0;
+        try {
+            for (Entry<E> c = first, a = first.parent; a != null;
+                    c = a, a = a.parent) {
+                if (a.left == c) {
+                    if (depth == stack.length) {
+                        stack = Arrays.copyOf(stack, depth * 2);
+                    }
+                    stack[depth++] = a;
+                }
+            } // for
+            // put the nearest ancestor on top
+            for (int i = 0, j = depth - 1; i < j; i++, j--) {
+                Entry<E> swap = stack[i];
+                stack[i] = stack[j];
+                stack[j] = swap;
+            }
+            Entry<E> p = first;
+            for (;;) {
+                action.accept(p.element);
+                if (expectedModCount != modCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (p == last) {
+                    return;
+                }
+                for (Entry<E> q = p.right; q != null; q = q.left) {
+                    if (depth == stack.length) {
+                        stack = Arrays.copyOf(stack, depth * 2);
+                    }
+                    stack[depth++] = q;
+                }
+                p = stack[--depth];
+            } // for
+        } finally {
+            // Drop the entries left on the stack, which may be removed
+            // later, before handing it back.
+            Arrays.fill(stack, 0, depth, null);
+            walkStack.set(stack);
+        }
+    } // method walk
+
+    /**
+     * Returns a Spliterator over the elements in this BinarySearchTree
+     * object, in ascending order. It splits at subtree roots: the first
+     * split hands the left subtree of the root to a new Spliterator and
+     * keeps the root and its right subtree, and so on down the tree, so
+     * parallel streams over a balanced tree divide the work evenly. It is
+     * SIZED until the first split, and always DISTINCT, SORTED and ORDERED,
+     * with the Comparator of this tree.
+     *
+     * @return a Spliterator over the elements of this BinarySearchTree
+     * object.
+     */
+    @Override
+    public Spliterator<E> spliterator() {
+        return new TreeSpliterator(null, null, 0, -1);
+    } // method spliterator
+
+    protected class TreeSpliterator implements Spliterator<E> {
+
+        // The Entry of the next element to be returned (null until the
+        // spliterator is first used) and the Entry of the first element
+        // that belongs to someone else (null for the end of the tree).
+        protected Entry<E> current, fence;
+
+        // Which part of the tree this spliterator holds: 0 for all of it,
+        // 1 for the part starting at a subtree root it split off, -1 for
+        // the part ending at one.
+        protected int side;
+
+        // The number of elements left, exact while side is 0 and estimated
+        // afterwards; -1 until the spliterator is first used.
+        protected int est;
+
+        /**
+         * Initializes this TreeSpliterator object to cover the elements from
+         * origin up to, but not including, fence.
+         */
+        protected TreeSpliterator(Entry<E> origin, Entry<E> fence, int side,
+                int est) {
+            this.current = origin;
+            this.fence = fence;
+            this.side = side;
+            this.est = est;
+        } // constructor
+
+        private int getEstimate() {
+            if (est < 0) {
+                est = size;
+                current = root;
+                if (current != null) {
+                    while (current.left != null) {
+                        current = current.left;
+                    }
+                }
+            }
+            return est;
+        }
+
+        @Override
+        public Spliterator<E> trySplit() {
+            getEstimate();
+            int d = side;
+            Entry<E> e = current, f = fence;
+            Entry<E> s = (e == null || e == f) ? null                          //empty
+                    : (d == 0) ? root                                           //was all of the tree
+                    : (d > 0) ? e.right                                         //was the right part
+                    : (f != null) ? f.left                                      //was the left part
+                    : null;
+            if (s != null && s != e && s != f
+                    && compare(e.element, s.element) < 0) {                     //e not already past s
+                side = 1;
+                est >>>= 1;
+                current = s;
+                return new TreeSpliterator(e, s, -1, est);
+            }
+            return null;
+        } // method trySplit
+
+        @Override
+        public boolean tryAdvance(Consumer<? super E> action) {
+            if (action == null) {
+                throw new NullPointerException();
+            }
+            getEstimate();
+            Entry<E> e = current;
+            if (e == null || e == fence) {
+                return false;
+            }
+            current = successor(e);
+            action.accept(e.element);
+            return true;
+        } // method tryAdvance
+
+        @Override
+        public void forEachRemaining(Consumer<? super E> action) {
+            if (action == null) {
+                throw new NullPointerException();
+            }
+            getEstimate();
+            Entry<E> f = fence, e = current;
+            current = f;
+            for (; e != null && e != f; e = successor(e)) {
+                action.accept(e.element);
+            }
+        } // method forEachRemaining
+
+        @Override
+        public long estimateSize() {
+            return getEstimate();
+        }
+
+        @Override
+        public int characteristics() {
+            return (side == 0 ? Spliterator.SIZED : 0) | Spliterator.DISTINCT
+                    | Spliterator.SORTED | Spliterator.ORDERED
+                    | Spliterator.NONNULL;
+        }
+
+        @Override
+        public Comparator<? super E> getComparator() {
+            return comparator;
+        }
+    } // class TreeSpliterator
 }
@@ -2,18 +2,25 @@
 import java.util.AbstractSet;
 import java.util.Iterator;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.ConcurrentModificationException;
-import java.util.LinkedList;
+import java.util.List;
+import java.util.NavigableSet;
 import java.util.NoSuchElementException;
-import java.util.Queue;
+import java.util.Objects;
 import java.util.Set;
+import java.util.SortedSet;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 /**
  *
  * @param <E>
  * @authors B00308929 && B00308927
  */
-public class BinarySearchTreeArray<E> extends AbstractSet<E> {
+public class BinarySearchTreeArray<E> extends AbstractSet<E>
+        implements NavigableTree<E> {
 
     protected Entry<E>[] tree;
     int root, size;
@@ -21,10 +28,58 @@ public class BinarySearchTreeArray<E> extends AbstractSet<E> {
     protected static final int NIL = -1;
     protected static final int DEFAULT_SIZE = 16;
 
-    // The freeList is a queue of array positions that have been
+    // The initial depth of the stack used by forEach; it grows if the tree
+    // is deeper. A balanced tree of 2^31 elements is at most 45 levels high.
+    private static final int WALK_STACK_SIZE = 64;
+
+    // The stack forEach walks with, kept between calls so that a walk
+    // allocates nothing. A walk takes it out and puts it back when done;
+    // a walk that finds it out, because it was started from the action of
+    // another or in another thread, makes a stack of its own.
+    private final AtomicReference<int[]> walkStack =
+            new AtomicReference<int[]>();
+
+    // The ordering of this tree, or null for the natural ordering of the
+    // elements (their Comparable interface).
+    protected final Comparator<? super E> comparator;
+
+    // The freeList is a stack of array positions that have been
     // emptied through the removal of an element and are now available
     // to store a new element as suggested in Richard Beeby's code.
-    protected Queue<Integer> freeList = new LinkedList<>();
+    // It is kept as a plain int array with freeCount as its top, so
+    // that freeing and reusing a slot never boxes or allocates.
+    protected int[] freeList = new int[DEFAULT_SIZE];
+    protected int freeCount = 0;
+
+    // The array position of the Entry the last call to deleteEntry moved,
+    // and the position it moved to, or NIL if it moved none, so that an
+    // iterator can follow its next Entry without a search.
+    protected int movedFrom = NIL, movedTo = NIL;
+
+    // remove(Object) compacts the tree as soon as more than this fraction
+    // of the array positions in use are on the freeList; 1.0 means never.
+    protected double compactionThreshold = 1.0;
+
+    // The optional lookup cache in front of getEntry, off while cacheKeys is
+    // null: a 2-way set-associative table of recent lookups, misses (NIL) as
+    // well as hits. Set s is slots 2s and 2s + 1, and cacheRecent[s] is the
+    // way of it used last, so the other one is evicted. A slot is good only
+    // while cacheStamps holds the modCount it was filled under, so that every
+    // add, removal or compaction invalidates the table at once.
+    private Object[] cacheKeys;
+    private int[] cachePositions, cacheHashes, cacheStamps;
+    private byte[] cacheRecent;
+    private long cacheHits, cacheMisses;
+
+    // The optional Bloom filter in front of getEntry, off while filterBits
+    // is null. It is split into blocks of 512 bits, one cache line each, and
+    // the filterHashes bits of an element all fall in the block its hash
+    // code picks, so that a lookup touches a single line. It has
+    // filterBitsPerKey bits for each of filterCapacity elements, twice the
+    // size of the tree when it was last built, and is rebuilt once the tree
+    // outgrows that. Removals leave their bits set.
+    private long[] filterBits;
+    private int filterBlocks, filterBitsPerKey, filterHashes, filterCapacity;
 
     protected static class Entry<E> {
 
@@ -73,6 +128,18 @@ public class BinarySearchTreeArray<E> extends AbstractSet<E> {
         this(DEFAULT_SIZE);
     }//default constructor
 
+    /**
+     * Initializes this BinarySearchTreeArray object to be empty, to contain
+     * only elements of type E, to be ordered by a specified Comparator, and
+     * to contain no duplicate elements.
+     *
+     * @param comparator - the Comparator that will order the elements of this
+     * BinarySearchTreeArray object, or null for their natural ordering.
+     */
+    public BinarySearchTreeArray(Comparator<? super E> comparator) {
+        this(DEFAULT_SIZE, comparator);
+    }
+
     /**
      * Initialises this BinarySearchTreeArray object to be empty, with a
      * specified initial capacity.
@@ -83,10 +150,27 @@ public class BinarySearchTreeArray<E> extends AbstractSet<E> {
      * @throws IllegalArgumentException - if capacity is non-positive
      */
     public BinarySearchTreeArray(int capacity) {
+        this(capacity, null);
+    }
+
+    /**
+     * Initialises this BinarySearchTreeArray object to be empty, with a
+     * specified initial capacity and ordering.
+     *
+     * @param capacity - the initial capacity of this BinarySearchTreeArray
+     * object.
+     * @param comparator - the Comparator that will order the elements of this
+     * BinarySearchTreeArray object, or null for their natural ordering.
+     *
+     * @throws IllegalArgumentException - if capacity is non-positive
+     */
+    public BinarySearchTreeArray(int capacity,
+            Comparator<? super E> comparator) {
         if (capacity < 1) {
             throw new IllegalArgumentException("Non-positive capacity: "
                     + capacity);
         }
+        this.comparator = comparator;
         root = NIL;
         size = 0;
         modCount = 0;
@@ -100,8 +184,10 @@ public class BinarySearchTreeArray<E> extends AbstractSet<E> {
      * @param otherTree the specified BinarySearchTreeArray object that this
      * BinarySearchTreeArray object will be assigned a copy of.
      */
+    @SuppressWarnings("unchecked")
     public BinarySearchTreeArray(
             BinarySearchTreeArray<? extends E> otherTree) {
+        comparator = (Comparator<? super E>) otherTree.comparator;
         root = otherTree.root;
         modCount = 0;
         size = otherTree.size;
@@ -114,7 +200,186 @@ public class BinarySearchTreeArray<E> extends AbstractSet<E> {
                 tree[i].right = current.right;
             }
         }
+        freeList = Arrays.copyOf(otherTree.freeList,
+                Math.max(otherTree.freeCount, DEFAULT_SIZE));
+        freeCount = otherTree.freeCount;
+        compactionThreshold = otherTree.compactionThreshold;
     } // copy constructor
+
+    /**
+     * Returns a BinarySearchTreeArray object that contains the elements of a
+     * specified array, which must already be in strictly ascending order.
+     * The tree is built perfectly balanced in one pass over the array, with
+     * no comparisons. The worstTime(n) is O(n).
+     *
+     * @param sorted - the elements, in strictly ascending order.
+     *
+     * @return a balanced BinarySearchTreeArray containing the elements of
+     * sorted.
+     *
+     * @throws NullPointerException - if sorted or any of its elements is null.
+     */
+    public static <E> BinarySearchTreeArray<E> fromSorted(E[] sorted) {
+        return fromSorted(sorted, false);
+    }
+
+    /**
+     * Returns a BinarySearchTreeArray object that contains the elements of a
+     * specified array, which must already be in strictly ascending order.
+     * The worstTime(n) is O(n).
+     *
+     * @param sorted - the elements, in strictly ascending order.
+     * @param verifyOrder - if true, each element is compared with the one
+     * before it to check the order; if false, no comparisons are made and
+     * out-of-order input gives a tree that does not find its elements.
+     *
+     * @return a balanced BinarySearchTreeArray containing the elements of
+     * sorted.
+     *
+     * @throws IllegalArgumentException - if verifyOrder is true and sorted is
+     * not in strictly ascending order.
+     * @throws NullPointerException - if sorted or any of its elements is null.
+     */
+    public static <E> BinarySearchTreeArray<E> fromSorted(E[] sorted,
+            boolean verifyOrder) {
+        return fromSorted(Arrays.asList(sorted).iterator(), sorted.length,
+                verifyOrder);
+    }
+
+    /**
+     * Returns a BinarySearchTreeArray object that contains the elements of a
+     * specified List, which must already be in strictly ascending order.
+     * The worstTime(n) is O(n).
+     *
+     * @param sorted - the elements, in strictly ascending order.
+     *
+     * @return a balanced BinarySearchTreeArray containing the elements of
+     * sorted.
+     *
+     * @throws NullPointerException - if sorted or any of its elements is null.
+     */
+    public static <E> BinarySearchTreeArray<E> fromSorted(
+            List<? extends E> sorted) {
+        return fromSorted(sorted, false);
+    }
+
+    /**
+     * Returns a BinarySearchTreeArray object that contains the elements of a
+     * specified List, which must already be in strictly ascending order.
+     * The worstTime(n) is O(n).
+     *
+     * @param sorted - the elements, in strictly ascending order.
+     * @param verifyOrder - if true, each element is compared with the one
+     * before it to check the order.
+     *
+     * @return a balanced BinarySearchTreeArray containing the elements of
+     * sorted.
+     *
+     * @throws IllegalArgumentException - if verifyOrder is true and sorted is
+     * not in strictly ascending order.
+     * @throws NullPointerException - if sorted or any of its elements is null.
+     */
+    public static <E> BinarySearchTreeArray<E> fromSorted(
+            List<? extends E> sorted, boolean verifyOrder) {
+        return fromSorted(sorted.iterator(), sorted.size(), verifyOrder);
+    }
+
+    /**
+     * Returns a BinarySearchTreeArray object that contains the next size
+     * elements of a specified Iterator, which must deliver them in strictly
+     * ascending order. The elements are read exactly once, in order, so the
+     * Iterator may stream them from a file or another tree. The worstTime(n)
+     * is O(n).
+     *
+     * @param sorted - the source of the elements, in strictly ascending order.
+     * @param size - the number of elements to read from sorted.
+     * @param verifyOrder - if true, each element is compared with the one
+     * before it to check the order.
+     *
+     * @return a balanced BinarySearchTreeArray containing the elements read.
+     *
+     * @throws IllegalArgumentException - if size is negative, or if
+     * verifyOrder is true and the elements are not in strictly ascending
+     * order.
+     * @throws NoSuchElementException - if sorted has fewer than size elements.
+     * @throws NullPointerException - if sorted or any of its elements is null.
+     */
+    public static <E> BinarySearchTreeArray<E> fromSorted(
+            Iterator<? extends E> sorted, int size, boolean verifyOrder) {
+        return fromSorted(sorted, size, null, verifyOrder);
+    }
+
+    /**
+     * Returns a BinarySearchTreeArray object, ordered by a specified
+     * Comparator, that contains the next size elements of a specified
+     * Iterator, which must deliver them in strictly ascending order according
+     * to that Comparator. The worstTime(n) is O(n).
+     *
+     * @param sorted - the source of the elements, in strictly ascending order.
+     * @param size - the number of elements to read from sorted.
+     * @param comparator - the ordering of the new tree, or null for the
+     * natural ordering of the elements.
+     * @param verifyOrder - if true, each element is compared with the one
+     * before it to check the order.
+     *
+     * @return a balanced BinarySearchTreeArray containing the elements read.
+     *
+     * @throws IllegalArgumentException - if size is negative, or if
+     * verifyOrder is true and the elements are not in strictly ascending
+     * order.
+     * @throws NoSuchElementException - if sorted has fewer than size elements.
+     * @throws NullPointerException - if sorted or any of its elements is null.
+     */
+    public static <E> BinarySearchTreeArray<E> fromSorted(
+            Iterator<? extends E> sorted, int size,
+            Comparator<? super E> comparator, boolean verifyOrder) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Negative size: " + size);
+        }
+        BinarySearchTreeArray<E> result
+                = new BinarySearchTreeArray<>(Math.max(size, 1), comparator);
+        result.buildFromSorted(sorted, size, verifyOrder);
+        return result;
+    }
+
+    /*
+     * Fills this empty tree with size elements taken in order from sorted.
+     * The i-th smallest element goes into array position i, and each range
+     * of positions is rooted at its middle one, so the tree comes out
+     * perfectly balanced and the positions are filled in a single pass.
+     */
+    protected void buildFromSorted(Iterator<? extends E> sorted, int size,
+            boolean verifyOrder) {
+        if (tree.length < size) {
+            resize(size);
+        }
+        root = buildFromSorted(0, size - 1, NIL, sorted, verifyOrder);
+        this.size = size;
+        modCount++;
+    }
+
+    private int buildFromSorted(int lo, int hi, int parent,
+            Iterator<? extends E> sorted, boolean verifyOrder) {
+        if (lo > hi) {
+            return NIL;
+        }
+        int mid = (lo + hi) >>> 1;
+        Entry<E> entry = new Entry<>(null, parent);
+        tree[mid] = entry;
+        entry.left = buildFromSorted(lo, mid - 1, mid, sorted, verifyOrder);
+        E element = sorted.next();
+        if (element == null) {
+            throw new NullPointerException();
+        }
+        if (verifyOrder && mid > 0
+                && compare(tree[mid - 1].element, element) >= 0) {
+            throw new IllegalArgumentException("Not in strictly ascending "
+                    + "order: " + tree[mid - 1].element + ", " + element);
+        }
+        entry.element = element;
+        entry.right = buildFromSorted(mid + 1, hi, mid, sorted, verifyOrder);
+        return mid;
+    }
     
     /**
      * Returns true if obj is an instance of Set with the same elements as this
@@ -165,8 +430,9 @@ public class BinarySearchTreeArray<E> extends AbstractSet<E> {
     // the project specification suggested a display method).
     protected void displayTreeArray() {
         System.out.println("\nLength = " + tree.length + ", size = " + size
-                + ", listSize = " + freeList.size());
-        System.out.println("List = " + freeList);
+                + ", listSize = " + freeCount);
+        System.out.println("List = "
+                + Arrays.toString(Arrays.copyOf(freeList, freeCount)));
         System.out.println(Arrays.toString(tree));
         System.out.println("\n");
     }
@@ -197,7 +463,7 @@ public class BinarySearchTreeArray<E> extends AbstractSet<E> {
             return false;
         }
         Entry temp = e;
-        comp = ((Comparable) obj).compareTo(e.element);
+        comp = compare(obj, e.element);
         if (comp == 0) {
             return true;
         }
@@ -230,56 +496,430 @@ public class BinarySearchTreeArray<E> extends AbstractSet<E> {
      *
      */
     @Override
+    @SuppressWarnings("unchecked")
     public boolean add(E element) {
         if (element == null) {
             throw new NullPointerException();
         }
         if (this.size == tree.length) {
-            tree = Arrays.copyOf(tree, (tree.length * 2));
+            resize(tree.length * 2);
         }
+        int nextSlot = nextSlot();
         if (root == NIL) {
-            root = 0;
+            if (comparator != null) {
+                comparator.compare(element, element);                          //type check
+            }
+            root = nextSlot;
             tree[root] = new Entry(element, NIL);
-            size++;
-            modCount++;
-            return true;
         } else {
-            int parent = root;
-            int comp, nextSlot;
-            Entry<E> temp = tree[root];
-            if (freeList.size() > 0) {
-                nextSlot = freeList.peek();
+            int parent, comp, e = root;
+            // One descent loop per kind of ordering, so that each has a
+            // single comparison call site.
+            Comparator<? super E> cpr = comparator;
+            if (cpr != null) {
+                do {
+                    parent = e;
+                    comp = cpr.compare(element, tree[e].element);
+                    if (comp < 0) {
+                        e = tree[e].left;
+                    } else if (comp > 0) {
+                        e = tree[e].right;
+                    } else {
+                        return false;
+                    }
+                } while (e != NIL);
             } else {
-                nextSlot = size;
+                Comparable<? super E> key = (Comparable<? super E>) element;
+                do {
+                    parent = e;
+                    comp = key.compareTo(tree[e].element);
+                    if (comp < 0) {
+                        e = tree[e].left;
+                    } else if (comp > 0) {
+                        e = tree[e].right;
+                    } else {
+                        return false;
+                    }
+                } while (e != NIL);
             }
-            boolean found = false;
-            while (!found) {
-                comp = ((Comparable) element).compareTo(temp.element);
-                if (comp == 0) {
-                    return false;
-                }
+            if (comp < 0) {
+                tree[parent].left = nextSlot;
+            } else {
+                tree[parent].right = nextSlot;
+            }
+            tree[nextSlot] = new Entry<>(element, parent);
+        }
+        if (freeCount > 0) {
+            freeCount--;                                                        //nextSlot came off the top of the freeList
+        }
+        size++;
+        modCount++;
+        fixAfterInsertion(nextSlot);
+        addToFilter(element);
+        return true;
+    }
+
+    /**
+     * Restores the shape of this BinarySearchTreeArray object after a new
+     * Entry has been linked in as a leaf. A plain BinarySearchTreeArray does
+     * no rebalancing, so this method does nothing; balanced subclasses
+     * override it.
+     *
+     * @param x - the array position of the Entry that has just been inserted.
+     */
+    protected void fixAfterInsertion(int x) {
+    }
+
+    /**
+     * Ensures that this BinarySearchTreeArray object contains every element
+     * of a specified array. The elements are sorted first, unless they are
+     * in ascending order already, and each search then starts not from the
+     * root but from where the search for the one before it ended, climbing
+     * only as far as the nearest ancestor whose subtree holds the next
+     * element. Consecutive elements of a large batch are close together in
+     * the tree, so most searches take a few steps. The worstTime(n, m) is
+     * O(m log m + m n), and averageTime(n, m) is O(m log m + m log(n / m + 1)).
+     *
+     * @param batch - the elements to add; the array itself is not changed.
+     *
+     * @return true - if this BinarySearchTreeArray object changed as a result
+     * of this method call; otherwise, return false.
+     *
+     * @throws ClassCastException - if an element cannot be compared to the
+     * elements of this BinarySearchTreeArray object.
+     * @throws NullPointerException - if batch or any of its elements is null.
+     */
+    public boolean addAllSorted(E[] batch) {
+        E[] keys = batch;
+        for (int i = 1; i < keys.length; i++) {
+            if (compare(keys[i - 1], keys[i]) > 0) {
+                keys = batch.clone();
+                Arrays.sort(keys, comparator);
+                break;
+            }
+        } // for
+        boolean changed = false;
+        int finger = NIL;
+        for (E key : keys) {
+            if (key == null) {
+                throw new NullPointerException();
+            }
+            if (root == NIL) {
+                changed |= add(key);
+                finger = root;
+                continue;
+            }
+            int x = (finger == NIL) ? root : climb(finger, key), parent, comp;
+            do {
+                parent = x;
+                comp = compare(key, tree[x].element);
                 if (comp < 0) {
-                    if (temp.left != NIL) {
-                        parent = temp.left;
-                        temp = tree[parent];
-                    } else {
-                        temp.left = nextSlot;
-                        found = true;
-                    }// temp.left ==NIL
-                } else if (temp.right != NIL) {
-                    parent = temp.right;
-                    temp = tree[parent];
+                    x = tree[x].left;
+                } else if (comp > 0) {
+                    x = tree[x].right;
                 } else {
-                    temp.right = nextSlot;
-                    found = true;
-                }// temp.right == NIL
-            }//while
-            tree[nextSlot] = new Entry<>(element, parent);
+                    break;
+                }
+            } while (x != NIL);
+            if (comp == 0) {
+                finger = parent;
+                continue;
+            }
+            if (size == tree.length) {
+                resize(tree.length * 2);
+            }
+            int slot = nextSlot();
+            if (comp < 0) {
+                tree[parent].left = slot;
+            } else {
+                tree[parent].right = slot;
+            }
+            tree[slot] = new Entry<>(key, parent);
+            if (freeCount > 0) {
+                freeCount--;                                                    //slot came off the top of the freeList
+            }
             size++;
-            freeList.poll();
             modCount++;
-            return true;
+            fixAfterInsertion(slot);
+            addToFilter(key);
+            finger = slot;
+            changed = true;
+        } // for
+        return changed;
+    }
+
+    /**
+     * Determines, for each element of a specified array, whether this
+     * BinarySearchTreeArray object contains it. As in addAllSorted, the
+     * elements are searched for in ascending order, each search starting
+     * from where the one before it ended; if they are not in ascending order
+     * already, their positions are sorted by element first, so that out
+     * still lines up with sorted. The worstTime(n, m) is O(m log m + m n),
+     * and averageTime(n, m) is O(m log m + m log(n / m + 1)).
+     *
+     * @param sorted - the elements to look for, best in ascending order;
+     * the array itself is not changed.
+     * @param out - the array in which out[i] is set to true if sorted[i] is
+     * in this BinarySearchTreeArray object, and to false otherwise.
+     *
+     * @return true - if every element of sorted is in this
+     * BinarySearchTreeArray object; otherwise, return false.
+     *
+     * @throws ClassCastException - if an element cannot be compared to the
+     * elements of this BinarySearchTreeArray object.
+     * @throws IllegalArgumentException - if out is shorter than sorted.
+     * @throws NullPointerException - if sorted, out or any element of sorted
+     * is null.
+     */
+    public boolean containsAll(E[] sorted, boolean[] out) {
+        if (out.length < sorted.length) {
+            throw new IllegalArgumentException("out is shorter than sorted");
+        }
+        int[] order = null;
+        for (int i = 1; i < sorted.length; i++) {
+            if (compare(sorted[i - 1], sorted[i]) > 0) {
+                order = new int[sorted.length];
+                for (int j = 0; j < order.length; j++) {
+                    order[j] = j;
+                }
+                sortWithPositions(sorted.clone(), order);
+                break;
+            }
+        } // for
+        boolean all = true;
+        int finger = NIL;
+        for (int k = 0; k < sorted.length; k++) {
+            int i = (order == null) ? k : order[k];
+            E key = sorted[i];
+            if (key == null) {
+                throw new NullPointerException();
+            }
+            int x = (finger == NIL) ? root : climb(finger, key);
+            boolean found = false;
+            while (x != NIL) {
+                finger = x;
+                int comp = compare(key, tree[x].element);
+                if (comp < 0) {
+                    x = tree[x].left;
+                } else if (comp > 0) {
+                    x = tree[x].right;
+                } else {
+                    found = true;
+                    break;
+                }
+            } // while
+            out[i] = found;
+            all &= found;
+        } // for
+        return all;
+    }
+
+    /*
+     * Sorts keys, in place, into ascending order by the ordering of this
+     * tree, moving each positions[i] along with keys[i], so that containsAll
+     * can sort the positions of its keys without boxing them. A merge
+     * sort, stable and O(m log m) for m keys.
+     */
+    private void sortWithPositions(Object[] keys, int[] positions) {
+        mergeSort(keys.clone(), positions.clone(), keys, positions, 0,
+                keys.length);
+    }
+
+    /*
+     * Sorts the range lo to hi of srcKeys into dstKeys, with the positions
+     * alongside; the two pairs of arrays hold the same entries in that range
+     * on entry, and each level of the recursion sorts its halves into the
+     * other pair and merges them back.
+     */
+    private void mergeSort(Object[] srcKeys, int[] srcPositions,
+            Object[] dstKeys, int[] dstPositions, int lo, int hi) {
+        if (hi - lo < 8) {
+            for (int i = lo + 1; i < hi; i++) {
+                Object key = dstKeys[i];
+                int position = dstPositions[i], j = i;
+                for (; j > lo && compare(dstKeys[j - 1], key) > 0; j--) {
+                    dstKeys[j] = dstKeys[j - 1];
+                    dstPositions[j] = dstPositions[j - 1];
+                }
+                dstKeys[j] = key;
+                dstPositions[j] = position;
+            }
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        mergeSort(dstKeys, dstPositions, srcKeys, srcPositions, lo, mid);
+        mergeSort(dstKeys, dstPositions, srcKeys, srcPositions, mid, hi);
+        for (int i = lo, p = lo, q = mid; i < hi; i++) {
+            if (q >= hi || p < mid && compare(srcKeys[p], srcKeys[q]) <= 0) {
+                dstKeys[i] = srcKeys[p];
+                dstPositions[i] = srcPositions[p++];
+            } else {
+                dstKeys[i] = srcKeys[q];
+                dstPositions[i] = srcPositions[q++];
+            }
+        }
+    }
+
+    /*
+     * Returns the position from which to search for key, which is not less
+     * than the element last searched for from x: x itself, or the nearest
+     * ancestor of x whose subtree holds key. Only the ancestors of which x is
+     * in the left subtree bound it from above, so the walk climbs from one of
+     * those to the next until key is less than its element.
+     */
+    private int climb(int x, E key) {
+        for (;;) {
+            int a = x;
+            while (tree[a].parent != NIL && a == tree[tree[a].parent].right) {
+                a = tree[a].parent;
+            }
+            int upper = tree[a].parent;
+            if (upper == NIL || compare(key, tree[upper].element) < 0) {
+                return x;
+            }
+            x = upper;
+        } // for
+    }
+
+    /*
+     * The mirror image of climb, for a key less than the element at x:
+     * returns x itself, or the nearest ancestor of x whose subtree holds
+     * key, climbing through the ancestors of which x is in the right
+     * subtree until key is greater than one's element.
+     */
+    private int climbBack(int x, E key) {
+        for (;;) {
+            int a = x;
+            while (tree[a].parent != NIL && a == tree[tree[a].parent].left) {
+                a = tree[a].parent;
+            }
+            int lower = tree[a].parent;
+            if (lower == NIL || compare(key, tree[lower].element) > 0) {
+                return x;
+            }
+            x = lower;
+        } // for
+    }
+
+    /*
+     * Grows the tree array to newLength positions. Subclasses that keep
+     * side arrays indexed by array position grow them here as well.
+     */
+    protected void resize(int newLength) {
+        tree = Arrays.copyOf(tree, newLength);
+    }
+
+    /*
+     * Returns the array position the next inserted element will be stored
+     * in: the most recently freed position if there is one, otherwise the
+     * first position past the occupied ones.
+     */
+    protected int nextSlot() {
+        if (freeCount > 0) {
+            return freeList[freeCount - 1];
+        }
+        return size;
+    }
+
+    /*
+     * Pushes an emptied array position onto the freeList.
+     */
+    protected void freeSlot(int slot) {
+        if (freeCount == freeList.length) {
+            freeList = Arrays.copyOf(freeList, freeList.length * 2);
+        }
+        freeList[freeCount++] = slot;
+    }
+
+    /**
+     * Renumbers the Entry objects of this BinarySearchTreeArray object so
+     * that they occupy array positions 0 to size - 1 in ascending order of
+     * their elements, empties the freeList and shrinks the tree array to
+     * size positions. Iteration then walks the array from front to back,
+     * and every subtree occupies a contiguous range of it. Iterators created
+     * before the call must not be used after it. The worstTime(n) is O(n).
+     */
+    public void compact() {
+        int used = size + freeCount;
+        int[] newPosition = new int[used];
+        Arrays.fill(newPosition, NIL);
+        int next = 0;
+        int e = root;
+        if (e != NIL) {
+            while (tree[e].left != NIL) {
+                e = tree[e].left;
+            }
+        }
+        for (; e != NIL; e = successor(e)) {
+            newPosition[e] = next++;
+        }
+        relocate(newPosition, Math.max(size, 1));
+        root = (root == NIL) ? NIL : newPosition[root];
+        freeList = new int[DEFAULT_SIZE];
+        freeCount = 0;
+        modCount++;
+    } // method compact
+
+    /**
+     * Shrinks the tree array of this BinarySearchTreeArray object to size
+     * positions, compacting it first if any positions are on the freeList.
+     * The worstTime(n) is O(n).
+     */
+    public void trimToSize() {
+        if (freeCount > 0) {
+            compact();
+        } else if (tree.length > size) {
+            resize(Math.max(size, 1));
+        }
+    }
+
+    /**
+     * Sets the fraction of free array positions past which remove(Object)
+     * compacts this BinarySearchTreeArray object automatically. With a
+     * threshold of 0.5, for example, the tree is compacted once more than
+     * half of the positions it has used are empty. The default, 1.0, never
+     * compacts.
+     *
+     * @param threshold - the fraction of free positions, greater than 0 and
+     * at most 1.
+     *
+     * @throws IllegalArgumentException - if threshold is not greater than 0
+     * and at most 1.
+     */
+    public void setCompactionThreshold(double threshold) {
+        if (!(threshold > 0 && threshold <= 1)) {
+            throw new IllegalArgumentException("Compaction threshold not in "
+                    + "(0, 1]: " + threshold);
+        }
+        compactionThreshold = threshold;
+    }
+
+    /*
+     * Moves the Entry in each array position p to position newPosition[p]
+     * (NIL for free positions) of a new tree array of newLength positions,
+     * rewriting the left, right and parent indices to match. Subclasses
+     * that keep side arrays indexed by array position move them here as
+     * well.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    protected void relocate(int[] newPosition, int newLength) {
+        Entry<E>[] newTree = new Entry[newLength];
+        for (int p = 0; p < newPosition.length; p++) {
+            if (newPosition[p] != NIL) {
+                Entry<E> entry = tree[p];
+                if (entry.left != NIL) {
+                    entry.left = newPosition[entry.left];
+                }
+                if (entry.right != NIL) {
+                    entry.right = newPosition[entry.right];
+                }
+                if (entry.parent != NIL) {
+                    entry.parent = newPosition[entry.parent];
+                }
+                newTree[newPosition[p]] = entry;
+            }
         }
+        tree = newTree;
     }
 
     /**
@@ -304,11 +944,23 @@ public class BinarySearchTreeArray<E> extends AbstractSet<E> {
         if (e == NIL) {
             return false;
         }
-        deleteEntry(e);
-        modCount++;                                                             //Increments as an object has been removed from the tree
+        removeEntry(e);
         return true;
     } // method remove
 
+    /*
+     * Deletes the element at position e, then compacts the tree if the
+     * compaction threshold has been passed.
+     */
+    private void removeEntry(int e) {
+        deleteEntry(e);
+        modCount++;                                                             //Increments as an object has been removed from the tree
+        if (freeCount > compactionThreshold * (size + freeCount)
+                && size + freeCount >= DEFAULT_SIZE) {
+            compact();
+        }
+    }
+
     /**
      * Finds the Entry object that houses a specified element, if there is such
      * an Entry. The worstTime(n) is O(n), and averageTime(n) is O(log n).
@@ -323,11 +975,25 @@ public class BinarySearchTreeArray<E> extends AbstractSet<E> {
      * @throws NullPointerException - if obj is null.
      *
      */
+    @SuppressWarnings("unchecked")
     protected int getEntry(Object obj) {
+        if (obj == null) {
+            throw new NullPointerException();
+        }
+        if (!filterMightContain(obj)) {
+            return NIL;
+        }
+        if (cacheKeys != null) {
+            return getCachedEntry(obj);
+        }
+        if (comparator != null) {
+            return getEntryUsingComparator(obj);
+        }
+        Comparable<? super E> key = (Comparable<? super E>) obj;
         int comp, e = root;
 
         while (e != NIL) {
-            comp = ((Comparable) obj).compareTo(tree[e].element);
+            comp = key.compareTo(tree[e].element);
             if (comp == 0) {
                 return e;
             } else if (comp < 0) {
@@ -340,31 +1006,546 @@ public class BinarySearchTreeArray<E> extends AbstractSet<E> {
         return NIL;
     } // method getEntry
 
+    /*
+     * The version of getEntry for trees ordered by a Comparator. Keeping it
+     * apart leaves the natural-ordering loop with a single compareTo call
+     * site that the JIT compiler can inline.
+     */
+    @SuppressWarnings("unchecked")
+    protected int getEntryUsingComparator(Object obj) {
+        E key = (E) obj;
+        Comparator<? super E> cpr = comparator;
+        int comp, e = root;
+        while (e != NIL) {
+            comp = cpr.compare(key, tree[e].element);
+            if (comp == 0) {
+                return e;
+            } else if (comp < 0) {
+                e = tree[e].left;
+            } else {
+                e = tree[e].right;
+            }
+        } // while
+        return NIL;
+    } // method getEntryUsingComparator
+
+    /*
+     * The version of getEntry for a tree with its lookup cache on. A slot
+     * answers for obj if it is current and holds a key with the same hash
+     * code that compares equal to obj; otherwise the position is found from
+     * the root and stored in place of the way of its set used less recently.
+     */
+    private int getCachedEntry(Object obj) {
+        int hash = obj.hashCode();
+        int set = (hash ^ (hash >>> 16)) & (cacheRecent.length - 1);
+        int slot = 2 * set;
+        if (!cacheHolds(slot, obj, hash) && !cacheHolds(++slot, obj, hash)) {
+            cacheMisses++;
+            int e = root;
+            while (e != NIL) {
+                int comp = compare(obj, tree[e].element);
+                if (comp == 0) {
+                    break;
+                }
+                e = (comp < 0) ? tree[e].left : tree[e].right;
+            } // while
+            slot = 2 * set + (cacheRecent[set] ^ 1);
+            cacheKeys[slot] = obj;
+            cachePositions[slot] = e;
+            cacheHashes[slot] = hash;
+            cacheStamps[slot] = modCount;
+            cacheRecent[set] = (byte) (slot & 1);
+            return e;
+        }
+        cacheHits++;
+        cacheRecent[set] = (byte) (slot & 1);
+        return cachePositions[slot];
+    }
+
+    /*
+     * Determines whether the lookup cache slot holds the result for obj.
+     */
+    private boolean cacheHolds(int slot, Object obj, int hash) {
+        Object key = cacheKeys[slot];
+        return cacheStamps[slot] == modCount && cacheHashes[slot] == hash
+                && key != null && (key == obj || compare(obj, key) == 0);
+    }
+
     /**
-     * Deletes the element in a specified Entry object from this
-     * BinarySearchTreeArray.
+     * Puts a lookup cache with a specified number of slots in front of
+     * contains, remove and the other methods that look up a single element,
+     * or takes it away. The cache maps recently looked up keys to their
+     * array positions, or to NIL for keys that were not found, so that a
+     * key looked up again is answered without descending the tree. It is
+     * 2-way set-associative: a key that is not in it evicts the less
+     * recently used of the two keys in its set. Adding or removing an
+     * element, or compacting the tree, empties it. The slots are allocated
+     * here, so lookups allocate nothing. The hit and miss counts start again
+     * from zero.
      *
-     * @param pInput – the Entry object whose element is to be deleted from this
-     * BinarySearchTreeArray object.
+     * A cached key is recognised by its hashCode method and then by the
+     * ordering of this BinarySearchTreeArray object. Lookups write to the
+     * cache, so a tree with a cache must not be read by several threads at
+     * once without locking.
      *
-     * @return the Entry object that was actually deleted from this
-     * BinarySearchTreeArray object.
+     * @param capacity - the number of keys the cache can hold, rounded up to
+     * a power of 2 of at least 2; or 0 to turn the cache off.
      *
+     * @throws IllegalArgumentException - if capacity is negative or greater
+     * than 2^30.
      */
-    //this whole section needs to be revised for readability and to accomodate reordering the tree when an entry is deleted from the middle of the array
-    protected Entry<E> deleteEntry(int pInput) {
-        size--;
-        Entry<E> p = tree[pInput];
-        // If p has two children, replace p's element with p's successor's
-        // element, then make p reference that successor.
-        if (p.left != NIL && p.right != NIL) {
-            pInput = successor(pInput);
-            Entry<E> s = tree[pInput];
-            p.element = s.element;
-            p = s;
-        } //p has two children
+    public void setLookupCacheCapacity(int capacity) {
+        if (capacity < 0 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("Lookup cache capacity not in "
+                    + "[0, 2^30]: " + capacity);
+        }
+        cacheHits = 0;
+        cacheMisses = 0;
+        if (capacity == 0) {
+            cacheKeys = null;
+            cachePositions = cacheHashes = cacheStamps = null;
+            cacheRecent = null;
+            return;
+        }
+        int slots = Math.max(2, Integer.highestOneBit(capacity - 1) << 1);
+        cacheKeys = new Object[slots];
+        cachePositions = new int[slots];
+        cacheHashes = new int[slots];
+        cacheStamps = new int[slots];
+        cacheRecent = new byte[slots / 2];
+    }
 
-        // At this point, p has either no children or one child.
+    /**
+     * Returns the number of keys the lookup cache of this
+     * BinarySearchTreeArray object can hold.
+     *
+     * @return the capacity of the lookup cache, or 0 if it is off.
+     */
+    public int lookupCacheCapacity() {
+        return (cacheKeys == null) ? 0 : cacheKeys.length;
+    }
+
+    /**
+     * Returns the number of lookups the lookup cache of this
+     * BinarySearchTreeArray object has answered since its capacity was last
+     * set.
+     *
+     * @return the number of cache hits.
+     */
+    public long lookupCacheHits() {
+        return cacheHits;
+    }
+
+    /**
+     * Returns the number of lookups that went past the lookup cache of this
+     * BinarySearchTreeArray object to the tree since its capacity was last
+     * set.
+     *
+     * @return the number of cache misses.
+     */
+    public long lookupCacheMisses() {
+        return cacheMisses;
+    }
+
+    /**
+     * Puts a Bloom filter with a specified number of bits per element in
+     * front of contains, remove and the other methods that look up a single
+     * element, or takes it away. The filter answers most lookups of elements
+     * that are not in this BinarySearchTreeArray object with a single memory
+     * access rather than a descent to a leaf, and costs that access on top of
+     * the descent for elements that are; it pays when most lookups miss.
+     * With 10 bits per element, about 1 miss in 100 gets past it. It is
+     * built here from the elements in the tree, and grows with the tree.
+     * Removing an element leaves its bits set, so after many removals the
+     * filter lets more misses through until rebuildFilter is called. The
+     * worstTime(n) is O(n).
+     *
+     * The filter finds an element by its hashCode method, so it must only be
+     * used when elements that compare equal have equal hash codes, as they
+     * do in a tree of Integer or String in their natural ordering, but not
+     * of BigDecimal or with a case-insensitive Comparator; otherwise contains
+     * and remove may miss elements that are there. A Comparator may order
+     * its elements any way at all, so a tree ordered by one only takes a
+     * filter through setFilterBitsPerKey(bitsPerKey, true). A lookup the
+     * filter rejects returns without comparing obj to any element, so it
+     * does not throw ClassCastException for an object of another type.
+     *
+     * @param bitsPerKey - the number of filter bits per element, from 1 to
+     * 32; or 0 to turn the filter off.
+     *
+     * @throws IllegalArgumentException - if bitsPerKey is not from 0 to 32,
+     * or if it is not 0 and this BinarySearchTreeArray object is ordered by
+     * a Comparator.
+     */
+    public void setFilterBitsPerKey(int bitsPerKey) {
+        setFilterBitsPerKey(bitsPerKey, comparator == null);
+    }
+
+    /**
+     * Puts a Bloom filter with a specified number of bits per element in
+     * front of the lookups of this BinarySearchTreeArray object, as
+     * setFilterBitsPerKey(bitsPerKey) does, or takes it away, once the
+     * caller has stated that elements which compare equal under the ordering
+     * of this tree have equal hash codes. For a tree ordered by a
+     * Comparator, that is the only way to turn the filter on.
+     *
+     * @param bitsPerKey - the number of filter bits per element, from 1 to
+     * 32; or 0 to turn the filter off.
+     * @param consistentWithHashCode - true if elements that compare equal
+     * always have equal hash codes.
+     *
+     * @throws IllegalArgumentException - if bitsPerKey is not from 0 to 32,
+     * or if it is not 0 and consistentWithHashCode is false.
+     */
+    public void setFilterBitsPerKey(int bitsPerKey,
+            boolean consistentWithHashCode) {
+        if (bitsPerKey < 0 || bitsPerKey > 32) {
+            throw new IllegalArgumentException("Filter bits per key not in "
+                    + "[0, 32]: " + bitsPerKey);
+        }
+        if (bitsPerKey > 0 && !consistentWithHashCode) {
+            throw new IllegalArgumentException("A Bloom filter needs an "
+                    + "ordering consistent with hashCode");
+        }
+        filterBitsPerKey = bitsPerKey;
+        if (bitsPerKey == 0) {
+            filterBits = null;
+            return;
+        }
+        // k = bitsPerKey * ln 2 minimizes the false positive rate.
+        filterHashes = Math.max(1, (int) Math.round(bitsPerKey * 0.693));
+        buildFilter();
+    }
+
+    /**
+     * Returns the number of Bloom filter bits per element of this
+     * BinarySearchTreeArray object.
+     *
+     * @return the bits per element of the filter, or 0 if it is off.
+     */
+    public int filterBitsPerKey() {
+        return filterBitsPerKey;
+    }
+
+    /**
+     * Builds the Bloom filter of this BinarySearchTreeArray object again from
+     * the elements now in it, sized for twice as many. After many removals
+     * this clears the bits of the removed elements and shrinks the filter.
+     * Does nothing if the filter is off. The worstTime(n) is O(n).
+     */
+    public void rebuildFilter() {
+        if (filterBits != null) {
+            buildFilter();
+        }
+    }
+
+    /*
+     * Allocates the Bloom filter for twice the elements now in the tree and
+     * sets the bits of each of them.
+     */
+    private void buildFilter() {
+        filterCapacity = Math.max(2 * size, 64);
+        long blocks = ((long) filterBitsPerKey * filterCapacity + 511) / 512;
+        filterBlocks = (int) Math.min(blocks, Integer.MAX_VALUE / 8);
+        filterBits = new long[filterBlocks * 8];
+        forEach(this::setFilterBits);
+    }
+
+    /*
+     * Records a newly inserted element in the Bloom filter, rebuilding it
+     * instead if the tree has outgrown it.
+     */
+    protected void addToFilter(E element) {
+        if (filterBits == null) {
+            return;
+        }
+        if (size > filterCapacity) {
+            buildFilter();
+        } else {
+            setFilterBits(element);
+        }
+    }
+
+    /*
+     * Sets the Bloom filter bits of obj: filterHashes positions in its
+     * 512-bit block, a + i * b for i = 0, 1, ..., by double hashing.
+     */
+    private void setFilterBits(Object obj) {
+        long hash = filterHash(obj);
+        int base = (int) (((hash >>> 32) * filterBlocks) >>> 32) * 8;
+        int a = (int) hash, b = ((int) hash >>> 9) | 1;
+        for (int i = 0; i < filterHashes; i++) {
+            int bit = (a + i * b) & 511;
+            filterBits[base + (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    /*
+     * Determines whether all the Bloom filter bits of obj are set: if not,
+     * obj is certainly not in the tree. Always true while the filter is off.
+     */
+    protected boolean filterMightContain(Object obj) {
+        if (filterBits == null) {
+            return true;
+        }
+        long hash = filterHash(obj);
+        int base = (int) (((hash >>> 32) * filterBlocks) >>> 32) * 8;
+        int a = (int) hash, b = ((int) hash >>> 9) | 1;
+        for (int i = 0; i < filterHashes; i++) {
+            int bit = (a + i * b) & 511;
+            if ((filterBits[base + (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Spreads the hash code of obj over 64 bits with the finalizer of
+     * SplitMix64, so that keys with nearby hash codes, such as consecutive
+     * Integers, land in unrelated blocks.
+     */
+    private static long filterHash(Object obj) {
+        long h = obj.hashCode() * 0x9E3779B97F4A7C15L;
+        h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+        return h ^ (h >>> 31);
+    }
+
+    /**
+     * Compares two elements by the ordering of this BinarySearchTreeArray
+     * object: its Comparator if it has one, otherwise the elements'
+     * Comparable interface.
+     *
+     * @param a - the first element to compare.
+     * @param b - the second element to compare.
+     *
+     * @return a negative integer, zero or a positive integer as a is less
+     * than, equal to or greater than b.
+     *
+     * @throws ClassCastException - if a and b cannot be compared.
+     */
+    @SuppressWarnings("unchecked")
+    protected final int compare(Object a, Object b) {
+        return (comparator == null) ? ((Comparable<Object>) a).compareTo(b)
+                : comparator.compare((E) a, (E) b);
+    }
+
+    /**
+     * Returns the Comparator that orders the elements of this
+     * BinarySearchTreeArray object, or null if it uses their natural
+     * ordering.
+     *
+     * @return the Comparator of this BinarySearchTreeArray object, or null.
+     */
+    public Comparator<? super E> comparator() {
+        return comparator;
+    }
+
+    /**
+     * Returns an immutable copy of this BinarySearchTreeArray object, with
+     * its elements in Eytzinger order in a flat array for faster lookups.
+     * Later changes to this BinarySearchTreeArray object do not affect the
+     * copy. The worstTime(n) is O(n).
+     *
+     * @return an EytzingerSet containing the elements of this
+     * BinarySearchTreeArray object, with the same ordering.
+     */
+    public EytzingerSet<E> freeze() {
+        return new EytzingerSet<E>(iterator(), size, comparator);
+    }
+
+    /**
+     * Returns a new balanced tree holding the elements that are in this
+     * BinarySearchTreeArray object, in another one, or in both. The two are
+     * merged in one linear pass over their elements in order, and the
+     * result is built from the merged sequence, so the worstTime(n, m) is
+     * O(n + m). Where an element is in both, the one from this tree is kept.
+     *
+     * @param other - the BinarySearchTreeArray to merge with this one.
+     *
+     * @return a BinarySearchTreeArray, of the same class and with the same
+     * ordering as this one, holding the union of the two.
+     *
+     * @throws IllegalArgumentException - if other is ordered differently.
+     * @throws NullPointerException - if other is null.
+     */
+    public BinarySearchTreeArray<E> union(
+            BinarySearchTreeArray<? extends E> other) {
+        return merge(other, UNION);
+    }
+
+    /**
+     * Returns a new balanced tree holding the elements that are in both this
+     * BinarySearchTreeArray object and another one. If one tree is much
+     * smaller than the other, its elements are looked up in the larger one,
+     * in O(m log n) time; otherwise the two are merged as by union, in
+     * O(n + m) time.
+     *
+     * @param other - the BinarySearchTreeArray to intersect with this one.
+     *
+     * @return a BinarySearchTreeArray, of the same class and with the same
+     * ordering as this one, holding the intersection of the two.
+     *
+     * @throws IllegalArgumentException - if other is ordered differently.
+     * @throws NullPointerException - if other is null.
+     */
+    public BinarySearchTreeArray<E> intersect(
+            BinarySearchTreeArray<? extends E> other) {
+        checkOrdering(other);
+        int small = Math.min(size, other.size), large = Math.max(size,
+                other.size);
+        if ((long) small * (32 - Integer.numberOfLeadingZeros(large))
+                >= large) {
+            return merge(other, INTERSECTION);
+        }
+        Object[] common = new Object[small];
+        int[] count = {0};
+        if (size <= other.size) {
+            forEach(element -> {
+                if (other.getEntry(element) != NIL) {
+                    common[count[0]++] = element;
+                }
+            });
+        } else {
+            other.forEach(element -> {
+                int e = getEntry(element);
+                if (e != NIL) {
+                    common[count[0]++] = tree[e].element;
+                }
+            });
+        }
+        return build(common, count[0]);
+    }
+
+    /**
+     * Returns a new balanced tree holding the elements of this
+     * BinarySearchTreeArray object that are not in another one. The two are
+     * merged as by union, so the worstTime(n, m) is O(n + m).
+     *
+     * @param other - the BinarySearchTreeArray whose elements are left out.
+     *
+     * @return a BinarySearchTreeArray, of the same class and with the same
+     * ordering as this one, holding the difference of the two.
+     *
+     * @throws IllegalArgumentException - if other is ordered differently.
+     * @throws NullPointerException - if other is null.
+     */
+    public BinarySearchTreeArray<E> difference(
+            BinarySearchTreeArray<? extends E> other) {
+        return merge(other, DIFFERENCE);
+    }
+
+    private static final int UNION = 0, INTERSECTION = 1, DIFFERENCE = 2;
+
+    /*
+     * Merges the elements of this tree and other, in order, keeping those
+     * that op calls for, and builds a balanced tree from them.
+     */
+    private BinarySearchTreeArray<E> merge(
+            BinarySearchTreeArray<? extends E> other, int op) {
+        checkOrdering(other);
+        Object[] a = toSortedArray(this), b = toSortedArray(other);
+        Object[] out = new Object[(op == UNION) ? a.length + b.length
+                : a.length];
+        int i = 0, j = 0, k = 0;
+        while (i < a.length && j < b.length) {
+            int comp = compare(a[i], b[j]);
+            if (comp < 0) {
+                if (op != INTERSECTION) {
+                    out[k++] = a[i];
+                }
+                i++;
+            } else if (comp > 0) {
+                if (op == UNION) {
+                    out[k++] = b[j];
+                }
+                j++;
+            } else {
+                if (op != DIFFERENCE) {
+                    out[k++] = a[i];
+                }
+                i++;
+                j++;
+            }
+        } // while
+        if (op != INTERSECTION) {
+            while (i < a.length) {
+                out[k++] = a[i++];
+            }
+        }
+        if (op == UNION) {
+            while (j < b.length) {
+                out[k++] = b[j++];
+            }
+        }
+        return build(out, k);
+    }
+
+    @SuppressWarnings("unchecked")
+    private BinarySearchTreeArray<E> build(Object[] sorted, int count) {
+        BinarySearchTreeArray<E> result = newEmptyTree(Math.max(count, 1));
+        result.buildFromSorted(
+                (Iterator<E>) Arrays.asList(sorted).iterator(), count, false);
+        return result;
+    }
+
+    private void checkOrdering(BinarySearchTreeArray<?> other) {
+        if (!Objects.equals(comparator, other.comparator)) {
+            throw new IllegalArgumentException("The trees are ordered "
+                    + "differently");
+        }
+    }
+
+    private static Object[] toSortedArray(BinarySearchTreeArray<?> t) {
+        Object[] elements = new Object[t.size];
+        int[] count = {0};
+        t.forEach(element -> elements[count[0]++] = element);
+        return elements;
+    }
+
+    /**
+     * Returns a new, empty tree of the same class and ordering as this
+     * BinarySearchTreeArray object, for the results of union, intersect and
+     * difference. Subclasses override it to return their own class.
+     *
+     * @param capacity - the initial capacity of the new tree.
+     *
+     * @return an empty BinarySearchTreeArray with the same ordering.
+     */
+    protected BinarySearchTreeArray<E> newEmptyTree(int capacity) {
+        return new BinarySearchTreeArray<E>(capacity, comparator);
+    }
+
+    /**
+     * Deletes the element in a specified Entry object from this
+     * BinarySearchTreeArray.
+     *
+     * @param pInput – the Entry object whose element is to be deleted from this
+     * BinarySearchTreeArray object.
+     *
+     * @return the Entry object that was actually deleted from this
+     * BinarySearchTreeArray object.
+     *
+     * If the Entry that is unlinked has a child, that child's Entry is moved
+     * into its array position, and movedFrom and movedTo record the move;
+     * otherwise they are both NIL.
+     */
+    //this whole section needs to be revised for readability and to accomodate reordering the tree when an entry is deleted from the middle of the array
+    protected Entry<E> deleteEntry(int pInput) {
+        size--;
+        movedFrom = movedTo = NIL;
+        Entry<E> p = tree[pInput];
+        // If p has two children, replace p's element with p's successor's
+        // element, then make p reference that successor.
+        if (p.left != NIL && p.right != NIL) {
+            pInput = successor(pInput);
+            Entry<E> s = tree[pInput];
+            p.element = s.element;
+            p = s;
+        } //p has two children
+
+        // At this point, p has either no children or one child.
         int replacement;
         if (p.left != NIL) {
             replacement = p.left;
@@ -372,71 +1553,487 @@ public class BinarySearchTreeArray<E> extends AbstractSet<E> {
             replacement = p.right;
         }
 
-        // If p has at least one child, link replacement to p.parent.
-        if (replacement != NIL) {
-            tree[replacement].parent = p.parent;
-            tree[pInput] = tree[replacement];
-            if (tree[replacement].left != NIL) {
-                tree[tree[replacement].left].parent = pInput;
-            }
-            if (tree[replacement].right != NIL) {
-                tree[tree[replacement].right].parent = pInput;
-            }
-            tree[replacement] = null;
-            freeList.add(replacement);
-            return tree[replacement];
-        }//p has at least one child
-        else if (p.parent == NIL) {                                             //if tree[pInput] has no parent = tree[pInput] must be the root
-            tree[root] = null;
-            freeList.add(root);
-            root = NIL;
-        } else {
-            Entry<E> parentP = tree[p.parent];
-            freeList.add(pInput);
-            tree[pInput] = null;
-            if (parentP.left == pInput) {                                       //if tree[pInput] is the left child of its parent
-                parentP.left = NIL;
-            } else {
-                parentP.right = NIL;
-            }
-        }//p has a parent but no children
-        return tree[pInput];
-    }//method deleteEntry
+        // If p has at least one child, link replacement to p.parent.
+        if (replacement != NIL) {
+            tree[replacement].parent = p.parent;
+            tree[pInput] = tree[replacement];
+            if (tree[replacement].left != NIL) {
+                tree[tree[replacement].left].parent = pInput;
+            }
+            if (tree[replacement].right != NIL) {
+                tree[tree[replacement].right].parent = pInput;
+            }
+            tree[replacement] = null;
+            freeSlot(replacement);
+            movedFrom = replacement;
+            movedTo = pInput;
+            return tree[replacement];
+        }//p has at least one child
+        else if (p.parent == NIL) {                                             //if tree[pInput] has no parent = tree[pInput] must be the root
+            tree[root] = null;
+            freeSlot(root);
+            root = NIL;
+        } else {
+            Entry<E> parentP = tree[p.parent];
+            freeSlot(pInput);
+            tree[pInput] = null;
+            if (parentP.left == pInput) {                                       //if tree[pInput] is the left child of its parent
+                parentP.left = NIL;
+            } else {
+                parentP.right = NIL;
+            }
+        }//p has a parent but no children
+        return tree[pInput];
+    }//method deleteEntry
+
+    /**
+     * Finds the successor of a specified Entry object in this
+     * BinarySearchTreeArray. The worstTime(n) is O(n) and averageTime(n) is
+     * constant.
+     *
+     * @param e – the Entry object whose successor is to be found.
+     *
+     * @return the successor of e, if e has a successor; otherwise, return null.
+     *
+     */
+    protected int successor(int e) {
+        if (e == NIL) {
+            return NIL;
+        } else if (tree[e].right != NIL) {
+            // successor is leftmost Entry in right subtree of e
+            int p = tree[e].right;
+            while (tree[p].left != NIL) {
+                p = tree[p].left;
+            }
+            return p;
+        } // e has a right child
+        else {
+            // go up the tree to the left as far as possible, then go up
+            // to the right.
+            int p = tree[e].parent;
+            int ch = e;
+            while (p != NIL && ch == tree[p].right) {
+                ch = p;
+                p = tree[p].parent;
+            } // while
+            return p;
+
+        } // e has no right child
+    } // method successor    }
+
+    /**
+     * Finds the predecessor of a specified Entry object in this
+     * BinarySearchTreeArray. The worstTime(n) is O(n) and averageTime(n) is
+     * constant.
+     *
+     * @param e – the Entry object whose predecessor is to be found.
+     *
+     * @return the predecessor of e, if e has a predecessor; otherwise, return
+     * NIL.
+     */
+    protected int predecessor(int e) {
+        if (e == NIL) {
+            return NIL;
+        } else if (tree[e].left != NIL) {
+            // predecessor is rightmost Entry in left subtree of e
+            int p = tree[e].left;
+            while (tree[p].right != NIL) {
+                p = tree[p].right;
+            }
+            return p;
+        } // e has a left child
+        else {
+            // go up the tree to the right as far as possible, then go up
+            // to the left.
+            int p = tree[e].parent;
+            int ch = e;
+            while (p != NIL && ch == tree[p].left) {
+                ch = p;
+                p = tree[p].parent;
+            } // while
+            return p;
+        } // e has no left child
+    } // method predecessor
+
+    /*
+     * The positions of the smallest and largest elements, or NIL if this
+     * BinarySearchTreeArray object is empty.
+     */
+    protected int getFirstEntry() {
+        int p = root;
+        if (p != NIL) {
+            while (tree[p].left != NIL) {
+                p = tree[p].left;
+            }
+        }
+        return p;
+    }
+
+    protected int getLastEntry() {
+        int p = root;
+        if (p != NIL) {
+            while (tree[p].right != NIL) {
+                p = tree[p].right;
+            }
+        }
+        return p;
+    }
+
+    /*
+     * The positions of the smallest element greater than or equal to
+     * (ceiling) or greater than (higher) a specified element, and of the
+     * largest element less than or equal to (floor) or less than (lower) it,
+     * or NIL if there is none. Each is one descent from the root, like
+     * getEntry, remembering the last position passed on the wanted side.
+     */
+    protected int getCeilingEntry(E element) {
+        if (element == null) {
+            throw new NullPointerException();
+        }
+        int p = root, found = NIL;
+        while (p != NIL) {
+            int comp = compare(element, tree[p].element);
+            if (comp == 0) {
+                return p;
+            } else if (comp < 0) {
+                found = p;
+                p = tree[p].left;
+            } else {
+                p = tree[p].right;
+            }
+        } // while
+        return found;
+    }
+
+    protected int getHigherEntry(E element) {
+        if (element == null) {
+            throw new NullPointerException();
+        }
+        int p = root, found = NIL;
+        while (p != NIL) {
+            if (compare(element, tree[p].element) < 0) {
+                found = p;
+                p = tree[p].left;
+            } else {
+                p = tree[p].right;
+            }
+        } // while
+        return found;
+    }
+
+    protected int getFloorEntry(E element) {
+        if (element == null) {
+            throw new NullPointerException();
+        }
+        int p = root, found = NIL;
+        while (p != NIL) {
+            int comp = compare(element, tree[p].element);
+            if (comp == 0) {
+                return p;
+            } else if (comp > 0) {
+                found = p;
+                p = tree[p].right;
+            } else {
+                p = tree[p].left;
+            }
+        } // while
+        return found;
+    }
+
+    protected int getLowerEntry(E element) {
+        if (element == null) {
+            throw new NullPointerException();
+        }
+        int p = root, found = NIL;
+        while (p != NIL) {
+            if (compare(element, tree[p].element) > 0) {
+                found = p;
+                p = tree[p].right;
+            } else {
+                p = tree[p].left;
+            }
+        } // while
+        return found;
+    }
+
+    private E elementAt(int e) {
+        return (e == NIL) ? null : tree[e].element;
+    }
+
+    /**
+     * Returns the smallest element in this BinarySearchTreeArray object.
+     * The worstTime(n) is O(n) and averageTime(n) is O(log n).
+     *
+     * @return the smallest element in this BinarySearchTreeArray object.
+     *
+     * @throws NoSuchElementException – if this BinarySearchTreeArray object
+     * is empty.
+     */
+    @Override
+    public E first() {
+        int e = getFirstEntry();
+        if (e == NIL) {
+            throw new NoSuchElementException();
+        }
+        return tree[e].element;
+    }
+
+    /**
+     * Returns the largest element in this BinarySearchTreeArray object. The
+     * worstTime(n) is O(n) and averageTime(n) is O(log n).
+     *
+     * @return the largest element in this BinarySearchTreeArray object.
+     *
+     * @throws NoSuchElementException – if this BinarySearchTreeArray object
+     * is empty.
+     */
+    @Override
+    public E last() {
+        int e = getLastEntry();
+        if (e == NIL) {
+            throw new NoSuchElementException();
+        }
+        return tree[e].element;
+    }
+
+    /**
+     * Returns the largest element in this BinarySearchTreeArray object that
+     * is less than a specified element, or null if there is none. The
+     * worstTime(n) is O(n) and averageTime(n) is O(log n).
+     *
+     * @param element – the element to compare with.
+     *
+     * @return the largest element less than element, or null.
+     *
+     * @throws ClassCastException – if element cannot be compared to the
+     * elements of this BinarySearchTreeArray object.
+     * @throws NullPointerException – if element is null.
+     */
+    @Override
+    public E lower(E element) {
+        return elementAt(getLowerEntry(element));
+    }
+
+    /**
+     * Returns the largest element in this BinarySearchTreeArray object that
+     * is less than or equal to a specified element, or null if there is
+     * none. The worstTime(n) is O(n) and averageTime(n) is O(log n).
+     *
+     * @param element – the element to compare with.
+     *
+     * @return the largest element less than or equal to element, or null.
+     *
+     * @throws ClassCastException – if element cannot be compared to the
+     * elements of this BinarySearchTreeArray object.
+     * @throws NullPointerException – if element is null.
+     */
+    @Override
+    public E floor(E element) {
+        return elementAt(getFloorEntry(element));
+    }
+
+    /**
+     * Returns the smallest element in this BinarySearchTreeArray object that
+     * is greater than or equal to a specified element, or null if there is
+     * none. The worstTime(n) is O(n) and averageTime(n) is O(log n).
+     *
+     * @param element – the element to compare with.
+     *
+     * @return the smallest element greater than or equal to element, or
+     * null.
+     *
+     * @throws ClassCastException – if element cannot be compared to the
+     * elements of this BinarySearchTreeArray object.
+     * @throws NullPointerException – if element is null.
+     */
+    @Override
+    public E ceiling(E element) {
+        return elementAt(getCeilingEntry(element));
+    }
+
+    /**
+     * Returns the smallest element in this BinarySearchTreeArray object that
+     * is greater than a specified element, or null if there is none. The
+     * worstTime(n) is O(n) and averageTime(n) is O(log n).
+     *
+     * @param element – the element to compare with.
+     *
+     * @return the smallest element greater than element, or null.
+     *
+     * @throws ClassCastException – if element cannot be compared to the
+     * elements of this BinarySearchTreeArray object.
+     * @throws NullPointerException – if element is null.
+     */
+    @Override
+    public E higher(E element) {
+        return elementAt(getHigherEntry(element));
+    }
+
+    /**
+     * Removes and returns the smallest element in this BinarySearchTreeArray
+     * object, or returns null if it is empty. The worstTime(n) is O(n) and
+     * averageTime(n) is O(log n).
+     *
+     * @return the smallest element, or null.
+     */
+    @Override
+    public E pollFirst() {
+        int e = getFirstEntry();
+        if (e == NIL) {
+            return null;
+        }
+        E element = tree[e].element;
+        removeEntry(e);
+        return element;
+    }
+
+    /**
+     * Removes and returns the largest element in this BinarySearchTreeArray
+     * object, or returns null if it is empty. The worstTime(n) is O(n) and
+     * averageTime(n) is O(log n).
+     *
+     * @return the largest element, or null.
+     */
+    @Override
+    public E pollLast() {
+        int e = getLastEntry();
+        if (e == NIL) {
+            return null;
+        }
+        E element = tree[e].element;
+        removeEntry(e);
+        return element;
+    }
+
+    /**
+     * Returns a view of the elements of this BinarySearchTreeArray object in
+     * descending order. The view is backed by this tree.
+     *
+     * @return a descending view of this BinarySearchTreeArray object.
+     */
+    @Override
+    public NavigableSet<E> descendingSet() {
+        return new TreeSubSet<E>(this, true, null, true, true, null, true,
+                true);
+    }
+
+    /**
+     * Returns an iterator over the elements of this BinarySearchTreeArray
+     * object in descending order.
+     *
+     * @return an iterator positioned at the largest element.
+     */
+    @Override
+    public Iterator<E> descendingIterator() {
+        return new RangeIterator(getLastEntry(), NIL, true);
+    }
+
+    /**
+     * Returns a view of the elements of this BinarySearchTreeArray object
+     * from fromElement to toElement. The view is backed by this tree;
+     * iterating over its k elements takes O(log n + k) time on average,
+     * beginning with a single descent to its smallest element.
+     *
+     * @param fromElement – the low end of the view.
+     * @param fromInclusive – true if fromElement is in the view.
+     * @param toElement – the high end of the view.
+     * @param toInclusive – true if toElement is in the view.
+     *
+     * @return a view of the elements in the range.
+     *
+     * @throws IllegalArgumentException – if fromElement is greater than
+     * toElement.
+     * @throws NullPointerException – if fromElement or toElement is null.
+     */
+    @Override
+    public NavigableSet<E> subSet(E fromElement, boolean fromInclusive,
+            E toElement, boolean toInclusive) {
+        return new TreeSubSet<E>(this, false, fromElement, fromInclusive,
+                false, toElement, toInclusive, false);
+    }
 
     /**
-     * Finds the successor of a specified Entry object in this
-     * BinarySearchTreeArray. The worstTime(n) is O(n) and averageTime(n) is
-     * constant.
+     * Returns a view of the elements of this BinarySearchTreeArray object
+     * less than (or equal to, if inclusive) toElement. The view is backed by
+     * this tree.
      *
-     * @param e – the Entry object whose successor is to be found.
+     * @param toElement – the high end of the view.
+     * @param inclusive – true if toElement is in the view.
      *
-     * @return the successor of e, if e has a successor; otherwise, return null.
+     * @return a view of the elements below toElement.
      *
+     * @throws NullPointerException – if toElement is null.
      */
-    protected int successor(int e) {
-        if (e == NIL) {
-            return NIL;
-        } else if (tree[e].right != NIL) {
-            // successor is leftmost Entry in right subtree of e
-            int p = tree[e].right;
-            while (tree[p].left != NIL) {
-                p = tree[p].left;
-            }
-            return p;
-        } // e has a right child
-        else {
-            // go up the tree to the left as far as possible, then go up
-            // to the right.
-            int p = tree[e].parent;
-            int ch = e;
-            while (p != NIL && ch == tree[p].right) {
-                ch = p;
-                p = tree[p].parent;
-            } // while
-            return p;
+    @Override
+    public NavigableSet<E> headSet(E toElement, boolean inclusive) {
+        return new TreeSubSet<E>(this, true, null, true, false, toElement,
+                inclusive, false);
+    }
 
-        } // e has no right child
-    } // method successor    }
+    /**
+     * Returns a view of the elements of this BinarySearchTreeArray object
+     * greater than (or equal to, if inclusive) fromElement. The view is
+     * backed by this tree.
+     *
+     * @param fromElement – the low end of the view.
+     * @param inclusive – true if fromElement is in the view.
+     *
+     * @return a view of the elements above fromElement.
+     *
+     * @throws NullPointerException – if fromElement is null.
+     */
+    @Override
+    public NavigableSet<E> tailSet(E fromElement, boolean inclusive) {
+        return new TreeSubSet<E>(this, false, fromElement, inclusive, true,
+                null, true, false);
+    }
+
+    @Override
+    public SortedSet<E> subSet(E fromElement, E toElement) {
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public SortedSet<E> headSet(E toElement) {
+        return headSet(toElement, false);
+    }
+
+    @Override
+    public SortedSet<E> tailSet(E fromElement) {
+        return tailSet(fromElement, true);
+    }
+
+    /**
+     * Returns an iterator over the elements of this BinarySearchTreeArray
+     * object that lie between two bounds. It finds the position at each end
+     * of the range with one descent from the root, then follows successor
+     * (or predecessor) links from one to the other. The worstTime(n) is
+     * O(n), and averageTime(n) is O(log n) to start and constant per
+     * element.
+     *
+     * @param lo – the low end of the range, or null for no low end.
+     * @param loInclusive – true if lo itself is in the range.
+     * @param hi – the high end of the range, or null for no high end.
+     * @param hiInclusive – true if hi itself is in the range.
+     * @param descending – true to iterate from hi down to lo.
+     *
+     * @return an iterator over the elements in the range.
+     */
+    @Override
+    public Iterator<E> rangeIterator(E lo, boolean loInclusive, E hi,
+            boolean hiInclusive, boolean descending) {
+        int lowest = (lo == null) ? getFirstEntry()
+                : loInclusive ? getCeilingEntry(lo) : getHigherEntry(lo);
+        int highest = (hi == null) ? getLastEntry()
+                : hiInclusive ? getFloorEntry(hi) : getLowerEntry(hi);
+        if (lowest == NIL || highest == NIL
+                || compare(tree[lowest].element, tree[highest].element) > 0) {
+            return new RangeIterator(NIL, NIL, descending);
+        }
+        return descending
+                ? new RangeIterator(highest, predecessor(lowest), true)
+                : new RangeIterator(lowest, successor(highest), false);
+    }
 
     /**
      * Returns an iterator positioned at the smallest element in this
@@ -454,7 +2051,7 @@ public class BinarySearchTreeArray<E> extends AbstractSet<E> {
     protected class ArrayIterator implements Iterator<E> {
 
         protected int next = NIL, lastReturned = NIL;
-        protected final int modCountOnEntry;
+        protected int modCountOnEntry;
 
         /**
          * Positions this ArrayIterator to the smallest element, according to
@@ -530,11 +2127,451 @@ public class BinarySearchTreeArray<E> extends AbstractSet<E> {
             if (modCountOnEntry != modCount) {
                 throw new ConcurrentModificationException();
             }
-            Entry deleted = deleteEntry(lastReturned);
-            if (tree[next] == deleted) {
+            // An Entry with two children takes over its successor's
+            // element, so the next element to return is now in
+            // lastReturned; otherwise deleteEntry may have moved the next
+            // Entry up into the position it unlinked.
+            if (tree[lastReturned].left != NIL
+                    && tree[lastReturned].right != NIL) {
+                next = lastReturned;
+            }
+            deleteEntry(lastReturned);
+            if (next != NIL && next == movedFrom) {
+                next = movedTo;
+            }
+            modCount++;
+            modCountOnEntry = modCount;
+            lastReturned = NIL;
+        }
+    }
+
+    protected class RangeIterator implements Iterator<E> {
+
+        protected int next, lastReturned = NIL;
+        protected int expectedModCount = modCount;
+
+        // The element just past the end of the range, or null for the end of
+        // the tree. It is held by element rather than by position because
+        // deleteEntry may move an Entry to another position.
+        protected final E fenceElement;
+        protected final boolean descending;
+
+        /**
+         * Positions this RangeIterator at first, to stop at the position
+         * that holds the element now at fence.
+         */
+        protected RangeIterator(int first, int fence, boolean descending) {
+            next = first;
+            fenceElement = (fence == NIL) ? null : tree[fence].element;
+            this.descending = descending;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != NIL && tree[next].element != fenceElement;
+        }
+
+        @Override
+        public E next() {
+            if (expectedModCount != modCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            lastReturned = next;
+            next = descending ? predecessor(next) : successor(next);
+            return tree[lastReturned].element;
+        }
+
+        /**
+         * Removes the element returned by the most recent call to next().
+         * The next position is remapped as in ArrayIterator.remove, so the
+         * worstTime(n) is O(n) and averageTime(n) is constant.
+         */
+        @Override
+        public void remove() {
+            if (lastReturned == NIL) {
+                throw new IllegalStateException();
+            }
+            if (expectedModCount != modCount) {
+                throw new ConcurrentModificationException();
+            }
+            // Going down, the next element is the predecessor, which an
+            // Entry with two children leaves where it is.
+            if (!descending && tree[lastReturned].left != NIL
+                    && tree[lastReturned].right != NIL) {
                 next = lastReturned;
             }
+            deleteEntry(lastReturned);
+            if (next != NIL && next == movedFrom) {
+                next = movedTo;
+            }
+            modCount++;
+            expectedModCount = modCount;
             lastReturned = NIL;
         }
     }
+
+    /**
+     * Returns a Cursor over this BinarySearchTreeArray object, on no element
+     * until it is moved there by seek.
+     *
+     * @return a Cursor over this BinarySearchTreeArray object.
+     */
+    public Cursor<E> cursor() {
+        return new TreeCursor();
+    }
+
+    protected class TreeCursor implements Cursor<E> {
+
+        // The position this TreeCursor is on, or NIL if it is on no element,
+        // and the element there, kept in case the Entry is moved or deleted.
+        protected int current = NIL;
+        protected E element;
+
+        // Where the next seek starts: current, or the last position reached
+        // if that was NIL, or NIL for the root.
+        protected int finger = NIL;
+
+        protected int expectedModCount = modCount;
+
+        /**
+         * Moves this TreeCursor to the smallest element greater than or
+         * equal to key, climbing from where it is (or was last) only as far
+         * as the nearest ancestor whose subtree can hold key, and then
+         * descending. The worstTime(n) is O(n), and averageTime(n) is
+         * O(log d), where d is the number of elements between key and the
+         * element this TreeCursor was on.
+         */
+        @Override
+        public boolean seek(E key) {
+            if (key == null) {
+                throw new NullPointerException();
+            }
+            if (expectedModCount != modCount) {
+                finger = NIL;
+                expectedModCount = modCount;
+            }
+            int x = (finger == NIL) ? root
+                    : (compare(key, tree[finger].element) >= 0)
+                    ? climb(finger, key) : climbBack(finger, key);
+            int last = NIL, ceiling = NIL;
+            while (x != NIL) {
+                last = x;
+                int comp = compare(key, tree[x].element);
+                if (comp < 0) {
+                    ceiling = x;
+                    x = tree[x].left;
+                } else if (comp > 0) {
+                    x = tree[x].right;
+                } else {
+                    ceiling = x;
+                    break;
+                }
+            } // while
+            if (ceiling == NIL) {
+                ceiling = successor(last);                                      //the ancestor climb stopped under
+            }
+            moveTo(ceiling, last);
+            return current != NIL;
+        }
+
+        /**
+         * Moves this TreeCursor to the successor of the position it is on.
+         * The worstTime(n) is O(n) and averageTime(n) is constant, or
+         * O(log n) if the tree has changed since this TreeCursor last moved.
+         */
+        @Override
+        public boolean next() {
+            if (current == NIL) {
+                return false;
+            }
+            int e = (expectedModCount == modCount) ? successor(current)
+                    : getHigherEntry(element);
+            moveTo(e, current);
+            return current != NIL;
+        }
+
+        /**
+         * Moves this TreeCursor to the predecessor of the position it is on.
+         * The worstTime(n) is O(n) and averageTime(n) is constant, or
+         * O(log n) if the tree has changed since this TreeCursor last moved.
+         */
+        @Override
+        public boolean prev() {
+            if (current == NIL) {
+                return false;
+            }
+            int e = (expectedModCount == modCount) ? predecessor(current)
+                    : getLowerEntry(element);
+            moveTo(e, current);
+            return current != NIL;
+        }
+
+        @Override
+        public E element() {
+            if (current == NIL) {
+                throw new NoSuchElementException();
+            }
+            return element;
+        }
+
+        /*
+         * Puts this TreeCursor on position e, or on no element if e is NIL,
+         * in which case the next seek starts from near.
+         */
+        private void moveTo(int e, int near) {
+            if (expectedModCount != modCount) {
+                near = NIL;
+                expectedModCount = modCount;
+            }
+            current = e;
+            element = (e == NIL) ? null : tree[e].element;
+            finger = (e == NIL) ? near : e;
+        }
+    }
+
+    /**
+     * Performs an action on each element of this BinarySearchTreeArray
+     * object, in ascending order. Unlike iteration, it never calls successor
+     * or climbs parent indices: it keeps the positions still to come on one
+     * int stack, so each Entry is reached twice, and the stack is kept by the
+     * tree between calls, so that it allocates nothing. The worstTime(n) is
+     * O(n).
+     *
+     * @param action - the action to perform on each element.
+     *
+     * @throws ConcurrentModificationException - if action changes this
+     * BinarySearchTreeArray object.
+     * @throws NullPointerException - if action is null.
+     */
+    @Override
+    public void forEach(Consumer<? super E> action) {
+        Objects.requireNonNull(action);
+        int first = getFirstEntry();
+        if (first != NIL) {
+            walk(first, getLastEntry(), action);
+        }
+    }
+
+    /**
+     * Performs an action on each element of this BinarySearchTreeArray
+     * object that lies between two bounds, in ascending order. It descends
+     * to the Entry at each end of the range and then walks the tree between
+     * them with a stack, as forEach does. The worstTime(n) is O(n), and
+     * averageTime(n) is O(log n + k) for k elements in the range.
+     *
+     * @param lo - the low end of the range, or null for no low end.
+     * @param loInclusive - true if lo itself is in the range.
+     * @param hi - the high end of the range, or null for no high end.
+     * @param hiInclusive - true if hi itself is in the range.
+     * @param action - the action to perform on each element in the range.
+     *
+     * @throws ClassCastException - if lo or hi cannot be compared to the
+     * elements of this BinarySearchTreeArray object.
+     * @throws ConcurrentModificationException - if action changes this
+     * BinarySearchTreeArray object.
+     * @throws NullPointerException - if action is null.
+     */
+    @Override
+    public void forEachInRange(E lo, boolean loInclusive, E hi,
+            boolean hiInclusive, Consumer<? super E> action) {
+        Objects.requireNonNull(action);
+        int lowest = (lo == null) ? getFirstEntry()
+                : loInclusive ? getCeilingEntry(lo) : getHigherEntry(lo);
+        int highest = (hi == null) ? getLastEntry()
+                : hiInclusive ? getFloorEntry(hi) : getLowerEntry(hi);
+        if (lowest != NIL && highest != NIL
+                && compare(tree[lowest].element, tree[highest].element) <= 0) {
+            walk(lowest, highest, action);
+        }
+    }
+
+    /*
+     * Performs action on the elements from position first to position last,
+     * in ascending order. The stack holds the positions whose elements are
+     * still to come and whose right subtrees have not been entered, nearest
+     * on top: each Entry is pushed once on the way down and visited once
+     * when it is popped, and the walk never climbs parent links. It starts
+     * with the ancestors of first that lie to its right.
+     */
+    private void walk(int first, int last, Consumer<? super E> action) {
+        int expectedModCount = modCount;
+        Entry<E>[] tree = this.tree;
+        int[] stack = walkStack.getAndSet(null);
+        if (stack == null) {
+            stack = new int[WALK_STACK_SIZE];
+        }
+        try {
+            int depth = 0;
+            for (int c = first, a = tree[first].parent; a != NIL;
+                    c = a, a = tree[a].parent) {
+                if (tree[a].left == c) {
+                    if (depth == stack.length) {
+                        stack = Arrays.copyOf(stack, depth * 2);
+                    }
+                    stack[depth++] = a;
+                }
+            }
+            for (int i = 0, j = depth - 1; i < j; i++, j--) {                   //nearest ancestor on top
+                int swap = stack[i];
+                stack[i] = stack[j];
+                stack[j] = swap;
+            }
+            int p = first;
+            for (;;) {
+                Entry<E> entry = tree[p];
+                action.accept(entry.element);
+                if (expectedModCount != modCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (p == last) {
+                    return;
+                }
+                for (int q = entry.right; q != NIL; q = tree[q].left) {
+                    if (depth == stack.length) {
+                        stack = Arrays.copyOf(stack, depth * 2);
+                    }
+                    stack[depth++] = q;
+                }
+                p = stack[--depth];
+            } // for
+        } finally {
+            walkStack.set(stack);
+        }
+    }
+
+    /**
+     * Returns a Spliterator over the elements in this BinarySearchTreeArray
+     * object, in ascending order. It splits at subtree roots: the first
+     * split hands the left subtree of the root to a new Spliterator and
+     * keeps the root and its right subtree, and so on down the tree, so
+     * parallel streams over a balanced tree divide the work evenly. It is
+     * SIZED until the first split, and always DISTINCT, SORTED and ORDERED,
+     * with the Comparator of this tree.
+     *
+     * @return a Spliterator over the elements of this BinarySearchTreeArray
+     * object.
+     */
+    @Override
+    public Spliterator<E> spliterator() {
+        return new ArraySpliterator(NIL, NIL, 0, -1, 0);
+    }
+
+    protected class ArraySpliterator implements Spliterator<E> {
+
+        // The position of the next element to be returned (unset until the
+        // spliterator is first used) and the position of the first element
+        // that belongs to someone else (NIL for the end of the tree).
+        protected int current, fence;
+
+        // Which part of the tree this spliterator holds: 0 for all of it,
+        // 1 for the part starting at a subtree root it split off, -1 for
+        // the part ending at one.
+        protected int side;
+
+        // The number of elements left, exact while side is 0 and estimated
+        // afterwards; -1 until the spliterator is first used.
+        protected int est;
+        protected int expectedModCount;
+
+        /**
+         * Initializes this ArraySpliterator object to cover the elements from
+         * position origin up to, but not including, position fence.
+         */
+        protected ArraySpliterator(int origin, int fence, int side, int est,
+                int expectedModCount) {
+            this.current = origin;
+            this.fence = fence;
+            this.side = side;
+            this.est = est;
+            this.expectedModCount = expectedModCount;
+        }
+
+        private int getEstimate() {
+            if (est < 0) {
+                est = size;
+                expectedModCount = modCount;
+                current = root;
+                if (current != NIL) {
+                    while (tree[current].left != NIL) {
+                        current = tree[current].left;
+                    }
+                }
+            }
+            return est;
+        }
+
+        @Override
+        public Spliterator<E> trySplit() {
+            getEstimate();
+            int d = side;
+            int e = current, f = fence;
+            int s = (e == NIL || e == f) ? NIL                                  //empty
+                    : (d == 0) ? root                                           //was all of the tree
+                    : (d > 0) ? tree[e].right                                   //was the right part
+                    : (f != NIL) ? tree[f].left                                 //was the left part
+                    : NIL;
+            if (s != NIL && s != e && s != f
+                    && compare(tree[e].element, tree[s].element) < 0) {         //e not already past s
+                side = 1;
+                est >>>= 1;
+                current = s;
+                return new ArraySpliterator(e, s, -1, est, expectedModCount);
+            }
+            return null;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super E> action) {
+            if (action == null) {
+                throw new NullPointerException();
+            }
+            getEstimate();
+            int e = current;
+            if (e == NIL || e == fence) {
+                return false;
+            }
+            current = successor(e);
+            action.accept(tree[e].element);
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super E> action) {
+            if (action == null) {
+                throw new NullPointerException();
+            }
+            getEstimate();
+            int f = fence, e = current;
+            current = f;
+            for (; e != NIL && e != f; e = successor(e)) {
+                action.accept(tree[e].element);
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+
+        @Override
+        public long estimateSize() {
+            return getEstimate();
+        }
+
+        @Override
+        public int characteristics() {
+            return (side == 0 ? Spliterator.SIZED : 0) | Spliterator.DISTINCT
+                    | Spliterator.SORTED | Spliterator.ORDERED
+                    | Spliterator.NONNULL;
+        }
+
+        @Override
+        public Comparator<? super E> getComparator() {
+            return comparator;
+        }
+    }
 }
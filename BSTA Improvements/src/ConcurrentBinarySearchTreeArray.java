@@ -0,0 +1,285 @@
+import java.util.AbstractSet;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * A thread-safe Set backed by a BinarySearchTreeArray. Writers take the
+ * write lock of a StampedLock; contains and size first try an optimistic
+ * read, which takes no lock at all and so lets any number of readers run in
+ * parallel. An optimistic read walks the int indices of the tree without
+ * synchronisation, so it may see the tree half-way through a change: it
+ * bounds its steps, treats any exception as a conflict, and only trusts its
+ * answer if the lock's stamp is still valid afterwards. After a few
+ * conflicts it waits for the read lock instead.
+ *
+ * Iterators work on a snapshot of the elements taken under the read lock,
+ * so they never throw ConcurrentModificationException; their remove method
+ * removes the element from this set.
+ *
+ * @param <E> the element type, ordered by the Comparable interface or by a
+ * specified Comparator
+ */
+public class ConcurrentBinarySearchTreeArray<E> extends AbstractSet<E> {
+
+    // Optimistic attempts made by contains before it takes the read lock.
+    protected static final int MAX_OPTIMISTIC_ATTEMPTS = 3;
+
+    protected final BinarySearchTreeArray<E> tree;
+    protected final StampedLock lock = new StampedLock();
+
+    /**
+     * Initializes this ConcurrentBinarySearchTreeArray object to be empty, to
+     * contain only elements of type E, to be ordered by the Comparable
+     * interface, and to contain no duplicate elements.
+     */
+    public ConcurrentBinarySearchTreeArray() {
+        this(new BinarySearchTreeArray<E>());
+    } // default constructor
+
+    /**
+     * Initializes this ConcurrentBinarySearchTreeArray object to be empty, to
+     * contain only elements of type E, to be ordered by a specified
+     * Comparator, and to contain no duplicate elements.
+     *
+     * @param comparator - the Comparator that will order the elements, or
+     * null for their natural ordering.
+     */
+    public ConcurrentBinarySearchTreeArray(Comparator<? super E> comparator) {
+        this(new BinarySearchTreeArray<E>(comparator));
+    }
+
+    /**
+     * Initializes this ConcurrentBinarySearchTreeArray object to guard a
+     * specified tree, such as an AVLTreeArray. The tree must not be used
+     * directly afterwards. Lookups share the read lock, so the tree must be
+     * one that a lookup does not write to: not a splaying SplayTreeArray,
+     * which rotates on every contains, nor a tree with a lookup cache, which
+     * fills a slot on every miss.
+     *
+     * @param tree - the tree that will hold the elements of this set.
+     *
+     * @throws IllegalArgumentException - if tree is a splaying
+     * SplayTreeArray or has a lookup cache.
+     */
+    public ConcurrentBinarySearchTreeArray(BinarySearchTreeArray<E> tree) {
+        if (tree instanceof SplayTreeArray
+                && ((SplayTreeArray<E>) tree).isSplaying()) {
+            throw new IllegalArgumentException("A splaying tree changes "
+                    + "shape on every lookup");
+        }
+        if (tree.lookupCacheCapacity() > 0) {
+            throw new IllegalArgumentException("A tree with a lookup cache "
+                    + "writes to it on every lookup");
+        }
+        this.tree = tree;
+    }
+
+    /**
+     * Returns the size of this ConcurrentBinarySearchTreeArray object.
+     *
+     * @return the size of this ConcurrentBinarySearchTreeArray object.
+     */
+    @Override
+    public int size() {
+        long stamp = lock.tryOptimisticRead();
+        int size = tree.size;
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                size = tree.size;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Determines if this ConcurrentBinarySearchTreeArray object contains a
+     * specified element, without locking unless a writer gets in the way.
+     * The worstTime(n) is O(n) and averageTime(n) is O(log n) for an
+     * unbalanced tree.
+     *
+     * @param obj – the element sought.
+     *
+     * @return true – if obj is an element of this set; otherwise, false.
+     *
+     * @throws ClassCastException – if obj cannot be compared to the elements
+     * of this set.
+     * @throws NullPointerException – if obj is null.
+     */
+    @Override
+    public boolean contains(Object obj) {
+        if (obj == null) {
+            throw new NullPointerException();
+        }
+        for (int i = 0; i < MAX_OPTIMISTIC_ATTEMPTS; i++) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp == 0L) {
+                break;                                                          //a writer holds the lock
+            }
+            try {
+                boolean found = optimisticContains(obj);
+                if (lock.validate(stamp)) {
+                    return found;
+                }
+            } catch (RuntimeException e) {
+                // The tree changed under us, or obj cannot be compared; the
+                // read-locked search below tells the two apart.
+                if (lock.validate(stamp)) {
+                    break;
+                }
+            }
+        }
+        long stamp = lock.readLock();
+        try {
+            return tree.contains(obj);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    } // method contains
+
+    /*
+     * Searches the tree for obj without any locking. The result is only
+     * meaningful if no writer ran meanwhile, which the caller checks. The
+     * array and its length are read once and the walk is bounded by that
+     * length, so that a tree caught mid-rotation cannot loop forever.
+     */
+    protected boolean optimisticContains(Object obj) {
+        BinarySearchTreeArray.Entry<E>[] entries = tree.tree;
+        int e = tree.root;
+        for (int steps = entries.length; e != BinarySearchTreeArray.NIL
+                && steps > 0; steps--) {
+            BinarySearchTreeArray.Entry<E> entry = entries[e];
+            int comp = tree.compare(obj, entry.element);
+            if (comp < 0) {
+                e = entry.left;
+            } else if (comp > 0) {
+                e = entry.right;
+            } else {
+                return true;
+            }
+        } // for
+        return false;
+    }
+
+    /**
+     * Ensures that this ConcurrentBinarySearchTreeArray object contains a
+     * specified element.
+     *
+     * @param element – the element whose presence is ensured.
+     *
+     * @return true – if this set changed as a result of this method call;
+     * otherwise, false.
+     *
+     * @throws ClassCastException – if element cannot be compared to the
+     * elements of this set.
+     * @throws NullPointerException – if element is null.
+     */
+    @Override
+    public boolean add(E element) {
+        long stamp = lock.writeLock();
+        try {
+            return tree.add(element);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Ensures that this ConcurrentBinarySearchTreeArray object does not
+     * contain a specified element.
+     *
+     * @param obj – the element whose absence is ensured.
+     *
+     * @return true – if this set changed as a result of this method call;
+     * otherwise, false.
+     *
+     * @throws ClassCastException – if obj cannot be compared to the elements
+     * of this set.
+     * @throws NullPointerException – if obj is null.
+     */
+    @Override
+    public boolean remove(Object obj) {
+        long stamp = lock.writeLock();
+        try {
+            return tree.remove(obj);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Removes all of the elements from this ConcurrentBinarySearchTreeArray
+     * object.
+     */
+    @Override
+    public void clear() {
+        long stamp = lock.writeLock();
+        try {
+            tree.clear();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Returns an iterator over a snapshot of the elements of this
+     * ConcurrentBinarySearchTreeArray object, in ascending order. The
+     * snapshot is taken under the read lock, in O(n) time; later changes to
+     * this set are not reflected in it.
+     *
+     * @return an iterator over the elements of this set.
+     */
+    @Override
+    public Iterator<E> iterator() {
+        Object[] snapshot;
+        long stamp = lock.readLock();
+        try {
+            snapshot = tree.toArray();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        return new SnapshotIterator(snapshot);
+    }
+
+    protected class SnapshotIterator implements Iterator<E> {
+
+        protected final Object[] snapshot;
+        protected int next = 0;
+        protected boolean canRemove = false;
+
+        /**
+         * Positions this SnapshotIterator at the start of snapshot.
+         */
+        protected SnapshotIterator(Object[] snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < snapshot.length;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public E next() {
+            if (next == snapshot.length) {
+                throw new NoSuchElementException();
+            }
+            canRemove = true;
+            return (E) snapshot[next++];
+        }
+
+        @Override
+        public void remove() {
+            if (!canRemove) {
+                throw new IllegalStateException();
+            }
+            canRemove = false;
+            ConcurrentBinarySearchTreeArray.this.remove(snapshot[next - 1]);
+        }
+    }
+}
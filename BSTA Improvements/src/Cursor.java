@@ -0,0 +1,68 @@
+import java.util.NoSuchElementException;
+
+/**
+ * A position in a tree that is kept between calls, so that a lookup near
+ * the last one does not start again from the root. seek climbs from the
+ * current position only as far as the nearest ancestor whose subtree can
+ * hold the key, and then descends; in a balanced tree, a key d elements
+ * away is usually reached in O(log d) steps rather than O(log n). next and
+ * prev step to the neighbouring elements in constant amortized time, so a
+ * scan that alternates seeks and short runs of next calls, as over a time
+ * series, stays close to the elements it has just visited.
+ *
+ * The climb and the descent each take about log d steps, and the entries
+ * near the root, which a seek may skip, are the ones most likely to be in
+ * the cache already; so seek beats a lookup from the root when d is small
+ * (a few dozen elements in a tree of a million), and costs a little more
+ * when d is in the thousands.
+ *
+ * A Cursor may be used while its tree changes. After a change it finds its
+ * place again with one descent from the root.
+ *
+ * @param <E> the element type
+ */
+public interface Cursor<E> {
+
+    /**
+     * Moves this Cursor to the smallest element that is greater than or
+     * equal to a specified key.
+     *
+     * @param key – the key to look for.
+     *
+     * @return true – if there is such an element; otherwise, return false,
+     * and this Cursor is on no element.
+     *
+     * @throws ClassCastException – if key cannot be compared to the elements
+     * of the tree.
+     * @throws NullPointerException – if key is null.
+     */
+    boolean seek(E key);
+
+    /**
+     * Moves this Cursor to the next larger element.
+     *
+     * @return true – if there is such an element; otherwise, or if this
+     * Cursor was on no element, return false, and this Cursor is on no
+     * element.
+     */
+    boolean next();
+
+    /**
+     * Moves this Cursor to the next smaller element.
+     *
+     * @return true – if there is such an element; otherwise, or if this
+     * Cursor was on no element, return false, and this Cursor is on no
+     * element.
+     */
+    boolean prev();
+
+    /**
+     * Returns the element this Cursor was last moved to. It stays the same if
+     * that element is then removed from the tree.
+     *
+     * @return the element this Cursor is on.
+     *
+     * @throws NoSuchElementException – if this Cursor is on no element.
+     */
+    E element();
+}
@@ -0,0 +1,231 @@
+import java.util.AbstractSet;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An immutable, sorted Set whose elements are kept in Eytzinger (breadth-
+ * first) order in one flat array: the root is in position 1 and the
+ * children of position k are in positions 2k and 2k + 1. A search walks
+ * down that implicit tree with no links to follow, each step doing one
+ * comparison and a shift; the first few levels are shared by every search
+ * and stay in cache, and the two children of a position sit next to each
+ * other, so each level costs at most one cache miss.
+ *
+ * An EytzingerSet is made by the freeze() method of BinarySearchTree and
+ * BinarySearchTreeArray, and is not changed by later changes to the tree it
+ * was frozen from. Its add and remove methods throw
+ * UnsupportedOperationException.
+ *
+ * @param <E> the element type, ordered by the Comparable interface or by
+ * the Comparator of the tree it was frozen from
+ */
+public class EytzingerSet<E> extends AbstractSet<E> {
+
+    // elements[k] for 1 <= k <= size; elements[0] is unused.
+    protected final Object[] elements;
+    protected final int size;
+    protected final Comparator<? super E> comparator;
+
+    /**
+     * Initializes this EytzingerSet object to contain the elements returned
+     * by a specified iterator, which must return size elements in strictly
+     * ascending order. The worstTime(n) is O(n).
+     *
+     * @param sorted - an iterator over the elements, in ascending order.
+     * @param size - the number of elements sorted will return.
+     * @param comparator - the Comparator that orders the elements, or null
+     * for their natural ordering.
+     */
+    protected EytzingerSet(Iterator<? extends E> sorted, int size,
+            Comparator<? super E> comparator) {
+        this.elements = new Object[size + 1];
+        this.size = size;
+        this.comparator = comparator;
+        fill(1, sorted);
+    }
+
+    /*
+     * Fills the subtree rooted at position k, in order, from sorted.
+     */
+    private void fill(int k, Iterator<? extends E> sorted) {
+        if (k <= size) {
+            fill(2 * k, sorted);
+            elements[k] = sorted.next();
+            fill(2 * k + 1, sorted);
+        }
+    }
+
+    /**
+     * Returns the size of this EytzingerSet object.
+     *
+     * @return the size of this EytzingerSet object.
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the comparator used to order the elements in this EytzingerSet
+     * object, or null if they are in their natural order.
+     *
+     * @return the comparator of this EytzingerSet object, or null.
+     */
+    public Comparator<? super E> comparator() {
+        return comparator;
+    }
+
+    /**
+     * Determines if this EytzingerSet object contains a specified element.
+     * The worstTime(n) is O(log n).
+     *
+     * @param obj – the element sought in this EytzingerSet object.
+     *
+     * @return true – if obj is an element in this EytzingerSet object;
+     * otherwise, return false.
+     *
+     * @throws ClassCastException – if obj cannot be compared to the elements
+     * in this EytzingerSet object.
+     * @throws NullPointerException – if obj is null.
+     */
+    @Override
+    public boolean contains(Object obj) {
+        int k = lowerBound(obj);
+        return k != 0 && compare(elements[k], obj) == 0;
+    }
+
+    /*
+     * Returns the position of the smallest element that is greater than or
+     * equal to obj, or 0 if there is none. The descent records, as the bits
+     * of k, whether it went right at each level; it always runs to the
+     * bottom, so the loop has no early exit to mispredict.
+     */
+    @SuppressWarnings("unchecked")
+    protected int lowerBound(Object obj) {
+        if (obj == null) {
+            throw new NullPointerException();
+        }
+        Object[] elements = this.elements;
+        int n = size;
+        int k = 1;
+        if (comparator == null) {
+            Comparable<? super E> key = (Comparable<? super E>) obj;
+            while (k <= n) {
+                k = 2 * k + (key.compareTo((E) elements[k]) > 0 ? 1 : 0);
+            }
+        } else {
+            Comparator<? super E> cpr = comparator;
+            while (k <= n) {
+                k = 2 * k + (cpr.compare((E) obj, (E) elements[k]) > 0
+                        ? 1 : 0);
+            }
+        }
+        // Undo the right turns taken after the last left turn, then that
+        // left turn itself.
+        return k >>> (Integer.numberOfTrailingZeros(~k) + 1);
+    }
+
+    @SuppressWarnings("unchecked")
+    protected final int compare(Object k1, Object k2) {
+        return comparator == null ? ((Comparable<? super E>) k1).compareTo(
+                (E) k2) : comparator.compare((E) k1, (E) k2);
+    }
+
+    /*
+     * Returns the position of the element after the one in position k, in
+     * ascending order, or 0 if there is none.
+     */
+    protected int successor(int k) {
+        if (2 * k + 1 <= size) {
+            k = 2 * k + 1;
+            while (2 * k <= size) {
+                k = 2 * k;
+            }
+            return k;
+        }
+        return k >>> (Integer.numberOfTrailingZeros(~k) + 1);
+    }
+
+    /**
+     * Returns an iterator over the elements in this EytzingerSet object, in
+     * ascending order. The iterator does not support remove().
+     *
+     * @return an iterator positioned at the smallest element.
+     */
+    @Override
+    public Iterator<E> iterator() {
+        int k = (size == 0) ? 0 : 1;
+        if (k != 0) {
+            while (2 * k <= size) {
+                k = 2 * k;
+            }
+        }
+        return new EytzingerIterator(k, null);
+    }
+
+    /**
+     * Returns an iterator over the elements in this EytzingerSet object that
+     * are greater than or equal to fromElement and less than toElement, in
+     * ascending order. The iterator does not support remove(). The
+     * worstTime(n) to create it is O(log n).
+     *
+     * @param fromElement – the low end of the range (inclusive).
+     * @param toElement – the high end of the range (exclusive).
+     *
+     * @return an iterator over the elements in the range.
+     *
+     * @throws IllegalArgumentException – if fromElement is greater than
+     * toElement.
+     * @throws NullPointerException – if fromElement or toElement is null.
+     */
+    public Iterator<E> iterator(E fromElement, E toElement) {
+        if (toElement == null) {
+            throw new NullPointerException();
+        }
+        if (compare(fromElement, toElement) > 0) {
+            throw new IllegalArgumentException("fromElement > toElement");
+        }
+        return new EytzingerIterator(lowerBound(fromElement), toElement);
+    }
+
+    protected class EytzingerIterator implements Iterator<E> {
+
+        protected int next;
+        protected final E toElement;
+
+        /**
+         * Positions this EytzingerIterator at position first, to stop before
+         * toElement, or at the end if toElement is null.
+         */
+        protected EytzingerIterator(int first, E toElement) {
+            this.toElement = toElement;
+            this.next = first;
+            checkEnd();
+        }
+
+        private void checkEnd() {
+            if (next != 0 && toElement != null
+                    && compare(elements[next], toElement) >= 0) {
+                next = 0;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != 0;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public E next() {
+            if (next == 0) {
+                throw new NoSuchElementException();
+            }
+            E element = (E) elements[next];
+            next = successor(next);
+            checkEnd();
+            return element;
+        }
+    }
+}
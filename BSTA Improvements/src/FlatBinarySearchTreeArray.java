@@ -0,0 +1,488 @@
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A binary search tree stored as a "struct of arrays": instead of one Entry
+ * object per element, the elements are kept in a plain Object array and the
+ * left, right and parent links in parallel int arrays, all addressed by the
+ * same slot index. A lookup therefore reads the links of a node straight out
+ * of an int array rather than through a pointer to a separate heap object,
+ * and each node costs four array cells rather than an Entry object with its
+ * own header.
+ *
+ * The public behaviour is the same as that of BinarySearchTreeArray.
+ *
+ * @param <E> the element type, ordered by the Comparable interface
+ */
+public class FlatBinarySearchTreeArray<E> extends AbstractSet<E> {
+
+    protected Object[] elements;
+    protected int[] left, right, parent;
+    protected int root, size;
+    protected int modCount = 0;
+    protected static final int NIL = -1;
+    protected static final int DEFAULT_SIZE = 16;
+
+    // The freeList is a stack of array positions that have been
+    // emptied through the removal of an element and are now available
+    // to store a new element. It is threaded through the left array:
+    // freeHead is the most recently freed slot and left[slot] holds the
+    // slot freed before it, so freeing and reusing a slot never allocates.
+    protected int freeHead = NIL, freeCount = 0;
+
+    /**
+     * Initializes this FlatBinarySearchTreeArray object to be empty, to
+     * contain only elements of type E, to be ordered by the Comparable
+     * interface, and to contain no duplicate elements.
+     */
+    public FlatBinarySearchTreeArray() {
+        this(DEFAULT_SIZE);
+    }// default constructor
+
+    /**
+     * Initialises this FlatBinarySearchTreeArray object to be empty, with a
+     * specified initial capacity.
+     *
+     * @param capacity - the initial capacity of this FlatBinarySearchTreeArray
+     * object.
+     *
+     * @throws IllegalArgumentException - if capacity is non-positive
+     */
+    public FlatBinarySearchTreeArray(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Non-positive capacity: "
+                    + capacity);
+        }
+        root = NIL;
+        size = 0;
+        modCount = 0;
+        elements = new Object[capacity];
+        left = new int[capacity];
+        right = new int[capacity];
+        parent = new int[capacity];
+    }
+
+    /**
+     * Initialises this FlatBinarySearchTreeArray object to contain a copy of
+     * specified FlatBinarySearchTreeArray object. The worstTime(n) is O(n).
+     *
+     * @param otherTree the specified FlatBinarySearchTreeArray object that
+     * this FlatBinarySearchTreeArray object will be assigned a copy of.
+     */
+    public FlatBinarySearchTreeArray(
+            FlatBinarySearchTreeArray<? extends E> otherTree) {
+        root = otherTree.root;
+        modCount = 0;
+        size = otherTree.size;
+        elements = otherTree.elements.clone();
+        left = otherTree.left.clone();
+        right = otherTree.right.clone();
+        parent = otherTree.parent.clone();
+        freeHead = otherTree.freeHead;
+        freeCount = otherTree.freeCount;
+    } // copy constructor
+
+    /**
+     * Returns true if obj is an instance of Set with the same elements as this
+     * binary search tree, otherwise returns false.
+     *
+     * @param obj the object to compare with this binary search tree
+     * @return true if obj is a Set equal to this tree, otherwise false
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof Set)) {
+            return false;
+        }
+        Set<?> other = (Set<?>) obj;
+        if (size != other.size()) {
+            return false;
+        }
+        for (E current : this) {
+            if (!other.contains(current)) {
+                return false;
+            }
+        }
+        return true;
+    } // method equals Object
+
+    /**
+     * Returns the size of this FlatBinarySearchTreeArray object. worstTime(n)
+     * is constant O(1).
+     *
+     * @return the size of this FlatBinarySearchTreeArray object.
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    // For testing purposes, displays the whole contents of the parallel
+    // arrays and the values of other fields of the class.
+    protected void displayTreeArray() {
+        System.out.println("\nLength = " + elements.length + ", size = " + size
+                + ", listSize = " + freeCount);
+        StringBuilder sb = new StringBuilder("List = [");
+        for (int slot = freeHead; slot != NIL; slot = left[slot]) {
+            if (slot != freeHead) {
+                sb.append(", ");
+            }
+            sb.append(slot);
+        }
+        System.out.println(sb.append(']'));
+        sb = new StringBuilder("[");
+        for (int i = 0; i < elements.length; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            if (elements[i] == null) {
+                sb.append("null");
+            } else {
+                sb.append("Element=").append(elements[i])
+                        .append(" parent=").append(parent[i])
+                        .append(" left=").append(left[i])
+                        .append(" right=").append(right[i]);
+            }
+        }
+        System.out.println(sb.append(']'));
+        System.out.println("\n");
+    }
+
+    /**
+     * Determines if there is an element in this FlatBinarySearchTreeArray
+     * object that equals a specified element. The worstTime(n) is O(n) and
+     * averageTime(n) is O(log n).
+     *
+     * @param obj – the element sought in this FlatBinarySearchTreeArray
+     * object.
+     *
+     * @return true – if there is an element in this FlatBinarySearchTreeArray
+     * object that equals obj; otherwise, return false.
+     *
+     * @throws ClassCastException – if obj is not null but cannot be compared to
+     * the elements already in this FlatBinarySearchTreeArray object.
+     * @throws NullPointerException – if obj is null.
+     */
+    @Override
+    public boolean contains(Object obj) {
+        return getEntry(obj) != NIL;
+    }
+
+    /**
+     * Ensures that this FlatBinarySearchTreeArray object contains a specified
+     * element. The worstTime(n) is O(n) and averageTime(n) is O(log n).
+     *
+     * @param element – the element whose presence is ensured in this
+     * FlatBinarySearchTreeArray object.
+     *
+     * @return true – if this FlatBinarySearchTreeArray object changed as a
+     * result of this method call (that is, if element was actually inserted);
+     * otherwise, return false.
+     *
+     * @throws ClassCastException – if element is not null but cannot be
+     * compared to the elements of this FlatBinarySearchTreeArray object.
+     * @throws NullPointerException – if element is null.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean add(E element) {
+        if (element == null) {
+            throw new NullPointerException();
+        }
+        if (size == elements.length) {
+            resize(elements.length * 2);
+        }
+        int nextSlot = (freeHead != NIL) ? freeHead : size;
+        int p = NIL;
+        if (root != NIL) {
+            Comparable<? super E> key = (Comparable<? super E>) element;
+            int e = root, comp;
+            while (true) {
+                comp = key.compareTo((E) elements[e]);
+                if (comp == 0) {
+                    return false;
+                }
+                if (comp < 0) {
+                    if (left[e] == NIL) {
+                        left[e] = nextSlot;
+                        break;
+                    }
+                    e = left[e];
+                } else {
+                    if (right[e] == NIL) {
+                        right[e] = nextSlot;
+                        break;
+                    }
+                    e = right[e];
+                }
+            } // while
+            p = e;
+        } else {
+            root = nextSlot;
+        }
+        if (nextSlot == freeHead) {
+            freeHead = left[nextSlot];
+            freeCount--;
+        }
+        elements[nextSlot] = element;
+        left[nextSlot] = NIL;
+        right[nextSlot] = NIL;
+        parent[nextSlot] = p;
+        size++;
+        modCount++;
+        return true;
+    } // method add
+
+    /**
+     * Ensures that this FlatBinarySearchTreeArray object does not contain a
+     * specified element. The worstTime(n) is O(n) and averageTime(n) is O(log
+     * n).
+     *
+     * @param obj – the object whose absence is ensured in this
+     * FlatBinarySearchTreeArray object.
+     *
+     * @return true – if this FlatBinarySearchTreeArray object changed as a
+     * result of this method call (that is, if obj was actually removed);
+     * otherwise, return false.
+     *
+     * @throws ClassCastException – if obj is not null but cannot be compared to
+     * the elements of this FlatBinarySearchTreeArray object.
+     * @throws NullPointerException – if obj is null.
+     */
+    @Override
+    public boolean remove(Object obj) {
+        int e = getEntry(obj);
+        if (e == NIL) {
+            return false;
+        }
+        deleteEntry(e);
+        modCount++;
+        return true;
+    } // method remove
+
+    /**
+     * Finds the slot that houses a specified element, if there is such a
+     * slot. The worstTime(n) is O(n), and averageTime(n) is O(log n).
+     *
+     * @param obj - the element whose slot is sought.
+     *
+     * @return the index of the slot that houses obj - if there is such a
+     * slot; otherwise, return NIL.
+     *
+     * @throws ClassCastException - if obj is not comparable to the elements
+     * already in this FlatBinarySearchTreeArray object.
+     * @throws NullPointerException - if obj is null.
+     */
+    @SuppressWarnings("unchecked")
+    protected int getEntry(Object obj) {
+        if (obj == null) {
+            throw new NullPointerException();
+        }
+        Comparable<? super E> key = (Comparable<? super E>) obj;
+        Object[] elements = this.elements;
+        int[] left = this.left, right = this.right;
+        int comp, e = root;
+        while (e != NIL) {
+            comp = key.compareTo((E) elements[e]);
+            if (comp == 0) {
+                return e;
+            } else if (comp < 0) {
+                e = left[e];
+            } else {
+                e = right[e];
+            }
+        } // while
+        return NIL;
+    } // method getEntry
+
+    /**
+     * Deletes the element in a specified slot from this
+     * FlatBinarySearchTreeArray.
+     *
+     * @param p – the index of the slot whose element is to be deleted from
+     * this FlatBinarySearchTreeArray object.
+     *
+     * @return the index of the slot that was actually freed.
+     */
+    protected int deleteEntry(int p) {
+        size--;
+        // If p has two children, replace p's element with p's successor's
+        // element, then make p reference that successor.
+        if (left[p] != NIL && right[p] != NIL) {
+            int s = successor(p);
+            elements[p] = elements[s];
+            p = s;
+        } // p had two children
+
+        // At this point, p has either no children or one child.
+        int replacement = (left[p] != NIL) ? left[p] : right[p];
+        int pp = parent[p];
+        if (replacement != NIL) {
+            parent[replacement] = pp;
+        }
+        if (pp == NIL) {
+            root = replacement;
+        } else if (left[pp] == p) {
+            left[pp] = replacement;
+        } else {
+            right[pp] = replacement;
+        }
+        elements[p] = null;
+        left[p] = freeHead;
+        right[p] = NIL;
+        parent[p] = NIL;
+        freeHead = p;
+        freeCount++;
+        return p;
+    } // method deleteEntry
+
+    /**
+     * Finds the successor of a specified slot in this
+     * FlatBinarySearchTreeArray. The worstTime(n) is O(n) and averageTime(n)
+     * is constant.
+     *
+     * @param e – the index of the slot whose successor is to be found.
+     *
+     * @return the index of the successor of e, if e has a successor;
+     * otherwise, return NIL.
+     */
+    protected int successor(int e) {
+        if (e == NIL) {
+            return NIL;
+        } else if (right[e] != NIL) {
+            // successor is leftmost slot in right subtree of e
+            int p = right[e];
+            while (left[p] != NIL) {
+                p = left[p];
+            }
+            return p;
+        } // e has a right child
+        else {
+            // go up the tree to the left as far as possible, then go up
+            // to the right.
+            int p = parent[e];
+            int ch = e;
+            while (p != NIL && ch == right[p]) {
+                ch = p;
+                p = parent[p];
+            } // while
+            return p;
+        } // e has no right child
+    } // method successor
+
+    /*
+     * Grows the parallel arrays to newLength slots.
+     */
+    protected void resize(int newLength) {
+        elements = Arrays.copyOf(elements, newLength);
+        left = Arrays.copyOf(left, newLength);
+        right = Arrays.copyOf(right, newLength);
+        parent = Arrays.copyOf(parent, newLength);
+    } // method resize
+
+    /**
+     * Returns an iterator positioned at the smallest element in this
+     * FlatBinarySearchTreeArray object.
+     *
+     * @return an iterator positioned at the smallest element (according to the
+     * element class’s implementation of the Comparable interface) in this
+     * FlatBinarySearchTreeArray object.
+     */
+    @Override
+    public Iterator<E> iterator() {
+        return new ArrayIterator();
+    }
+
+    protected class ArrayIterator implements Iterator<E> {
+
+        protected int next = NIL, lastReturned = NIL;
+        protected int modCountOnEntry;
+
+        /**
+         * Positions this ArrayIterator to the smallest element, according to
+         * the Comparable interface, in the FlatBinarySearchTreeArray object.
+         * The worstTime(n) is O(n) and averageTime(n) is O(log n).
+         */
+        protected ArrayIterator() {
+            if (root != NIL) {
+                next = root;
+                while (left[next] != NIL) {
+                    next = left[next];
+                }
+            }
+            modCountOnEntry = modCount;
+        }
+
+        /**
+         * Determines if there are still some elements, in the
+         * FlatBinarySearchTreeArray object this ArrayIterator object is
+         * iterating over, that have not been accessed by this ArrayIterator
+         * object.
+         *
+         * @return true – if there are still some elements that have not been
+         * accessed by this ArrayIterator object; otherwise, return false.
+         */
+        @Override
+        public boolean hasNext() {
+            return next != NIL;
+        }
+
+        /**
+         * Returns the element in the slot this ArrayIterator object was
+         * positioned at before this call, and advances this ArrayIterator
+         * object. The worstTime(n) is O(n) and averageTime(n) is constant.
+         *
+         * @return the element this ArrayIterator object was positioned at
+         * before this call.
+         *
+         * @throws NoSuchElementException – if this ArrayIterator object was not
+         * positioned at a slot before this call.
+         */
+        @Override
+        @SuppressWarnings("unchecked")
+        public E next() {
+            if (modCountOnEntry != modCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (next == NIL) {
+                throw new NoSuchElementException();
+            }
+            lastReturned = next;
+            next = successor(next);
+            return (E) elements[lastReturned];
+        }
+
+        /**
+         * Removes the element returned by the most recent call to this
+         * ArrayIterator object’s next() method. The worstTime(n) is O(n) and
+         * averageTime(n) is constant.
+         *
+         * @throws IllegalStateException – if this ArrayIterator’s next() method
+         * was not called before this call, or if this ArrayIterator’s remove()
+         * method was called between the call to the next() method and this
+         * call.
+         */
+        @Override
+        public void remove() {
+            if (lastReturned == NIL) {
+                throw new IllegalStateException();
+            }
+            if (modCountOnEntry != modCount) {
+                throw new ConcurrentModificationException();
+            }
+            // A node with two children takes over its successor's element,
+            // so the next element to return is now in lastReturned.
+            if (left[lastReturned] != NIL && right[lastReturned] != NIL) {
+                next = lastReturned;
+            }
+            deleteEntry(lastReturned);
+            modCount++;
+            modCountOnEntry = modCount;
+            lastReturned = NIL;
+        }
+    }
+}
@@ -0,0 +1,448 @@
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * A binary search tree of int keys, laid out like FlatBinarySearchTreeArray
+ * but with the keys in an int array instead of an Object array. The
+ * primitive methods add(int), contains(int) and remove(int) neither box
+ * their argument nor allocate anything, apart from the occasional doubling
+ * of the arrays in add.
+ *
+ * The class is also a Set of Integer, so it can be passed wherever a Set is
+ * expected; the methods inherited through that interface box and unbox.
+ */
+public class IntBinarySearchTreeArray extends AbstractSet<Integer> {
+
+    protected int[] keys;
+    protected int[] left, right, parent;
+    protected int root, size;
+    protected int modCount = 0;
+    protected static final int NIL = -1;
+    protected static final int DEFAULT_SIZE = 16;
+
+    // The freeList is a stack of array positions that have been emptied
+    // through the removal of a key, threaded through the left array:
+    // freeHead is the most recently freed slot and left[slot] holds the
+    // slot freed before it.
+    protected int freeHead = NIL, freeCount = 0;
+
+    /**
+     * Initializes this IntBinarySearchTreeArray object to be empty.
+     */
+    public IntBinarySearchTreeArray() {
+        this(DEFAULT_SIZE);
+    }// default constructor
+
+    /**
+     * Initialises this IntBinarySearchTreeArray object to be empty, with a
+     * specified initial capacity.
+     *
+     * @param capacity - the initial capacity of this IntBinarySearchTreeArray
+     * object.
+     *
+     * @throws IllegalArgumentException - if capacity is non-positive
+     */
+    public IntBinarySearchTreeArray(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Non-positive capacity: "
+                    + capacity);
+        }
+        root = NIL;
+        size = 0;
+        keys = new int[capacity];
+        left = new int[capacity];
+        right = new int[capacity];
+        parent = new int[capacity];
+    }
+
+    /**
+     * Initialises this IntBinarySearchTreeArray object to contain a copy of
+     * specified IntBinarySearchTreeArray object. The worstTime(n) is O(n).
+     *
+     * @param otherTree the specified IntBinarySearchTreeArray object that
+     * this IntBinarySearchTreeArray object will be assigned a copy of.
+     */
+    public IntBinarySearchTreeArray(IntBinarySearchTreeArray otherTree) {
+        root = otherTree.root;
+        size = otherTree.size;
+        keys = otherTree.keys.clone();
+        left = otherTree.left.clone();
+        right = otherTree.right.clone();
+        parent = otherTree.parent.clone();
+        freeHead = otherTree.freeHead;
+        freeCount = otherTree.freeCount;
+    } // copy constructor
+
+    /**
+     * Returns an IntBinarySearchTreeArray object that contains the keys of a
+     * specified array, which must be in strictly ascending order. The tree is
+     * built perfectly balanced in one pass, with the i-th smallest key in
+     * array position i. The worstTime(n) is O(n).
+     *
+     * @param sorted - the keys, in strictly ascending order.
+     *
+     * @return a balanced IntBinarySearchTreeArray containing the keys of
+     * sorted.
+     *
+     * @throws IllegalArgumentException - if sorted is not in strictly
+     * ascending order.
+     */
+    public static IntBinarySearchTreeArray fromSorted(int[] sorted) {
+        for (int i = 1; i < sorted.length; i++) {
+            if (sorted[i - 1] >= sorted[i]) {
+                throw new IllegalArgumentException("Not in strictly "
+                        + "ascending order: " + sorted[i - 1] + ", "
+                        + sorted[i]);
+            }
+        }
+        IntBinarySearchTreeArray result
+                = new IntBinarySearchTreeArray(Math.max(sorted.length, 1));
+        System.arraycopy(sorted, 0, result.keys, 0, sorted.length);
+        result.root = result.link(0, sorted.length - 1, NIL);
+        result.size = sorted.length;
+        return result;
+    }
+
+    /*
+     * Links positions lo..hi into a perfectly balanced subtree under parent
+     * p and returns the position of its root.
+     */
+    private int link(int lo, int hi, int p) {
+        if (lo > hi) {
+            return NIL;
+        }
+        int mid = (lo + hi) >>> 1;
+        parent[mid] = p;
+        left[mid] = link(lo, mid - 1, mid);
+        right[mid] = link(mid + 1, hi, mid);
+        return mid;
+    }
+
+    /**
+     * Returns the size of this IntBinarySearchTreeArray object.
+     *
+     * @return the size of this IntBinarySearchTreeArray object.
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Determines if this IntBinarySearchTreeArray object contains a
+     * specified key. The worstTime(n) is O(n) and averageTime(n) is
+     * O(log n).
+     *
+     * @param key – the key sought.
+     *
+     * @return true – if key is in this IntBinarySearchTreeArray object;
+     * otherwise, return false.
+     */
+    public boolean contains(int key) {
+        return getEntry(key) != NIL;
+    }
+
+    @Override
+    public boolean contains(Object obj) {
+        return obj instanceof Integer && contains(((Integer) obj).intValue());
+    }
+
+    /**
+     * Ensures that this IntBinarySearchTreeArray object contains a specified
+     * key. The worstTime(n) is O(n) and averageTime(n) is O(log n).
+     *
+     * @param key – the key whose presence is ensured.
+     *
+     * @return true – if this IntBinarySearchTreeArray object changed as a
+     * result of this method call; otherwise, return false.
+     */
+    public boolean add(int key) {
+        if (size == keys.length) {
+            resize(keys.length * 2);
+        }
+        int p = NIL;
+        boolean goLeft = false;
+        int e = root;
+        while (e != NIL) {
+            p = e;
+            int k = keys[e];
+            if (key < k) {
+                e = left[e];
+                goLeft = true;
+            } else if (key > k) {
+                e = right[e];
+                goLeft = false;
+            } else {
+                return false;
+            }
+        } // while
+        int slot = allocateSlot();
+        keys[slot] = key;
+        left[slot] = NIL;
+        right[slot] = NIL;
+        parent[slot] = p;
+        if (p == NIL) {
+            root = slot;
+        } else if (goLeft) {
+            left[p] = slot;
+        } else {
+            right[p] = slot;
+        }
+        size++;
+        modCount++;
+        return true;
+    } // method add
+
+    @Override
+    public boolean add(Integer key) {
+        return add(key.intValue());
+    }
+
+    /**
+     * Ensures that this IntBinarySearchTreeArray object does not contain a
+     * specified key. The worstTime(n) is O(n) and averageTime(n) is
+     * O(log n).
+     *
+     * @param key – the key whose absence is ensured.
+     *
+     * @return true – if this IntBinarySearchTreeArray object changed as a
+     * result of this method call; otherwise, return false.
+     */
+    public boolean remove(int key) {
+        int e = getEntry(key);
+        if (e == NIL) {
+            return false;
+        }
+        deleteEntry(e);
+        modCount++;
+        return true;
+    } // method remove
+
+    @Override
+    public boolean remove(Object obj) {
+        return obj instanceof Integer && remove(((Integer) obj).intValue());
+    }
+
+    /**
+     * Removes all of the keys from this IntBinarySearchTreeArray object.
+     */
+    @Override
+    public void clear() {
+        root = NIL;
+        size = 0;
+        freeHead = NIL;
+        freeCount = 0;
+        modCount++;
+    }
+
+    /*
+     * Returns the position of key, or NIL if it is not in this tree.
+     */
+    protected int getEntry(int key) {
+        int[] keys = this.keys;
+        int[] left = this.left, right = this.right;
+        int e = root;
+        while (e != NIL) {
+            int k = keys[e];
+            if (key < k) {
+                e = left[e];
+            } else if (key > k) {
+                e = right[e];
+            } else {
+                return e;
+            }
+        } // while
+        return NIL;
+    } // method getEntry
+
+    /*
+     * Deletes the key in position p and returns the position that was
+     * actually freed.
+     */
+    protected int deleteEntry(int p) {
+        size--;
+        // If p has two children, replace p's key with p's successor's key,
+        // then make p reference that successor.
+        if (left[p] != NIL && right[p] != NIL) {
+            int s = successor(p);
+            keys[p] = keys[s];
+            p = s;
+        } // p had two children
+
+        // At this point, p has either no children or one child.
+        int replacement = (left[p] != NIL) ? left[p] : right[p];
+        int pp = parent[p];
+        if (replacement != NIL) {
+            parent[replacement] = pp;
+        }
+        if (pp == NIL) {
+            root = replacement;
+        } else if (left[pp] == p) {
+            left[pp] = replacement;
+        } else {
+            right[pp] = replacement;
+        }
+        left[p] = freeHead;
+        freeHead = p;
+        freeCount++;
+        return p;
+    } // method deleteEntry
+
+    /*
+     * Returns a free position, taken from the freeList if possible.
+     */
+    private int allocateSlot() {
+        if (freeHead != NIL) {
+            int slot = freeHead;
+            freeHead = left[slot];
+            freeCount--;
+            return slot;
+        }
+        return size;
+    }
+
+    /*
+     * Returns the position of the in-order successor of e, or NIL.
+     */
+    protected int successor(int e) {
+        if (e == NIL) {
+            return NIL;
+        } else if (right[e] != NIL) {
+            int p = right[e];
+            while (left[p] != NIL) {
+                p = left[p];
+            }
+            return p;
+        } else {
+            int p = parent[e];
+            int ch = e;
+            while (p != NIL && ch == right[p]) {
+                ch = p;
+                p = parent[p];
+            } // while
+            return p;
+        }
+    } // method successor
+
+    /*
+     * Grows the parallel arrays to newLength slots.
+     */
+    protected void resize(int newLength) {
+        keys = Arrays.copyOf(keys, newLength);
+        left = Arrays.copyOf(left, newLength);
+        right = Arrays.copyOf(right, newLength);
+        parent = Arrays.copyOf(parent, newLength);
+    }
+
+    /**
+     * Passes each key of this IntBinarySearchTreeArray object, in ascending
+     * order, to a specified action, without boxing.
+     *
+     * The action must be typed as an IntConsumer: a lambda with an implicit
+     * parameter type, such as k -> sum[0] += k, fits the inherited
+     * forEach(Consumer) as well, and the call is ambiguous and does not
+     * compile. Write (int k) -> sum[0] += k, or cast the lambda to
+     * IntConsumer.
+     *
+     * @param action – the action to be performed on each key.
+     *
+     * @throws ConcurrentModificationException – if action modifies this tree.
+     */
+    @SuppressWarnings("overloads")
+    public void forEach(IntConsumer action) {
+        int expectedModCount = modCount;
+        int e = root;
+        if (e != NIL) {
+            while (left[e] != NIL) {
+                e = left[e];
+            }
+        }
+        for (; e != NIL; e = successor(e)) {
+            action.accept(keys[e]);
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    @Override
+    public void forEach(Consumer<? super Integer> action) {
+        if (action instanceof IntConsumer) {
+            forEach((IntConsumer) action);
+        } else {
+            forEach((IntConsumer) action::accept);
+        }
+    }
+
+    /**
+     * Returns an iterator over the keys of this IntBinarySearchTreeArray
+     * object in ascending order. Its nextInt() method does not box.
+     *
+     * @return a primitive iterator positioned at the smallest key.
+     */
+    @Override
+    public PrimitiveIterator.OfInt iterator() {
+        return new KeyIterator();
+    }
+
+    protected class KeyIterator implements PrimitiveIterator.OfInt {
+
+        protected int next = NIL, lastReturned = NIL;
+        protected int modCountOnEntry;
+
+        /**
+         * Positions this KeyIterator at the smallest key.
+         */
+        protected KeyIterator() {
+            if (root != NIL) {
+                next = root;
+                while (left[next] != NIL) {
+                    next = left[next];
+                }
+            }
+            modCountOnEntry = modCount;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != NIL;
+        }
+
+        @Override
+        public int nextInt() {
+            if (modCountOnEntry != modCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (next == NIL) {
+                throw new NoSuchElementException();
+            }
+            lastReturned = next;
+            next = successor(next);
+            return keys[lastReturned];
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturned == NIL) {
+                throw new IllegalStateException();
+            }
+            if (modCountOnEntry != modCount) {
+                throw new ConcurrentModificationException();
+            }
+            // A node with two children takes over its successor's key, so
+            // the next key to return is now in lastReturned.
+            if (left[lastReturned] != NIL && right[lastReturned] != NIL) {
+                next = lastReturned;
+            }
+            deleteEntry(lastReturned);
+            modCount++;
+            modCountOnEntry = modCount;
+            lastReturned = NIL;
+        }
+    }
+}
@@ -0,0 +1,491 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * A binary search tree of long keys, laid out like FlatBinarySearchTreeArray
+ * but with the keys in a long array instead of an Object array. The
+ * primitive methods add(long), contains(long) and remove(long) neither box
+ * their argument nor allocate anything, apart from the occasional doubling
+ * of the arrays in add.
+ *
+ * The class is also a Set of Long, so it can be passed wherever a Set is
+ * expected; the methods inherited through that interface box and unbox.
+ */
+public class LongBinarySearchTreeArray extends AbstractSet<Long> {
+
+    protected long[] keys;
+    protected int[] left, right, parent;
+    protected int root, size;
+    protected int modCount = 0;
+    protected static final int NIL = -1;
+    protected static final int DEFAULT_SIZE = 16;
+
+    // The freeList is a stack of array positions that have been emptied
+    // through the removal of a key, threaded through the left array:
+    // freeHead is the most recently freed slot and left[slot] holds the
+    // slot freed before it.
+    protected int freeHead = NIL, freeCount = 0;
+
+    /**
+     * Initializes this LongBinarySearchTreeArray object to be empty.
+     */
+    public LongBinarySearchTreeArray() {
+        this(DEFAULT_SIZE);
+    }// default constructor
+
+    /**
+     * Initialises this LongBinarySearchTreeArray object to be empty, with a
+     * specified initial capacity.
+     *
+     * @param capacity - the initial capacity of this LongBinarySearchTreeArray
+     * object.
+     *
+     * @throws IllegalArgumentException - if capacity is non-positive
+     */
+    public LongBinarySearchTreeArray(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Non-positive capacity: "
+                    + capacity);
+        }
+        root = NIL;
+        size = 0;
+        keys = new long[capacity];
+        left = new int[capacity];
+        right = new int[capacity];
+        parent = new int[capacity];
+    }
+
+    /**
+     * Initialises this LongBinarySearchTreeArray object to contain a copy of
+     * specified LongBinarySearchTreeArray object. The worstTime(n) is O(n).
+     *
+     * @param otherTree the specified LongBinarySearchTreeArray object that
+     * this LongBinarySearchTreeArray object will be assigned a copy of.
+     */
+    public LongBinarySearchTreeArray(LongBinarySearchTreeArray otherTree) {
+        root = otherTree.root;
+        size = otherTree.size;
+        keys = otherTree.keys.clone();
+        left = otherTree.left.clone();
+        right = otherTree.right.clone();
+        parent = otherTree.parent.clone();
+        freeHead = otherTree.freeHead;
+        freeCount = otherTree.freeCount;
+    } // copy constructor
+
+    /**
+     * Returns a LongBinarySearchTreeArray object that contains the keys of a
+     * specified array, which must be in strictly ascending order. The tree is
+     * built perfectly balanced in one pass, with the i-th smallest key in
+     * array position i. The worstTime(n) is O(n).
+     *
+     * @param sorted - the keys, in strictly ascending order.
+     *
+     * @return a balanced LongBinarySearchTreeArray containing the keys of
+     * sorted.
+     *
+     * @throws IllegalArgumentException - if sorted is not in strictly
+     * ascending order.
+     */
+    public static LongBinarySearchTreeArray fromSorted(long[] sorted) {
+        for (int i = 1; i < sorted.length; i++) {
+            if (sorted[i - 1] >= sorted[i]) {
+                throw new IllegalArgumentException("Not in strictly "
+                        + "ascending order: " + sorted[i - 1] + ", "
+                        + sorted[i]);
+            }
+        }
+        LongBinarySearchTreeArray result
+                = new LongBinarySearchTreeArray(Math.max(sorted.length, 1));
+        System.arraycopy(sorted, 0, result.keys, 0, sorted.length);
+        result.root = result.link(0, sorted.length - 1, NIL);
+        result.size = sorted.length;
+        return result;
+    }
+
+    /*
+     * Links positions lo..hi into a perfectly balanced subtree under parent
+     * p and returns the position of its root.
+     */
+    private int link(int lo, int hi, int p) {
+        if (lo > hi) {
+            return NIL;
+        }
+        int mid = (lo + hi) >>> 1;
+        parent[mid] = p;
+        left[mid] = link(lo, mid - 1, mid);
+        right[mid] = link(mid + 1, hi, mid);
+        return mid;
+    }
+
+    /**
+     * Returns the size of this LongBinarySearchTreeArray object.
+     *
+     * @return the size of this LongBinarySearchTreeArray object.
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Determines if this LongBinarySearchTreeArray object contains a
+     * specified key. The worstTime(n) is O(n) and averageTime(n) is
+     * O(log n).
+     *
+     * @param key – the key sought.
+     *
+     * @return true – if key is in this LongBinarySearchTreeArray object;
+     * otherwise, return false.
+     */
+    public boolean contains(long key) {
+        return getEntry(key) != NIL;
+    }
+
+    @Override
+    public boolean contains(Object obj) {
+        return obj instanceof Long && contains(((Long) obj).longValue());
+    }
+
+    /**
+     * Ensures that this LongBinarySearchTreeArray object contains a specified
+     * key. The worstTime(n) is O(n) and averageTime(n) is O(log n).
+     *
+     * @param key – the key whose presence is ensured.
+     *
+     * @return true – if this LongBinarySearchTreeArray object changed as a
+     * result of this method call; otherwise, return false.
+     */
+    public boolean add(long key) {
+        if (size == keys.length) {
+            resize(keys.length * 2);
+        }
+        int p = NIL;
+        boolean goLeft = false;
+        int e = root;
+        while (e != NIL) {
+            p = e;
+            long k = keys[e];
+            if (key < k) {
+                e = left[e];
+                goLeft = true;
+            } else if (key > k) {
+                e = right[e];
+                goLeft = false;
+            } else {
+                return false;
+            }
+        } // while
+        int slot = allocateSlot();
+        keys[slot] = key;
+        left[slot] = NIL;
+        right[slot] = NIL;
+        parent[slot] = p;
+        if (p == NIL) {
+            root = slot;
+        } else if (goLeft) {
+            left[p] = slot;
+        } else {
+            right[p] = slot;
+        }
+        size++;
+        modCount++;
+        return true;
+    } // method add
+
+    @Override
+    public boolean add(Long key) {
+        return add(key.longValue());
+    }
+
+    /**
+     * Ensures that this LongBinarySearchTreeArray object does not contain a
+     * specified key. The worstTime(n) is O(n) and averageTime(n) is
+     * O(log n).
+     *
+     * @param key – the key whose absence is ensured.
+     *
+     * @return true – if this LongBinarySearchTreeArray object changed as a
+     * result of this method call; otherwise, return false.
+     */
+    public boolean remove(long key) {
+        int e = getEntry(key);
+        if (e == NIL) {
+            return false;
+        }
+        deleteEntry(e);
+        modCount++;
+        return true;
+    } // method remove
+
+    @Override
+    public boolean remove(Object obj) {
+        return obj instanceof Long && remove(((Long) obj).longValue());
+    }
+
+    /**
+     * Removes all of the keys from this LongBinarySearchTreeArray object.
+     */
+    @Override
+    public void clear() {
+        root = NIL;
+        size = 0;
+        freeHead = NIL;
+        freeCount = 0;
+        modCount++;
+    }
+
+    /**
+     * Writes this LongBinarySearchTreeArray object to a specified file,
+     * replacing any previous contents, in the fixed-width format that
+     * OffHeapLongBinarySearchTreeArray.openMapped maps back read-only. Array
+     * position i becomes node record i. The worstTime(n) is O(n).
+     *
+     * @param path – the file to be written.
+     *
+     * @throws IOException – if the file cannot be written.
+     */
+    public void save(Path path) throws IOException {
+        int nodeCount = size + freeCount;
+        int nodeBytes = OffHeapLongBinarySearchTreeArray.NODE_BYTES;
+        ByteBuffer buffer = ByteBuffer.allocateDirect(4096 * nodeBytes)
+                .order(OffHeapLongBinarySearchTreeArray.BYTE_ORDER);
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            OffHeapLongBinarySearchTreeArray.writeFully(channel,
+                    OffHeapLongBinarySearchTreeArray.header(nodeCount, root,
+                            size));
+            for (int i = 0; i < nodeCount; i++) {
+                if (!buffer.hasRemaining()) {
+                    buffer.flip();
+                    OffHeapLongBinarySearchTreeArray.writeFully(channel,
+                            buffer);
+                    buffer.clear();
+                }
+                buffer.putLong(keys[i]).putInt(left[i]).putInt(right[i])
+                        .putInt(parent[i]).putInt(0);
+            }
+            buffer.flip();
+            OffHeapLongBinarySearchTreeArray.writeFully(channel, buffer);
+        } finally {
+            OffHeapLongBinarySearchTreeArray.release(buffer);
+        }
+    } // method save
+
+    /*
+     * Returns the position of key, or NIL if it is not in this tree.
+     */
+    protected int getEntry(long key) {
+        long[] keys = this.keys;
+        int[] left = this.left, right = this.right;
+        int e = root;
+        while (e != NIL) {
+            long k = keys[e];
+            if (key < k) {
+                e = left[e];
+            } else if (key > k) {
+                e = right[e];
+            } else {
+                return e;
+            }
+        } // while
+        return NIL;
+    } // method getEntry
+
+    /*
+     * Deletes the key in position p and returns the position that was
+     * actually freed.
+     */
+    protected int deleteEntry(int p) {
+        size--;
+        // If p has two children, replace p's key with p's successor's key,
+        // then make p reference that successor.
+        if (left[p] != NIL && right[p] != NIL) {
+            int s = successor(p);
+            keys[p] = keys[s];
+            p = s;
+        } // p had two children
+
+        // At this point, p has either no children or one child.
+        int replacement = (left[p] != NIL) ? left[p] : right[p];
+        int pp = parent[p];
+        if (replacement != NIL) {
+            parent[replacement] = pp;
+        }
+        if (pp == NIL) {
+            root = replacement;
+        } else if (left[pp] == p) {
+            left[pp] = replacement;
+        } else {
+            right[pp] = replacement;
+        }
+        left[p] = freeHead;
+        freeHead = p;
+        freeCount++;
+        return p;
+    } // method deleteEntry
+
+    /*
+     * Returns a free position, taken from the freeList if possible.
+     */
+    private int allocateSlot() {
+        if (freeHead != NIL) {
+            int slot = freeHead;
+            freeHead = left[slot];
+            freeCount--;
+            return slot;
+        }
+        return size;
+    }
+
+    /*
+     * Returns the position of the in-order successor of e, or NIL.
+     */
+    protected int successor(int e) {
+        if (e == NIL) {
+            return NIL;
+        } else if (right[e] != NIL) {
+            int p = right[e];
+            while (left[p] != NIL) {
+                p = left[p];
+            }
+            return p;
+        } else {
+            int p = parent[e];
+            int ch = e;
+            while (p != NIL && ch == right[p]) {
+                ch = p;
+                p = parent[p];
+            } // while
+            return p;
+        }
+    } // method successor
+
+    /*
+     * Grows the parallel arrays to newLength slots.
+     */
+    protected void resize(int newLength) {
+        keys = Arrays.copyOf(keys, newLength);
+        left = Arrays.copyOf(left, newLength);
+        right = Arrays.copyOf(right, newLength);
+        parent = Arrays.copyOf(parent, newLength);
+    }
+
+    /**
+     * Passes each key of this LongBinarySearchTreeArray object, in ascending
+     * order, to a specified action, without boxing.
+     *
+     * The action must be typed as an LongConsumer: a lambda with an implicit
+     * parameter type, such as k -> sum[0] += k, fits the inherited
+     * forEach(Consumer) as well, and the call is ambiguous and does not
+     * compile. Write (long k) -> sum[0] += k, or cast the lambda to
+     * LongConsumer.
+     *
+     * @param action – the action to be performed on each key.
+     *
+     * @throws ConcurrentModificationException – if action modifies this tree.
+     */
+    @SuppressWarnings("overloads")
+    public void forEach(LongConsumer action) {
+        int expectedModCount = modCount;
+        int e = root;
+        if (e != NIL) {
+            while (left[e] != NIL) {
+                e = left[e];
+            }
+        }
+        for (; e != NIL; e = successor(e)) {
+            action.accept(keys[e]);
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    @Override
+    public void forEach(Consumer<? super Long> action) {
+        if (action instanceof LongConsumer) {
+            forEach((LongConsumer) action);
+        } else {
+            forEach((LongConsumer) action::accept);
+        }
+    }
+
+    /**
+     * Returns an iterator over the keys of this LongBinarySearchTreeArray
+     * object in ascending order. Its nextLong() method does not box.
+     *
+     * @return a primitive iterator positioned at the smallest key.
+     */
+    @Override
+    public PrimitiveIterator.OfLong iterator() {
+        return new KeyIterator();
+    }
+
+    protected class KeyIterator implements PrimitiveIterator.OfLong {
+
+        protected int next = NIL, lastReturned = NIL;
+        protected int modCountOnEntry;
+
+        /**
+         * Positions this KeyIterator at the smallest key.
+         */
+        protected KeyIterator() {
+            if (root != NIL) {
+                next = root;
+                while (left[next] != NIL) {
+                    next = left[next];
+                }
+            }
+            modCountOnEntry = modCount;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != NIL;
+        }
+
+        @Override
+        public long nextLong() {
+            if (modCountOnEntry != modCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (next == NIL) {
+                throw new NoSuchElementException();
+            }
+            lastReturned = next;
+            next = successor(next);
+            return keys[lastReturned];
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturned == NIL) {
+                throw new IllegalStateException();
+            }
+            if (modCountOnEntry != modCount) {
+                throw new ConcurrentModificationException();
+            }
+            // A node with two children takes over its successor's key, so
+            // the next key to return is now in lastReturned.
+            if (left[lastReturned] != NIL && right[lastReturned] != NIL) {
+                next = lastReturned;
+            }
+            deleteEntry(lastReturned);
+            modCount++;
+            modCountOnEntry = modCount;
+            lastReturned = NIL;
+        }
+    }
+}
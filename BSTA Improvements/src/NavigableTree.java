@@ -0,0 +1,44 @@
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.function.Consumer;
+
+/**
+ * A NavigableSet that can iterate over a range of its elements directly,
+ * starting with an O(log n) descent to one end of the range. BinarySearchTree
+ * and BinarySearchTreeArray implement it so that their range views, made by
+ * TreeSubSet, iterate in O(log n + k) time for k elements, and can pass each
+ * element in a range to a Consumer without creating an iterator.
+ *
+ * @param <E> the element type
+ */
+interface NavigableTree<E> extends NavigableSet<E> {
+
+    /**
+     * Returns an iterator over the elements of this tree that lie between two
+     * bounds, in ascending or descending order. Its remove method removes
+     * the last element returned from this tree.
+     *
+     * @param lo – the low end of the range, or null for no low end.
+     * @param loInclusive – true if lo itself is in the range.
+     * @param hi – the high end of the range, or null for no high end.
+     * @param hiInclusive – true if hi itself is in the range.
+     * @param descending – true to iterate from hi down to lo.
+     *
+     * @return an iterator over the elements in the range.
+     */
+    Iterator<E> rangeIterator(E lo, boolean loInclusive, E hi,
+            boolean hiInclusive, boolean descending);
+
+    /**
+     * Performs an action on each element of this tree that lies between two
+     * bounds, in ascending order, without creating an iterator.
+     *
+     * @param lo – the low end of the range, or null for no low end.
+     * @param loInclusive – true if lo itself is in the range.
+     * @param hi – the high end of the range, or null for no high end.
+     * @param hiInclusive – true if hi itself is in the range.
+     * @param action – the action to perform on each element in the range.
+     */
+    void forEachInRange(E lo, boolean loInclusive, E hi, boolean hiInclusive,
+            Consumer<? super E> action);
+}
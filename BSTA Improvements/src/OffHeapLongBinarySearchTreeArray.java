@@ -0,0 +1,707 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * A binary search tree of long keys whose nodes live outside the Java heap.
+ * It has the same int-index design as LongBinarySearchTreeArray, but each
+ * node (key, left, right, parent) is a fixed-width record in a direct
+ * ByteBuffer. The buffers are allocated in chunks as the tree grows, so the
+ * garbage collector only ever sees this object, its chunk table and one
+ * ByteBuffer per chunk, however many keys the tree holds.
+ *
+ * The memory is released by close(); after that every operation throws
+ * IllegalStateException. Instances are not thread-safe.
+ *
+ * save(Path) writes the nodes to a file in the same fixed-width layout, and
+ * openMapped(Path) maps such a file back read-only, so that contains and
+ * iteration are served straight from the page cache without re-adding a
+ * single key. LongBinarySearchTreeArray.save(Path) writes the same format.
+ */
+public class OffHeapLongBinarySearchTreeArray extends AbstractSet<Long>
+        implements Closeable {
+
+    protected static final int NIL = -1;
+
+    // Node layout: an 8-byte key followed by three 4-byte links, padded to
+    // 24 bytes so that every key stays 8-byte aligned.
+    protected static final int KEY = 0, LEFT = 8, RIGHT = 12, PARENT = 16;
+    protected static final int NODE_BYTES = 24;
+    protected static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    protected static final int DEFAULT_CHUNK_NODES = 1 << 16;
+
+    // The file written by save: a 32-byte header (magic, version, number of
+    // node records, root, size, then zeros) followed by the node records,
+    // little-endian throughout.
+    protected static final int FILE_MAGIC = 0x41545342; // "BSTA"
+    protected static final int FILE_VERSION = 1;
+    protected static final int HEADER_BYTES = 32;
+
+    // A mapped file is mapped 4M nodes (96MB) at a time.
+    protected static final int MAPPED_CHUNK_NODES = 1 << 22;
+
+    protected ByteBuffer[] chunks;
+    protected int chunkCount;
+    protected final int chunkShift, chunkMask;
+    protected int root, size;
+    protected int modCount = 0;
+
+    // Number of node positions handed out so far; positions at or above it
+    // have never been used.
+    protected int highWater;
+
+    // The freeList is a stack of node positions emptied through the removal
+    // of a key, threaded through their left links.
+    protected int freeHead = NIL, freeCount = 0;
+
+    // True for a tree mapped by openMapped, which cannot be changed.
+    protected boolean readOnly;
+
+    /**
+     * Initializes this OffHeapLongBinarySearchTreeArray object to be empty,
+     * allocating off-heap memory 65536 nodes at a time.
+     */
+    public OffHeapLongBinarySearchTreeArray() {
+        this(DEFAULT_CHUNK_NODES);
+    }// default constructor
+
+    /**
+     * Initializes this OffHeapLongBinarySearchTreeArray object to be empty,
+     * allocating off-heap memory a specified number of nodes at a time.
+     *
+     * @param nodesPerChunk - the number of nodes in each chunk of off-heap
+     * memory; must be a power of two no greater than 2^26.
+     *
+     * @throws IllegalArgumentException - if nodesPerChunk is not a power of
+     * two between 1 and 2^26.
+     */
+    public OffHeapLongBinarySearchTreeArray(int nodesPerChunk) {
+        if (nodesPerChunk < 1 || nodesPerChunk > (1 << 26)
+                || Integer.bitCount(nodesPerChunk) != 1) {
+            throw new IllegalArgumentException("Chunk size must be a power "
+                    + "of two up to 2^26: " + nodesPerChunk);
+        }
+        chunkShift = Integer.numberOfTrailingZeros(nodesPerChunk);
+        chunkMask = nodesPerChunk - 1;
+        chunks = new ByteBuffer[4];
+        root = NIL;
+        size = 0;
+    }
+
+    /**
+     * Returns the size of this OffHeapLongBinarySearchTreeArray object.
+     *
+     * @return the size of this OffHeapLongBinarySearchTreeArray object.
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of bytes of off-heap memory this tree holds.
+     *
+     * @return the off-heap memory held, in bytes.
+     */
+    public long offHeapBytes() {
+        return (long) chunkCount * (chunkMask + 1) * NODE_BYTES;
+    }
+
+    /**
+     * Determines if this OffHeapLongBinarySearchTreeArray object contains a
+     * specified key. The worstTime(n) is O(n) and averageTime(n) is
+     * O(log n).
+     *
+     * @param key – the key sought.
+     *
+     * @return true – if key is in this tree; otherwise, return false.
+     *
+     * @throws IllegalStateException – if this tree has been closed.
+     */
+    public boolean contains(long key) {
+        return getEntry(key) != NIL;
+    }
+
+    @Override
+    public boolean contains(Object obj) {
+        return obj instanceof Long && contains(((Long) obj).longValue());
+    }
+
+    /**
+     * Ensures that this OffHeapLongBinarySearchTreeArray object contains a
+     * specified key. The worstTime(n) is O(n) and averageTime(n) is
+     * O(log n).
+     *
+     * @param key – the key whose presence is ensured.
+     *
+     * @return true – if this tree changed as a result of this method call;
+     * otherwise, return false.
+     *
+     * @throws IllegalStateException – if this tree has been closed.
+     * @throws UnsupportedOperationException – if this tree is read-only.
+     */
+    public boolean add(long key) {
+        ensureWritable();
+        int p = NIL;
+        boolean goLeft = false;
+        int e = root;
+        while (e != NIL) {
+            p = e;
+            long k = key(e);
+            if (key < k) {
+                e = left(e);
+                goLeft = true;
+            } else if (key > k) {
+                e = right(e);
+                goLeft = false;
+            } else {
+                return false;
+            }
+        } // while
+        int slot = allocateSlot();
+        ByteBuffer chunk = chunks[slot >>> chunkShift];
+        int offset = (slot & chunkMask) * NODE_BYTES;
+        chunk.putLong(offset + KEY, key);
+        chunk.putInt(offset + LEFT, NIL);
+        chunk.putInt(offset + RIGHT, NIL);
+        chunk.putInt(offset + PARENT, p);
+        if (p == NIL) {
+            root = slot;
+        } else if (goLeft) {
+            setLeft(p, slot);
+        } else {
+            setRight(p, slot);
+        }
+        size++;
+        modCount++;
+        return true;
+    } // method add
+
+    @Override
+    public boolean add(Long key) {
+        return add(key.longValue());
+    }
+
+    /**
+     * Ensures that this OffHeapLongBinarySearchTreeArray object does not
+     * contain a specified key. The worstTime(n) is O(n) and averageTime(n) is
+     * O(log n).
+     *
+     * @param key – the key whose absence is ensured.
+     *
+     * @return true – if this tree changed as a result of this method call;
+     * otherwise, return false.
+     *
+     * @throws IllegalStateException – if this tree has been closed.
+     * @throws UnsupportedOperationException – if this tree is read-only.
+     */
+    public boolean remove(long key) {
+        ensureWritable();
+        int e = getEntry(key);
+        if (e == NIL) {
+            return false;
+        }
+        deleteEntry(e);
+        modCount++;
+        return true;
+    } // method remove
+
+    @Override
+    public boolean remove(Object obj) {
+        return obj instanceof Long && remove(((Long) obj).longValue());
+    }
+
+    /**
+     * Removes all of the keys from this tree. The off-heap memory is kept for
+     * reuse; call close() to release it.
+     */
+    @Override
+    public void clear() {
+        ensureWritable();
+        root = NIL;
+        size = 0;
+        highWater = 0;
+        freeHead = NIL;
+        freeCount = 0;
+        modCount++;
+    }
+
+    /**
+     * Determines if this tree was mapped read-only by openMapped.
+     *
+     * @return true – if this tree cannot be changed; otherwise, false.
+     */
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    /**
+     * Writes this tree to a specified file, replacing any previous contents,
+     * in the format read by openMapped. The node records are copied as they
+     * are, so the worstTime(n) is O(n) with no per-key work.
+     *
+     * @param path – the file to be written.
+     *
+     * @throws IOException – if the file cannot be written.
+     * @throws IllegalStateException – if this tree has been closed.
+     */
+    public void save(Path path) throws IOException {
+        ensureOpen();
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, header(highWater, root, size));
+            long remaining = (long) highWater * NODE_BYTES;
+            for (int i = 0; remaining > 0; i++) {
+                ByteBuffer chunk = chunks[i].duplicate();
+                chunk.clear();
+                chunk.limit((int) Math.min(chunk.capacity(), remaining));
+                remaining -= chunk.limit();
+                writeFully(channel, chunk);
+            }
+        }
+    } // method save
+
+    /**
+     * Maps a file written by save as a read-only tree. Nothing is read up
+     * front beyond the header: the operating system pages nodes in as
+     * contains and iteration touch them. The file may be changed by no one
+     * while the tree is open; close() unmaps it.
+     *
+     * @param path – the file to be mapped.
+     *
+     * @return a read-only tree backed by the file.
+     *
+     * @throws IOException – if the file cannot be read or is not a tree file.
+     */
+    public static OffHeapLongBinarySearchTreeArray openMapped(Path path)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES)
+                    .order(BYTE_ORDER);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0) {
+                    throw new IOException("Not a tree file: " + path);
+                }
+            }
+            int nodeCount = header.getInt(8), root = header.getInt(12);
+            int size = header.getInt(16);
+            if (header.getInt(0) != FILE_MAGIC
+                    || header.getInt(4) != FILE_VERSION
+                    || nodeCount < 0 || size < 0 || size > nodeCount
+                    || root < NIL || root >= nodeCount
+                    || (root == NIL) != (size == 0)
+                    || channel.size()
+                    < HEADER_BYTES + (long) nodeCount * NODE_BYTES) {
+                throw new IOException("Not a tree file: " + path);
+            }
+            OffHeapLongBinarySearchTreeArray tree
+                    = new OffHeapLongBinarySearchTreeArray(MAPPED_CHUNK_NODES);
+            long chunkBytes = (long) MAPPED_CHUNK_NODES * NODE_BYTES;
+            long remaining = (long) nodeCount * NODE_BYTES;
+            try {
+                for (long offset = HEADER_BYTES; remaining > 0;
+                        offset += chunkBytes) {
+                    long length = Math.min(chunkBytes, remaining);
+                    remaining -= length;
+                    if (tree.chunkCount == tree.chunks.length) {
+                        tree.chunks = Arrays.copyOf(tree.chunks,
+                                tree.chunkCount * 2);
+                    }
+                    tree.chunks[tree.chunkCount++] = channel.map(
+                            FileChannel.MapMode.READ_ONLY, offset, length)
+                            .order(BYTE_ORDER);
+                }
+            } catch (IOException | RuntimeException e) {
+                tree.close();
+                throw e;
+            }
+            tree.highWater = nodeCount;
+            tree.root = root;
+            tree.size = size;
+            tree.readOnly = true;
+            return tree;
+        }
+    } // method openMapped
+
+    /*
+     * Returns the file header for a tree with the given fields, ready to be
+     * written.
+     */
+    protected static ByteBuffer header(int nodeCount, int root, int size) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES)
+                .order(BYTE_ORDER);
+        header.putInt(0, FILE_MAGIC);
+        header.putInt(4, FILE_VERSION);
+        header.putInt(8, nodeCount);
+        header.putInt(12, root);
+        header.putInt(16, size);
+        return header;
+    }
+
+    protected static void writeFully(FileChannel channel, ByteBuffer buffer)
+            throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Releases the off-heap memory of this tree, or unmaps its file.
+     * Calling close() again has no effect.
+     */
+    @Override
+    public void close() {
+        if (chunks == null) {
+            return;
+        }
+        for (int i = 0; i < chunkCount; i++) {
+            release(chunks[i]);
+        }
+        chunks = null;
+        chunkCount = 0;
+        root = NIL;
+        size = 0;
+        modCount++;
+    }
+
+    /*
+     * Returns the position of key, or NIL if it is not in this tree.
+     */
+    protected int getEntry(long key) {
+        ensureOpen();
+        int e = root;
+        while (e != NIL) {
+            ByteBuffer chunk = chunks[e >>> chunkShift];
+            int offset = (e & chunkMask) * NODE_BYTES;
+            long k = chunk.getLong(offset + KEY);
+            if (key < k) {
+                e = chunk.getInt(offset + LEFT);
+            } else if (key > k) {
+                e = chunk.getInt(offset + RIGHT);
+            } else {
+                return e;
+            }
+        } // while
+        return NIL;
+    } // method getEntry
+
+    /*
+     * Deletes the key in position p and returns the position that was
+     * actually freed.
+     */
+    protected int deleteEntry(int p) {
+        size--;
+        // If p has two children, replace p's key with p's successor's key,
+        // then make p reference that successor.
+        if (left(p) != NIL && right(p) != NIL) {
+            int s = successor(p);
+            setKey(p, key(s));
+            p = s;
+        } // p had two children
+
+        // At this point, p has either no children or one child.
+        int replacement = (left(p) != NIL) ? left(p) : right(p);
+        int pp = parent(p);
+        if (replacement != NIL) {
+            setParent(replacement, pp);
+        }
+        if (pp == NIL) {
+            root = replacement;
+        } else if (left(pp) == p) {
+            setLeft(pp, replacement);
+        } else {
+            setRight(pp, replacement);
+        }
+        setLeft(p, freeHead);
+        freeHead = p;
+        freeCount++;
+        return p;
+    } // method deleteEntry
+
+    /*
+     * Returns a free node position, taken from the freeList if possible and
+     * otherwise from fresh memory, allocating a new chunk when needed.
+     */
+    private int allocateSlot() {
+        if (freeHead != NIL) {
+            int slot = freeHead;
+            freeHead = left(slot);
+            freeCount--;
+            return slot;
+        }
+        if (highWater == Integer.MAX_VALUE) {
+            throw new IllegalStateException("Tree is full");
+        }
+        int slot = highWater++;
+        int chunk = slot >>> chunkShift;
+        if (chunk == chunkCount) {
+            if (chunkCount == chunks.length) {
+                chunks = Arrays.copyOf(chunks, chunks.length * 2);
+            }
+            chunks[chunkCount++] = ByteBuffer.allocateDirect(
+                    (chunkMask + 1) * NODE_BYTES).order(BYTE_ORDER);
+        }
+        return slot;
+    }
+
+    /*
+     * Returns the position of the in-order successor of e, or NIL.
+     */
+    protected int successor(int e) {
+        if (e == NIL) {
+            return NIL;
+        } else if (right(e) != NIL) {
+            int p = right(e);
+            while (left(p) != NIL) {
+                p = left(p);
+            }
+            return p;
+        } else {
+            int p = parent(e);
+            int ch = e;
+            while (p != NIL && ch == right(p)) {
+                ch = p;
+                p = parent(p);
+            } // while
+            return p;
+        }
+    } // method successor
+
+    /*
+     * Returns the position of the smallest key, or NIL if the tree is empty.
+     */
+    protected int first() {
+        int e = root;
+        if (e != NIL) {
+            while (left(e) != NIL) {
+                e = left(e);
+            }
+        }
+        return e;
+    }
+
+    // Field accessors for the node at position n.
+    protected final long key(int n) {
+        return chunks[n >>> chunkShift].getLong(
+                (n & chunkMask) * NODE_BYTES + KEY);
+    }
+
+    protected final int left(int n) {
+        return chunks[n >>> chunkShift].getInt(
+                (n & chunkMask) * NODE_BYTES + LEFT);
+    }
+
+    protected final int right(int n) {
+        return chunks[n >>> chunkShift].getInt(
+                (n & chunkMask) * NODE_BYTES + RIGHT);
+    }
+
+    protected final int parent(int n) {
+        return chunks[n >>> chunkShift].getInt(
+                (n & chunkMask) * NODE_BYTES + PARENT);
+    }
+
+    protected final void setKey(int n, long key) {
+        chunks[n >>> chunkShift].putLong((n & chunkMask) * NODE_BYTES + KEY,
+                key);
+    }
+
+    protected final void setLeft(int n, int link) {
+        chunks[n >>> chunkShift].putInt((n & chunkMask) * NODE_BYTES + LEFT,
+                link);
+    }
+
+    protected final void setRight(int n, int link) {
+        chunks[n >>> chunkShift].putInt((n & chunkMask) * NODE_BYTES + RIGHT,
+                link);
+    }
+
+    protected final void setParent(int n, int link) {
+        chunks[n >>> chunkShift].putInt(
+                (n & chunkMask) * NODE_BYTES + PARENT, link);
+    }
+
+    protected final void ensureOpen() {
+        if (chunks == null) {
+            throw new IllegalStateException("Tree has been closed");
+        }
+    }
+
+    protected final void ensureWritable() {
+        ensureOpen();
+        if (readOnly) {
+            throw new UnsupportedOperationException("Tree is read-only");
+        }
+    }
+
+    /*
+     * Frees the memory of a direct buffer, or unmaps a mapped one, straight
+     * away where the JVM allows it, instead of waiting for the garbage
+     * collector: through sun.misc.Unsafe.invokeCleaner on Java 9 and later,
+     * and through the buffer's own Cleaner (sun.nio.ch.DirectBuffer.cleaner)
+     * on Java 8.
+     */
+    protected static void release(ByteBuffer buffer) {
+        if (!buffer.isDirect()) {
+            return;
+        }
+        try {
+            if (INVOKE_CLEANER != null) {
+                INVOKE_CLEANER.invoke(UNSAFE, buffer);
+            } else if (CLEANER != null) {
+                Object cleaner = CLEANER.invoke(buffer);
+                if (cleaner != null) {
+                    CLEAN.invoke(cleaner);
+                }
+            }
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Leave the buffer to the garbage collector.
+        }
+    }
+
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER, CLEANER, CLEAN;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null, cleaner = null, clean = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner",
+                    ByteBuffer.class);
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            unsafe = theUnsafe.get(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            invokeCleaner = null;
+        }
+        if (invokeCleaner == null) {
+            try {
+                cleaner = Class.forName("sun.nio.ch.DirectBuffer")
+                        .getMethod("cleaner");
+                clean = cleaner.getReturnType().getMethod("clean");
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                cleaner = null;
+            }
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+        CLEANER = cleaner;
+        CLEAN = clean;
+    }
+
+    /**
+     * Passes each key of this tree, in ascending order, to a specified
+     * action, without boxing.
+     *
+     * As with LongBinarySearchTreeArray.forEach(LongConsumer), the action
+     * must be typed as a LongConsumer, such as (long k) -> sum[0] += k; with
+     * an implicit parameter type the call is ambiguous and does not compile.
+     *
+     * @param action – the action to be performed on each key.
+     *
+     * @throws ConcurrentModificationException – if action modifies this tree.
+     * @throws IllegalStateException – if this tree has been closed.
+     */
+    @SuppressWarnings("overloads")
+    public void forEach(LongConsumer action) {
+        ensureOpen();
+        int expectedModCount = modCount;
+        for (int e = first(); e != NIL; e = successor(e)) {
+            action.accept(key(e));
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    @Override
+    public void forEach(Consumer<? super Long> action) {
+        if (action instanceof LongConsumer) {
+            forEach((LongConsumer) action);
+        } else {
+            forEach((LongConsumer) action::accept);
+        }
+    }
+
+    /**
+     * Returns an iterator over the keys of this tree in ascending order.
+     *
+     * @return a primitive iterator positioned at the smallest key.
+     *
+     * @throws IllegalStateException – if this tree has been closed.
+     */
+    @Override
+    public PrimitiveIterator.OfLong iterator() {
+        ensureOpen();
+        return new KeyIterator();
+    }
+
+    protected class KeyIterator implements PrimitiveIterator.OfLong {
+
+        protected int next, lastReturned = NIL;
+        protected int modCountOnEntry;
+
+        /**
+         * Positions this KeyIterator at the smallest key.
+         */
+        protected KeyIterator() {
+            next = first();
+            modCountOnEntry = modCount;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != NIL;
+        }
+
+        @Override
+        public long nextLong() {
+            if (modCountOnEntry != modCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (next == NIL) {
+                throw new NoSuchElementException();
+            }
+            lastReturned = next;
+            next = successor(next);
+            return key(lastReturned);
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturned == NIL) {
+                throw new IllegalStateException();
+            }
+            if (modCountOnEntry != modCount) {
+                throw new ConcurrentModificationException();
+            }
+            ensureWritable();
+            // A node with two children takes over its successor's key, so
+            // the next key to return is now in lastReturned.
+            if (left(lastReturned) != NIL && right(lastReturned) != NIL) {
+                next = lastReturned;
+            }
+            deleteEntry(lastReturned);
+            modCount++;
+            modCountOnEntry = modCount;
+            lastReturned = NIL;
+        }
+    }
+}
@@ -0,0 +1,243 @@
+import java.util.Comparator;
+import java.util.Iterator;
+
+/**
+ * A RedBlackTree whose entries also hold the size of the subtree rooted at
+ * them, so that it can find the element of a given rank, and the rank of a
+ * given element, with a single descent from the root. select, get and rank
+ * take O(log n) time in the worst case, instead of the O(n) of walking an
+ * iterator.
+ *
+ * The sizes are kept up to date by add and deleteEntry, which adjust them
+ * along the path to the root, and by the rotations, which recompute the two
+ * entries they move.
+ *
+ * @param <E> the element type, ordered by the Comparable interface
+ */
+public class OrderStatisticTree<E> extends RedBlackTree<E> {
+
+    protected static class OSEntry<E> extends RBEntry<E> {
+
+        // The number of elements in the subtree rooted at this OSEntry.
+        protected int size = 1;
+
+        /**
+         * Initializes this OSEntry object.
+         *
+         * This default constructor is defined for the sake of subclasses of
+         * the OrderStatisticTree class.
+         */
+        public OSEntry() {
+        }
+
+        /**
+         * Initializes this OSEntry object from element and parent.
+         */
+        public OSEntry(E element, Entry<E> parent) {
+            super(element, parent);
+        } // constructor
+    } // class OSEntry
+
+    /**
+     * Initializes this OrderStatisticTree object to be empty, to contain
+     * only elements of type E, to be ordered by the Comparable interface,
+     * and to contain no duplicate elements.
+     */
+    public OrderStatisticTree() {
+        super();
+    } // default constructor
+
+    /**
+     * Initializes this OrderStatisticTree object to be empty, to contain
+     * only elements of type E, to be ordered by a specified Comparator, and
+     * to contain no duplicate elements.
+     *
+     * @param comparator – the Comparator that will order the elements of
+     * this OrderStatisticTree object, or null for their natural ordering.
+     */
+    public OrderStatisticTree(Comparator<? super E> comparator) {
+        super(comparator);
+    } // constructor with Comparator
+
+    /**
+     * Initializes this OrderStatisticTree object to contain a shallow copy
+     * of a specified OrderStatisticTree object. The worstTime(n) is O(n).
+     *
+     * @param otherTree - the specified OrderStatisticTree object that this
+     * OrderStatisticTree object will be assigned a shallow copy of.
+     */
+    public OrderStatisticTree(OrderStatisticTree<? extends E> otherTree) {
+        super(otherTree);
+        computeSizes(root);
+    } // copy constructor
+
+    @Override
+    protected Entry<E> newEntry(E element, Entry<E> parent) {
+        return new OSEntry<E>(element, parent);
+    } // method newEntry
+
+    @Override
+    protected BinarySearchTree<E> newEmptyTree() {
+        return new OrderStatisticTree<E>(comparator);
+    } // method newEmptyTree
+
+    @Override
+    protected void buildFromSorted(Iterator<? extends E> sorted, int size) {
+        super.buildFromSorted(sorted, size);
+        computeSizes(root);
+    } // method buildFromSorted
+
+    /**
+     * Returns the element of this OrderStatisticTree object that has exactly
+     * k smaller elements, so select(0) is the smallest element and
+     * select(size() - 1) the largest. The worstTime(n) is O(log n).
+     *
+     * @param k – the rank of the element sought, from 0 to size() - 1.
+     *
+     * @return the element of rank k.
+     *
+     * @throws IndexOutOfBoundsException – if k is negative or not less than
+     * size().
+     */
+    public E select(int k) {
+        if (k < 0 || k >= size) {
+            throw new IndexOutOfBoundsException("Rank: " + k + ", Size: "
+                    + size);
+        }
+        Entry<E> x = root;
+        for (;;) {
+            int leftSize = sizeOf(x.left);
+            if (k < leftSize) {
+                x = x.left;
+            } else if (k > leftSize) {
+                k -= leftSize + 1;
+                x = x.right;
+            } else {
+                return x.element;
+            }
+        } // for
+    } // method select
+
+    /**
+     * Returns the element at a specified position in the ascending order of
+     * this OrderStatisticTree object, as List.get would; the same as
+     * select(index). The worstTime(n) is O(log n).
+     *
+     * @param index – the position of the element sought, from 0 to
+     * size() - 1.
+     *
+     * @return the element at position index.
+     *
+     * @throws IndexOutOfBoundsException – if index is negative or not less
+     * than size().
+     */
+    public E get(int index) {
+        return select(index);
+    } // method get
+
+    /**
+     * Returns the number of elements of this OrderStatisticTree object that
+     * are less than a specified element, which need not be in the tree. If
+     * it is, rank(element) is its position, and select(rank(element))
+     * returns it. The worstTime(n) is O(log n).
+     *
+     * @param element – the element whose rank is sought.
+     *
+     * @return the number of elements less than element.
+     *
+     * @throws ClassCastException – if element cannot be compared to the
+     * elements of this OrderStatisticTree object.
+     * @throws NullPointerException – if element is null.
+     */
+    public int rank(E element) {
+        if (element == null) {
+            throw new NullPointerException();
+        }
+        int rank = 0;
+        Entry<E> x = root;
+        while (x != null) {
+            int comp = compare(element, x.element);
+            if (comp < 0) {
+                x = x.left;
+            } else if (comp > 0) {
+                rank += sizeOf(x.left) + 1;
+                x = x.right;
+            } else {
+                return rank + sizeOf(x.left);
+            }
+        } // while
+        return rank;
+    } // method rank
+
+    private int computeSizes(Entry<E> x) {
+        if (x == null) {
+            return 0;
+        }
+        int s = 1 + computeSizes(x.left) + computeSizes(x.right);
+        ((OSEntry<E>) x).size = s;
+        return s;
+    } // method computeSizes
+
+    /*
+     * Counts the new leaf x in the size of each of its ancestors before the
+     * red-black fix-up, whose rotations keep the sizes right.
+     */
+    @Override
+    protected void fixAfterInsertion(Entry<E> x) {
+        for (Entry<E> p = x.parent; p != null; p = p.parent) {
+            ((OSEntry<E>) p).size++;
+        }
+        super.fixAfterInsertion(x);
+    } // method fixAfterInsertion
+
+    /**
+     * Deletes the element in a specified Entry object from this
+     * OrderStatisticTree, first taking one off the size of each ancestor of
+     * the Entry that will be unlinked: p itself, or its successor if p has
+     * two children. That Entry's own size becomes 0, since RedBlackTree may
+     * leave it linked in while it restores the colours. The worstTime(n) is
+     * O(log n).
+     *
+     * @param p – the Entry object whose element is to be deleted from this
+     * OrderStatisticTree object.
+     *
+     * @return the Entry object that was actually unlinked from this
+     * OrderStatisticTree object.
+     */
+    @Override
+    protected Entry<E> deleteEntry(Entry<E> p) {
+        Entry<E> unlinked = (p.left != null && p.right != null)
+                ? successor(p) : p;
+        for (Entry<E> a = unlinked.parent; a != null; a = a.parent) {
+            ((OSEntry<E>) a).size--;
+        }
+        ((OSEntry<E>) unlinked).size = 0;
+        return super.deleteEntry(p);
+    } // method deleteEntry
+
+    @Override
+    protected void rotateLeft(Entry<E> p) {
+        super.rotateLeft(p);
+        if (p != null) {
+            updateSize(p);
+            updateSize(p.parent);
+        }
+    } // method rotateLeft
+
+    @Override
+    protected void rotateRight(Entry<E> p) {
+        super.rotateRight(p);
+        if (p != null) {
+            updateSize(p);
+            updateSize(p.parent);
+        }
+    } // method rotateRight
+
+    protected static int sizeOf(Entry<?> p) {
+        return (p == null) ? 0 : ((OSEntry<?>) p).size;
+    }
+
+    private static void updateSize(Entry<?> p) {
+        ((OSEntry<?>) p).size = 1 + sizeOf(p.left) + sizeOf(p.right);
+    }
+}
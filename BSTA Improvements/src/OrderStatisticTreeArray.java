@@ -0,0 +1,266 @@
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+
+/**
+ * An AVLTreeArray that also keeps the size of the subtree rooted at each
+ * array position, in an int array parallel to tree, so that it can find the
+ * element of a given rank, and the rank of a given element, with a single
+ * descent from the root. select, get and rank take O(log n) time in the
+ * worst case, instead of the O(n) of walking an iterator.
+ *
+ * The sizes are kept up to date by add and deleteEntry, which adjust them
+ * along the path to the root, and by the rotations, which recompute the two
+ * entries they move.
+ *
+ * @param <E> the element type, ordered by the Comparable interface
+ */
+public class OrderStatisticTreeArray<E> extends AVLTreeArray<E> {
+
+    // subtreeSize[i] is the number of elements in the subtree rooted at
+    // tree[i]; a free position has size 0.
+    protected int[] subtreeSize;
+
+    /**
+     * Initializes this OrderStatisticTreeArray object to be empty, to
+     * contain only elements of type E, to be ordered by the Comparable
+     * interface, and to contain no duplicate elements.
+     */
+    public OrderStatisticTreeArray() {
+        this(DEFAULT_SIZE);
+    }//default constructor
+
+    /**
+     * Initialises this OrderStatisticTreeArray object to be empty, with a
+     * specified initial capacity.
+     *
+     * @param capacity - the initial capacity of this OrderStatisticTreeArray
+     * object.
+     *
+     * @throws IllegalArgumentException - if capacity is non-positive
+     */
+    public OrderStatisticTreeArray(int capacity) {
+        this(capacity, null);
+    }
+
+    /**
+     * Initializes this OrderStatisticTreeArray object to be empty, to
+     * contain only elements of type E, to be ordered by a specified
+     * Comparator, and to contain no duplicate elements.
+     *
+     * @param comparator - the Comparator that will order the elements of this
+     * OrderStatisticTreeArray object, or null for their natural ordering.
+     */
+    public OrderStatisticTreeArray(Comparator<? super E> comparator) {
+        this(DEFAULT_SIZE, comparator);
+    }
+
+    /**
+     * Initialises this OrderStatisticTreeArray object to be empty, with a
+     * specified initial capacity and ordering.
+     *
+     * @param capacity - the initial capacity of this OrderStatisticTreeArray
+     * object.
+     * @param comparator - the Comparator that will order the elements of this
+     * OrderStatisticTreeArray object, or null for their natural ordering.
+     *
+     * @throws IllegalArgumentException - if capacity is non-positive
+     */
+    public OrderStatisticTreeArray(int capacity,
+            Comparator<? super E> comparator) {
+        super(capacity, comparator);
+        subtreeSize = new int[capacity];
+    }
+
+    /**
+     * Initialises this OrderStatisticTreeArray object to contain a copy of
+     * specified OrderStatisticTreeArray object.
+     *
+     * @param otherTree the specified OrderStatisticTreeArray object that this
+     * OrderStatisticTreeArray object will be assigned a copy of.
+     */
+    public OrderStatisticTreeArray(
+            OrderStatisticTreeArray<? extends E> otherTree) {
+        super(otherTree);
+        subtreeSize = otherTree.subtreeSize.clone();
+    } // copy constructor
+
+    /**
+     * Returns the element of this OrderStatisticTreeArray object that has
+     * exactly k smaller elements, so select(0) is the smallest element and
+     * select(size() - 1) the largest. The worstTime(n) is O(log n).
+     *
+     * @param k - the rank of the element sought, from 0 to size() - 1.
+     *
+     * @return the element of rank k.
+     *
+     * @throws IndexOutOfBoundsException - if k is negative or not less than
+     * size().
+     */
+    public E select(int k) {
+        if (k < 0 || k >= size) {
+            throw new IndexOutOfBoundsException("Rank: " + k + ", Size: "
+                    + size);
+        }
+        int x = root;
+        for (;;) {
+            int leftSize = sizeOf(tree[x].left);
+            if (k < leftSize) {
+                x = tree[x].left;
+            } else if (k > leftSize) {
+                k -= leftSize + 1;
+                x = tree[x].right;
+            } else {
+                return tree[x].element;
+            }
+        } // for
+    }
+
+    /**
+     * Returns the element at a specified position in the ascending order of
+     * this OrderStatisticTreeArray object, as List.get would; the same as
+     * select(index). The worstTime(n) is O(log n).
+     *
+     * @param index - the position of the element sought, from 0 to
+     * size() - 1.
+     *
+     * @return the element at position index.
+     *
+     * @throws IndexOutOfBoundsException - if index is negative or not less
+     * than size().
+     */
+    public E get(int index) {
+        return select(index);
+    }
+
+    /**
+     * Returns the number of elements of this OrderStatisticTreeArray object
+     * that are less than a specified element, which need not be in the tree.
+     * If it is, rank(element) is its position, and select(rank(element))
+     * returns it. The worstTime(n) is O(log n).
+     *
+     * @param element - the element whose rank is sought.
+     *
+     * @return the number of elements less than element.
+     *
+     * @throws ClassCastException - if element cannot be compared to the
+     * elements of this OrderStatisticTreeArray object.
+     * @throws NullPointerException - if element is null.
+     */
+    public int rank(E element) {
+        if (element == null) {
+            throw new NullPointerException();
+        }
+        int rank = 0, x = root;
+        while (x != NIL) {
+            int comp = compare(element, tree[x].element);
+            if (comp < 0) {
+                x = tree[x].left;
+            } else if (comp > 0) {
+                rank += sizeOf(tree[x].left) + 1;
+                x = tree[x].right;
+            } else {
+                return rank + sizeOf(tree[x].left);
+            }
+        } // while
+        return rank;
+    }
+
+    @Override
+    protected BinarySearchTreeArray<E> newEmptyTree(int capacity) {
+        return new OrderStatisticTreeArray<E>(capacity, comparator);
+    }
+
+    @Override
+    protected void resize(int newLength) {
+        super.resize(newLength);
+        subtreeSize = Arrays.copyOf(subtreeSize, newLength);
+    }
+
+    @Override
+    protected void relocate(int[] newPosition, int newLength) {
+        super.relocate(newPosition, newLength);
+        int[] newSize = new int[newLength];
+        for (int p = 0; p < newPosition.length; p++) {
+            if (newPosition[p] != NIL) {
+                newSize[newPosition[p]] = subtreeSize[p];
+            }
+        }
+        subtreeSize = newSize;
+    }
+
+    @Override
+    protected void buildFromSorted(Iterator<? extends E> sorted, int size,
+            boolean verifyOrder) {
+        super.buildFromSorted(sorted, size, verifyOrder);
+        computeSizes(root);
+    }
+
+    private int computeSizes(int x) {
+        if (x == NIL) {
+            return 0;
+        }
+        int s = 1 + computeSizes(tree[x].left) + computeSizes(tree[x].right);
+        subtreeSize[x] = s;
+        return s;
+    }
+
+    /*
+     * Counts the new leaf x in the size of each of its ancestors before the
+     * AVL rebalancing, whose rotations keep the sizes right.
+     */
+    @Override
+    protected void fixAfterInsertion(int x) {
+        subtreeSize[x] = 1;
+        for (int p = tree[x].parent; p != NIL; p = tree[p].parent) {
+            subtreeSize[p]++;
+        }
+        super.fixAfterInsertion(x);
+    }
+
+    /**
+     * Deletes the element in a specified Entry object from this
+     * OrderStatisticTreeArray, first taking one off the size of each
+     * ancestor of the Entry that will be unlinked: p itself, or its
+     * successor if p has two children. The worstTime(n) is O(log n).
+     *
+     * @param p – the array position of the Entry whose element is to be
+     * deleted from this OrderStatisticTreeArray object.
+     *
+     * @return the (now empty) contents of the array position that was freed.
+     */
+    @Override
+    protected Entry<E> deleteEntry(int p) {
+        int unlinked = (tree[p].left != NIL && tree[p].right != NIL)
+                ? successor(p) : p;
+        for (int a = tree[unlinked].parent; a != NIL; a = tree[a].parent) {
+            subtreeSize[a]--;
+        }
+        subtreeSize[unlinked] = 0;
+        return super.deleteEntry(p);
+    }
+
+    @Override
+    protected int rotateLeft(int p) {
+        int r = super.rotateLeft(p);
+        updateSize(p);
+        updateSize(r);
+        return r;
+    }
+
+    @Override
+    protected int rotateRight(int p) {
+        int l = super.rotateRight(p);
+        updateSize(p);
+        updateSize(l);
+        return l;
+    }
+
+    protected final int sizeOf(int x) {
+        return (x == NIL) ? 0 : subtreeSize[x];
+    }
+
+    private void updateSize(int x) {
+        subtreeSize[x] = 1 + sizeOf(tree[x].left) + sizeOf(tree[x].right);
+    }
+}
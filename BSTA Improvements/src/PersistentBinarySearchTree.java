@@ -0,0 +1,402 @@
+import java.util.AbstractSet;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A persistent binary search tree: its Entry objects are never changed once
+ * built. add and remove copy only the entries on the path from the root to
+ * the change, share every other Entry with the previous version, and then
+ * publish the new root with a compare-and-set. The tree is kept balanced by
+ * the AVL rule, so each path, and therefore each change, is O(log n).
+ *
+ * Because a version is never changed, snapshot() just hands out the current
+ * root, in constant time, and readers never block: contains, size and
+ * iteration read the root reference once and then work on that version,
+ * however many writers run meanwhile. Writers do not block each other
+ * either; one that loses a compare-and-set race simply retries.
+ *
+ * @param <E> the element type, ordered by the Comparable interface or by a
+ * specified Comparator
+ */
+public class PersistentBinarySearchTree<E> extends AbstractSet<E> {
+
+    protected final AtomicReference<Entry<E>> root;
+
+    // The ordering of this tree, or null for the natural ordering of the
+    // elements (their Comparable interface).
+    protected final Comparator<? super E> comparator;
+
+    protected static final class Entry<E> {
+
+        protected final E element;
+        protected final Entry<E> left, right;
+        protected final int height, size;
+
+        /**
+         * Initializes this Entry object from element and its two subtrees.
+         */
+        protected Entry(E element, Entry<E> left, Entry<E> right) {
+            this.element = element;
+            this.left = left;
+            this.right = right;
+            this.height = 1 + Math.max(heightOf(left), heightOf(right));
+            this.size = 1 + sizeOf(left) + sizeOf(right);
+        } // constructor
+    } // class Entry
+
+    /**
+     * Initializes this PersistentBinarySearchTree object to be empty, to
+     * contain only elements of type E, to be ordered by the Comparable
+     * interface, and to contain no duplicate elements.
+     */
+    public PersistentBinarySearchTree() {
+        this((Comparator<? super E>) null);
+    } // default constructor
+
+    /**
+     * Initializes this PersistentBinarySearchTree object to be empty, to
+     * contain only elements of type E, to be ordered by a specified
+     * Comparator, and to contain no duplicate elements.
+     *
+     * @param comparator – the Comparator that will order the elements of
+     * this PersistentBinarySearchTree object, or null for their natural
+     * ordering.
+     */
+    public PersistentBinarySearchTree(Comparator<? super E> comparator) {
+        this(comparator, null);
+    } // constructor with Comparator
+
+    /*
+     * Initializes this PersistentBinarySearchTree object to hold the version
+     * rooted at root.
+     */
+    protected PersistentBinarySearchTree(Comparator<? super E> comparator,
+            Entry<E> root) {
+        this.comparator = comparator;
+        this.root = new AtomicReference<Entry<E>>(root);
+    }
+
+    /**
+     * Returns a PersistentBinarySearchTree object holding the current
+     * contents of this one. The two share all their entries, and later
+     * changes to either do not affect the other. The worstTime(n) is
+     * constant.
+     *
+     * @return a snapshot of this PersistentBinarySearchTree object.
+     */
+    public PersistentBinarySearchTree<E> snapshot() {
+        return new PersistentBinarySearchTree<E>(comparator, root.get());
+    } // method snapshot
+
+    /**
+     * Returns the size of this PersistentBinarySearchTree object. The
+     * worstTime(n) is constant.
+     *
+     * @return the size of this PersistentBinarySearchTree object.
+     */
+    @Override
+    public int size() {
+        return sizeOf(root.get());
+    }
+
+    /**
+     * Returns the Comparator that orders the elements of this
+     * PersistentBinarySearchTree object, or null if it uses their natural
+     * ordering.
+     *
+     * @return the Comparator of this PersistentBinarySearchTree object, or
+     * null.
+     */
+    public Comparator<? super E> comparator() {
+        return comparator;
+    } // method comparator
+
+    /**
+     * Determines if this PersistentBinarySearchTree object contains a
+     * specified element. The worstTime(n) is O(log n).
+     *
+     * @param obj – the element sought in this PersistentBinarySearchTree
+     * object.
+     *
+     * @return true – if obj is an element in this PersistentBinarySearchTree
+     * object; otherwise, return false.
+     *
+     * @throws ClassCastException – if obj cannot be compared to the elements
+     * in this PersistentBinarySearchTree object.
+     * @throws NullPointerException – if obj is null.
+     */
+    @Override
+    public boolean contains(Object obj) {
+        if (obj == null) {
+            throw new NullPointerException();
+        }
+        Entry<E> e = root.get();
+        while (e != null) {
+            int comp = compare(obj, e.element);
+            if (comp == 0) {
+                return true;
+            }
+            e = (comp < 0) ? e.left : e.right;
+        } // while
+        return false;
+    } // method contains
+
+    /**
+     * Ensures that this PersistentBinarySearchTree object contains a
+     * specified element. Snapshots taken earlier are not affected. The
+     * worstTime(n) is O(log n), plus a retry for each writer that wins a
+     * race with this one.
+     *
+     * @param element – the element whose presence is ensured in this
+     * PersistentBinarySearchTree object.
+     *
+     * @return true – if this PersistentBinarySearchTree object changed as a
+     * result of this method call; otherwise, return false.
+     *
+     * @throws ClassCastException – if element cannot be compared to the
+     * elements of this PersistentBinarySearchTree object.
+     * @throws NullPointerException – if element is null.
+     */
+    @Override
+    public boolean add(E element) {
+        if (element == null) {
+            throw new NullPointerException();
+        }
+        for (;;) {
+            Entry<E> oldRoot = root.get();
+            if (oldRoot == null) {
+                compare(element, element); // type check
+            }
+            Entry<E> newRoot = insert(oldRoot, element);
+            if (newRoot == oldRoot) {
+                return false;
+            }
+            if (root.compareAndSet(oldRoot, newRoot)) {
+                return true;
+            }
+        } // for
+    } // method add
+
+    /**
+     * Ensures that this PersistentBinarySearchTree object does not contain a
+     * specified element. Snapshots taken earlier are not affected. The
+     * worstTime(n) is O(log n), plus a retry for each writer that wins a
+     * race with this one.
+     *
+     * @param obj – the object whose absence is ensured in this
+     * PersistentBinarySearchTree object.
+     *
+     * @return true – if this PersistentBinarySearchTree object changed as a
+     * result of this method call; otherwise, return false.
+     *
+     * @throws ClassCastException – if obj cannot be compared to the elements
+     * of this PersistentBinarySearchTree object.
+     * @throws NullPointerException – if obj is null.
+     */
+    @Override
+    public boolean remove(Object obj) {
+        if (obj == null) {
+            throw new NullPointerException();
+        }
+        for (;;) {
+            Entry<E> oldRoot = root.get();
+            Entry<E> newRoot = delete(oldRoot, obj);
+            if (newRoot == oldRoot) {
+                return false;
+            }
+            if (root.compareAndSet(oldRoot, newRoot)) {
+                return true;
+            }
+        } // for
+    } // method remove
+
+    /**
+     * Removes all of the elements from this PersistentBinarySearchTree
+     * object. Snapshots taken earlier are not affected.
+     */
+    @Override
+    public void clear() {
+        root.set(null);
+    }
+
+    /*
+     * Returns the root of a version of the subtree p that also contains
+     * element, copying the entries on the path to it, or p itself if
+     * element is already there.
+     */
+    protected Entry<E> insert(Entry<E> p, E element) {
+        if (p == null) {
+            return new Entry<E>(element, null, null);
+        }
+        int comp = compare(element, p.element);
+        if (comp < 0) {
+            Entry<E> left = insert(p.left, element);
+            return (left == p.left) ? p : balance(p.element, left, p.right);
+        } else if (comp > 0) {
+            Entry<E> right = insert(p.right, element);
+            return (right == p.right) ? p
+                    : balance(p.element, p.left, right);
+        }
+        return p;
+    } // method insert
+
+    /*
+     * Returns the root of a version of the subtree p without obj, copying
+     * the entries on the path to it, or p itself if obj is not there.
+     */
+    protected Entry<E> delete(Entry<E> p, Object obj) {
+        if (p == null) {
+            return null;
+        }
+        int comp = compare(obj, p.element);
+        if (comp < 0) {
+            Entry<E> left = delete(p.left, obj);
+            return (left == p.left) ? p : balance(p.element, left, p.right);
+        } else if (comp > 0) {
+            Entry<E> right = delete(p.right, obj);
+            return (right == p.right) ? p
+                    : balance(p.element, p.left, right);
+        }
+        // p houses obj. If p has two children, p's successor takes its place.
+        if (p.left == null) {
+            return p.right;
+        } else if (p.right == null) {
+            return p.left;
+        }
+        Entry<E> successor = p.right;
+        while (successor.left != null) {
+            successor = successor.left;
+        }
+        return balance(successor.element, p.left, deleteMin(p.right));
+    } // method delete
+
+    /*
+     * Returns a version of the subtree p without its smallest element.
+     */
+    private Entry<E> deleteMin(Entry<E> p) {
+        if (p.left == null) {
+            return p.right;
+        }
+        return balance(p.element, deleteMin(p.left), p.right);
+    }
+
+    /*
+     * Returns a new Entry housing element over the subtrees left and right,
+     * whose heights differ by at most two, rotating once or twice to restore
+     * the AVL rule if they differ by two.
+     */
+    protected Entry<E> balance(E element, Entry<E> left, Entry<E> right) {
+        int hl = heightOf(left), hr = heightOf(right);
+        if (hl > hr + 1) {
+            if (heightOf(left.left) >= heightOf(left.right)) {
+                return new Entry<E>(left.element, left.left,
+                        new Entry<E>(element, left.right, right));
+            }
+            Entry<E> lr = left.right;
+            return new Entry<E>(lr.element,
+                    new Entry<E>(left.element, left.left, lr.left),
+                    new Entry<E>(element, lr.right, right));
+        } else if (hr > hl + 1) {
+            if (heightOf(right.right) >= heightOf(right.left)) {
+                return new Entry<E>(right.element,
+                        new Entry<E>(element, left, right.left), right.right);
+            }
+            Entry<E> rl = right.left;
+            return new Entry<E>(rl.element,
+                    new Entry<E>(element, left, rl.left),
+                    new Entry<E>(right.element, rl.right, right.right));
+        }
+        return new Entry<E>(element, left, right);
+    } // method balance
+
+    /**
+     * Compares two elements using the ordering of this
+     * PersistentBinarySearchTree object.
+     *
+     * @param a – the first element to be compared.
+     * @param b – the second element to be compared.
+     *
+     * @return a negative integer, zero or a positive integer as a is less
+     * than, equal to or greater than b.
+     *
+     * @throws ClassCastException – if a and b cannot be compared.
+     */
+    @SuppressWarnings("unchecked")
+    protected final int compare(Object a, Object b) {
+        return (comparator == null) ? ((Comparable<Object>) a).compareTo(b)
+                : comparator.compare((E) a, (E) b);
+    } // method compare
+
+    protected static int heightOf(Entry<?> p) {
+        return (p == null) ? 0 : p.height;
+    }
+
+    protected static int sizeOf(Entry<?> p) {
+        return (p == null) ? 0 : p.size;
+    }
+
+    /**
+     * Returns an iterator over the version of this PersistentBinarySearchTree
+     * object current when the iterator is created, in ascending order. Later
+     * changes to this tree do not affect it. Its remove method removes the
+     * element from this tree.
+     *
+     * @return an iterator positioned at the smallest element.
+     */
+    @Override
+    public Iterator<E> iterator() {
+        return new TreeIterator(root.get());
+    }
+
+    protected class TreeIterator implements Iterator<E> {
+
+        // The entries whose elements are still to come, with the next one on
+        // top; each is the left child of the one below it, or its ancestor.
+        protected Entry<E>[] stack;
+        protected int depth = 0;
+        protected E lastReturned = null;
+
+        /**
+         * Positions this TreeIterator at the smallest element of the
+         * version rooted at top.
+         */
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        protected TreeIterator(Entry<E> top) {
+            stack = new Entry[heightOf(top)];
+            pushLeftPath(top);
+        }
+
+        private void pushLeftPath(Entry<E> p) {
+            for (; p != null; p = p.left) {
+                stack[depth++] = p;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return depth > 0;
+        }
+
+        @Override
+        public E next() {
+            if (depth == 0) {
+                throw new NoSuchElementException();
+            }
+            Entry<E> e = stack[--depth];
+            pushLeftPath(e.right);
+            lastReturned = e.element;
+            return lastReturned;
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturned == null) {
+                throw new IllegalStateException();
+            }
+            PersistentBinarySearchTree.this.remove(lastReturned);
+            lastReturned = null;
+        }
+    }
+}
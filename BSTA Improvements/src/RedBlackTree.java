@@ -0,0 +1,365 @@
+import java.util.Comparator;
+import java.util.Iterator;
+
+/**
+ * A BinarySearchTree that keeps itself balanced by the red-black rules:
+ * every Entry is red or black, the root is black, a red Entry has no red
+ * child, and every path from an Entry down to a missing child passes through
+ * the same number of black entries. The height is then at most 2 log(n + 1),
+ * so add, remove and contains take O(log n) time in the worst case, even for
+ * sorted input.
+ *
+ * The parent links, getEntry, successor and TreeIterator of BinarySearchTree
+ * are used unchanged; only insertion and deletion are extended with the
+ * recolourings and rotations that restore the red-black rules.
+ *
+ * @param <E> the element type, ordered by the Comparable interface
+ */
+public class RedBlackTree<E> extends BinarySearchTree<E> {
+
+    protected static final boolean RED = false;
+    protected static final boolean BLACK = true;
+
+    protected static class RBEntry<E> extends Entry<E> {
+
+        protected boolean color = BLACK;
+
+        /**
+         * Initializes this RBEntry object.
+         *
+         * This default constructor is defined for the sake of subclasses of
+         * the RedBlackTree class.
+         */
+        public RBEntry() {
+        }
+
+        /**
+         * Initializes this RBEntry object from element and parent.
+         */
+        public RBEntry(E element, Entry<E> parent) {
+            super(element, parent);
+        } // constructor
+    } // class RBEntry
+
+    /**
+     * Initializes this RedBlackTree object to be empty, to contain only
+     * elements of type E, to be ordered by the Comparable interface, and to
+     * contain no duplicate elements.
+     */
+    public RedBlackTree() {
+        super();
+    } // default constructor
+
+    /**
+     * Initializes this RedBlackTree object to be empty, to contain only
+     * elements of type E, to be ordered by a specified Comparator, and to
+     * contain no duplicate elements.
+     *
+     * @param comparator – the Comparator that will order the elements of
+     * this RedBlackTree object, or null for their natural ordering.
+     */
+    public RedBlackTree(Comparator<? super E> comparator) {
+        super(comparator);
+    } // constructor with Comparator
+
+    /**
+     * Initializes this RedBlackTree object to contain a shallow copy of a
+     * specified RedBlackTree object, colours included. The worstTime(n) is
+     * O(n).
+     *
+     * @param otherTree - the specified RedBlackTree object that this
+     * RedBlackTree object will be assigned a shallow copy of.
+     */
+    public RedBlackTree(RedBlackTree<? extends E> otherTree) {
+        super(otherTree);
+    } // copy constructor
+
+    @Override
+    protected Entry<E> copy(Entry<? extends E> p, Entry<E> parent) {
+        if (p != null) {
+            Entry<E> q = newEntry(p.element, parent);
+            setColor(q, colorOf(p));
+            q.left = copy(p.left, q);
+            q.right = copy(p.right, q);
+            return q;
+        } // if
+        return null;
+    } // method copy
+
+    @Override
+    protected Entry<E> newEntry(E element, Entry<E> parent) {
+        return new RBEntry<E>(element, parent);
+    } // method newEntry
+
+    @Override
+    protected BinarySearchTree<E> newEmptyTree() {
+        return new RedBlackTree<E>(comparator);
+    } // method newEmptyTree
+
+    /*
+     * Builds the perfectly balanced tree of BinarySearchTree, whose entries
+     * are all black, and then colours red the entries on its deepest level
+     * if that level is not full, so every path has the same number of black
+     * entries.
+     */
+    @Override
+    protected void buildFromSorted(Iterator<? extends E> sorted, int size) {
+        super.buildFromSorted(sorted, size);
+        int redLevel = 0;
+        for (int m = size - 1; m >= 0; m = m / 2 - 1) {
+            redLevel++;
+        }
+        colourLevel(root, 0, redLevel);
+    } // method buildFromSorted
+
+    private void colourLevel(Entry<E> p, int level, int redLevel) {
+        if (p != null) {
+            if (level == redLevel) {
+                setColor(p, RED);
+            }
+            colourLevel(p.left, level + 1, redLevel);
+            colourLevel(p.right, level + 1, redLevel);
+        }
+    } // method colourLevel
+
+    /**
+     * Restores the red-black rules after x has been inserted as a leaf. x is
+     * coloured red; while its parent is red too, the uncle is either
+     * recoloured (pushing the violation two levels up) or one or two
+     * rotations fix it for good. The worstTime(n) is O(log n).
+     *
+     * @param x – the Entry object that has just been inserted.
+     */
+    @Override
+    protected void fixAfterInsertion(Entry<E> x) {
+        setColor(x, RED);
+        while (x != null && x != root && colorOf(x.parent) == RED) {
+            if (parentOf(x) == leftOf(parentOf(parentOf(x)))) {
+                Entry<E> y = rightOf(parentOf(parentOf(x)));
+                if (colorOf(y) == RED) {
+                    setColor(parentOf(x), BLACK);
+                    setColor(y, BLACK);
+                    setColor(parentOf(parentOf(x)), RED);
+                    x = parentOf(parentOf(x));
+                } else {
+                    if (x == rightOf(parentOf(x))) {
+                        x = parentOf(x);
+                        rotateLeft(x);
+                    }
+                    setColor(parentOf(x), BLACK);
+                    setColor(parentOf(parentOf(x)), RED);
+                    rotateRight(parentOf(parentOf(x)));
+                }
+            } else {
+                Entry<E> y = leftOf(parentOf(parentOf(x)));
+                if (colorOf(y) == RED) {
+                    setColor(parentOf(x), BLACK);
+                    setColor(y, BLACK);
+                    setColor(parentOf(parentOf(x)), RED);
+                    x = parentOf(parentOf(x));
+                } else {
+                    if (x == leftOf(parentOf(x))) {
+                        x = parentOf(x);
+                        rotateRight(x);
+                    }
+                    setColor(parentOf(x), BLACK);
+                    setColor(parentOf(parentOf(x)), RED);
+                    rotateLeft(parentOf(parentOf(x)));
+                }
+            }
+        } // while
+        setColor(root, BLACK);
+    } // method fixAfterInsertion
+
+    /**
+     * Deletes the element in a specified Entry object from this RedBlackTree
+     * and restores the red-black rules. The worstTime(n) is O(log n).
+     *
+     * @param p – the Entry object whose element is to be deleted from this
+     * RedBlackTree object.
+     *
+     * @return the Entry object that was actually unlinked from this
+     * RedBlackTree object.
+     */
+    @Override
+    protected Entry<E> deleteEntry(Entry<E> p) {
+        size--;
+        modCount++;
+        // If p has two children, replace p's element with p's successor's
+        // element, then make p reference that successor.
+        if (p.left != null && p.right != null) {
+            Entry<E> s = successor(p);
+            p.element = s.element;
+            p = s;
+        } // p had two children
+
+        // At this point, p has either no children or one child.
+        Entry<E> replacement = (p.left != null ? p.left : p.right);
+
+        if (replacement != null) {
+            // Link replacement to p.parent, then fix the colours from it.
+            replacement.parent = p.parent;
+            if (p.parent == null) {
+                root = replacement;
+            } else if (p == p.parent.left) {
+                p.parent.left = replacement;
+            } else {
+                p.parent.right = replacement;
+            }
+            p.left = p.right = p.parent = null;
+            if (colorOf(p) == BLACK) {
+                fixAfterDeletion(replacement);
+            }
+        } // p had one child
+        else if (p.parent == null) {
+            root = null;
+        } else {
+            // No children: use p itself as the phantom replacement while the
+            // colours are fixed, then unlink it.
+            if (colorOf(p) == BLACK) {
+                fixAfterDeletion(p);
+            }
+            if (p.parent != null) {
+                if (p == p.parent.left) {
+                    p.parent.left = null;
+                } else if (p == p.parent.right) {
+                    p.parent.right = null;
+                }
+                p.parent = null;
+            }
+        } // p had a parent but no children
+        return p;
+    } // method deleteEntry
+
+    /*
+     * Restores the red-black rules after a black Entry has been removed from
+     * above x, which therefore carries an extra black.
+     */
+    protected void fixAfterDeletion(Entry<E> x) {
+        while (x != root && colorOf(x) == BLACK) {
+            if (x == leftOf(parentOf(x))) {
+                Entry<E> sib = rightOf(parentOf(x));
+                if (colorOf(sib) == RED) {
+                    setColor(sib, BLACK);
+                    setColor(parentOf(x), RED);
+                    rotateLeft(parentOf(x));
+                    sib = rightOf(parentOf(x));
+                }
+                if (colorOf(leftOf(sib)) == BLACK
+                        && colorOf(rightOf(sib)) == BLACK) {
+                    setColor(sib, RED);
+                    x = parentOf(x);
+                } else {
+                    if (colorOf(rightOf(sib)) == BLACK) {
+                        setColor(leftOf(sib), BLACK);
+                        setColor(sib, RED);
+                        rotateRight(sib);
+                        sib = rightOf(parentOf(x));
+                    }
+                    setColor(sib, colorOf(parentOf(x)));
+                    setColor(parentOf(x), BLACK);
+                    setColor(rightOf(sib), BLACK);
+                    rotateLeft(parentOf(x));
+                    x = root;
+                }
+            } else {
+                Entry<E> sib = leftOf(parentOf(x));
+                if (colorOf(sib) == RED) {
+                    setColor(sib, BLACK);
+                    setColor(parentOf(x), RED);
+                    rotateRight(parentOf(x));
+                    sib = leftOf(parentOf(x));
+                }
+                if (colorOf(rightOf(sib)) == BLACK
+                        && colorOf(leftOf(sib)) == BLACK) {
+                    setColor(sib, RED);
+                    x = parentOf(x);
+                } else {
+                    if (colorOf(leftOf(sib)) == BLACK) {
+                        setColor(rightOf(sib), BLACK);
+                        setColor(sib, RED);
+                        rotateLeft(sib);
+                        sib = leftOf(parentOf(x));
+                    }
+                    setColor(sib, colorOf(parentOf(x)));
+                    setColor(parentOf(x), BLACK);
+                    setColor(leftOf(sib), BLACK);
+                    rotateRight(parentOf(x));
+                    x = root;
+                }
+            }
+        } // while
+        setColor(x, BLACK);
+    } // method fixAfterDeletion
+
+    /*
+     * Performs a left rotation around p: p's right child takes p's place
+     * and p becomes its left child.
+     */
+    protected void rotateLeft(Entry<E> p) {
+        if (p != null) {
+            Entry<E> r = p.right;
+            p.right = r.left;
+            if (r.left != null) {
+                r.left.parent = p;
+            }
+            r.parent = p.parent;
+            if (p.parent == null) {
+                root = r;
+            } else if (p.parent.left == p) {
+                p.parent.left = r;
+            } else {
+                p.parent.right = r;
+            }
+            r.left = p;
+            p.parent = r;
+        }
+    } // method rotateLeft
+
+    /*
+     * Performs a right rotation around p: p's left child takes p's place
+     * and p becomes its right child.
+     */
+    protected void rotateRight(Entry<E> p) {
+        if (p != null) {
+            Entry<E> l = p.left;
+            p.left = l.right;
+            if (l.right != null) {
+                l.right.parent = p;
+            }
+            l.parent = p.parent;
+            if (p.parent == null) {
+                root = l;
+            } else if (p.parent.right == p) {
+                p.parent.right = l;
+            } else {
+                p.parent.left = l;
+            }
+            l.right = p;
+            p.parent = l;
+        }
+    } // method rotateRight
+
+    // Null-safe accessors: a missing Entry counts as black.
+    protected static <E> boolean colorOf(Entry<E> p) {
+        return (p == null ? BLACK : ((RBEntry<E>) p).color);
+    }
+
+    protected static <E> Entry<E> parentOf(Entry<E> p) {
+        return (p == null ? null : p.parent);
+    }
+
+    protected static <E> void setColor(Entry<E> p, boolean c) {
+        if (p != null) {
+            ((RBEntry<E>) p).color = c;
+        }
+    }
+
+    protected static <E> Entry<E> leftOf(Entry<E> p) {
+        return (p == null) ? null : p.left;
+    }
+
+    protected static <E> Entry<E> rightOf(Entry<E> p) {
+        return (p == null) ? null : p.right;
+    }
+}
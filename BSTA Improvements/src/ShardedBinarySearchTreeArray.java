@@ -0,0 +1,479 @@
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A thread-safe Set that splits its elements by range over a number of
+ * shards, each an AVLTreeArray guarded by its own lock. An operation finds
+ * its shard by binary search over the boundary elements and locks only that
+ * shard, so threads working on different parts of the key space do not
+ * wait for each other.
+ *
+ * The boundaries are chosen from the elements themselves. A new set keeps
+ * everything in its first shard; when a shard has grown to more than twice
+ * its fair share, and at least as many elements have been added since the
+ * last rebalancing as the set held then, all shards are locked, the
+ * elements are redistributed in equal ranges and each shard is rebuilt
+ * balanced from sorted input. The second condition spaces the rebalancings
+ * geometrically, so that their O(n) cost comes to O(1) per add even when
+ * every add lands in the same shard, as under sorted ingest. The old shards
+ * are retired, and an operation that finds its shard retired simply looks
+ * again.
+ *
+ * Iterators return the elements in ascending order, shard after shard; each
+ * shard is copied under its lock when the iterator reaches it, so iterators
+ * never throw ConcurrentModificationException. Their remove method removes
+ * the element from this set.
+ *
+ * @param <E> the element type, ordered by the Comparable interface or by a
+ * specified Comparator
+ */
+public class ShardedBinarySearchTreeArray<E> extends AbstractSet<E> {
+
+    // A shard is rebalanced once it holds more than this many times its
+    // fair share of the elements, and at least MIN_REBALANCE_SIZE of them.
+    protected static final int REBALANCE_FACTOR = 2;
+    protected static final int MIN_REBALANCE_SIZE = 4096;
+
+    // A shard checks the balance after every CHECK_INTERVAL additions.
+    protected static final int CHECK_INTERVAL = 1024;
+
+    protected final Comparator<? super E> comparator;
+    protected final int shardCount;
+    protected volatile Layout<E> layout;
+
+    protected static final class Shard<E> {
+
+        protected final BinarySearchTreeArray<E> tree;
+        protected final ReentrantLock lock = new ReentrantLock();
+        protected volatile int size;
+        protected volatile int adds;                                            //written under lock
+        protected int addsSinceCheck;
+        protected boolean retired;                                              //guarded by lock
+
+        protected Shard(BinarySearchTreeArray<E> tree) {
+            this.tree = tree;
+            this.size = tree.size();
+        }
+    } // class Shard
+
+    // The boundaries and shards in force between two rebalancings: shard i
+    // holds the elements from bounds[i - 1] (inclusive) up to bounds[i]
+    // (exclusive), and the shards were built with total elements in all.
+    // Once published, a Layout is never changed.
+    protected static final class Layout<E> {
+
+        protected final Object[] bounds;
+        protected final Shard<E>[] shards;
+        protected final int total;
+
+        protected Layout(Object[] bounds, Shard<E>[] shards, int total) {
+            this.bounds = bounds;
+            this.shards = shards;
+            this.total = total;
+        }
+    } // class Layout
+
+    /**
+     * Initializes this ShardedBinarySearchTreeArray object to be empty, with
+     * one shard per available processor, ordered by the Comparable
+     * interface.
+     */
+    public ShardedBinarySearchTreeArray() {
+        this(Runtime.getRuntime().availableProcessors(), null);
+    } // default constructor
+
+    /**
+     * Initializes this ShardedBinarySearchTreeArray object to be empty, with
+     * a specified number of shards and ordering.
+     *
+     * @param shardCount - the number of shards.
+     * @param comparator - the Comparator that will order the elements, or
+     * null for their natural ordering.
+     *
+     * @throws IllegalArgumentException - if shardCount is non-positive.
+     */
+    @SuppressWarnings("unchecked")
+    public ShardedBinarySearchTreeArray(int shardCount,
+            Comparator<? super E> comparator) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("Non-positive shard count: "
+                    + shardCount);
+        }
+        this.shardCount = shardCount;
+        this.comparator = comparator;
+        Shard<E>[] shards = (Shard<E>[]) new Shard<?>[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard<E>(newShardTree(
+                    Collections.<E>emptyIterator(), 0));
+        }
+        layout = new Layout<E>(new Object[shardCount - 1], shards, 0);
+    }
+
+    /**
+     * Returns the size of this ShardedBinarySearchTreeArray object. Under
+     * concurrent changes the result is only an estimate.
+     *
+     * @return the size of this ShardedBinarySearchTreeArray object.
+     */
+    @Override
+    public int size() {
+        int size = 0;
+        for (Shard<E> shard : layout.shards) {
+            size += shard.size;
+        }
+        return size;
+    }
+
+    /**
+     * Determines if this ShardedBinarySearchTreeArray object contains a
+     * specified element. The worstTime(n) is O(log n).
+     *
+     * @param obj – the element sought.
+     *
+     * @return true – if obj is an element of this set; otherwise, false.
+     *
+     * @throws ClassCastException – if obj cannot be compared to the elements
+     * of this set.
+     * @throws NullPointerException – if obj is null.
+     */
+    @Override
+    public boolean contains(Object obj) {
+        Shard<E> shard = lockShardFor(obj);
+        try {
+            return shard.tree.contains(obj);
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+
+    /**
+     * Ensures that this ShardedBinarySearchTreeArray object contains a
+     * specified element. The worstTime(n) is O(log n), plus an occasional
+     * O(n) rebalancing of the shards.
+     *
+     * @param element – the element whose presence is ensured.
+     *
+     * @return true – if this set changed as a result of this method call;
+     * otherwise, false.
+     *
+     * @throws ClassCastException – if element cannot be compared to the
+     * elements of this set.
+     * @throws NullPointerException – if element is null.
+     */
+    @Override
+    public boolean add(E element) {
+        Shard<E> shard = lockShardFor(element);
+        boolean check = false;
+        try {
+            if (!shard.tree.add(element)) {
+                return false;
+            }
+            shard.size = shard.tree.size();
+            shard.adds++;
+            if (++shard.addsSinceCheck == CHECK_INTERVAL) {
+                shard.addsSinceCheck = 0;
+                check = true;
+            }
+        } finally {
+            shard.lock.unlock();
+        }
+        if (check) {
+            Layout<E> current = layout;
+            if (isOverfull(shard.size, current) && isDue(current)) {
+                rebalance(current, false);
+            }
+        }
+        return true;
+    } // method add
+
+    /**
+     * Ensures that this ShardedBinarySearchTreeArray object does not contain
+     * a specified element. The worstTime(n) is O(log n).
+     *
+     * @param obj – the element whose absence is ensured.
+     *
+     * @return true – if this set changed as a result of this method call;
+     * otherwise, false.
+     *
+     * @throws ClassCastException – if obj cannot be compared to the elements
+     * of this set.
+     * @throws NullPointerException – if obj is null.
+     */
+    @Override
+    public boolean remove(Object obj) {
+        Shard<E> shard = lockShardFor(obj);
+        try {
+            boolean removed = shard.tree.remove(obj);
+            shard.size = shard.tree.size();
+            return removed;
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+
+    /**
+     * Removes all of the elements from this ShardedBinarySearchTreeArray
+     * object, keeping the shard boundaries.
+     */
+    @Override
+    public void clear() {
+        for (;;) {
+            Layout<E> current = layout;
+            lockAll(current);
+            try {
+                if (current == layout) {
+                    for (Shard<E> shard : current.shards) {
+                        shard.tree.clear();
+                        shard.size = 0;
+                    }
+                    return;
+                }
+            } finally {
+                unlockAll(current);
+            }
+        } // for
+    }
+
+    /**
+     * Redistributes the elements of this ShardedBinarySearchTreeArray object
+     * evenly over its shards now, rather than waiting for a shard to
+     * overflow. The worstTime(n) is O(n).
+     */
+    public void rebalance() {
+        rebalance(layout, true);
+    }
+
+    /*
+     * Returns the shard whose range covers obj, locked. If a rebalancing
+     * retires the shard before the lock is acquired, looks again.
+     */
+    protected Shard<E> lockShardFor(Object obj) {
+        if (obj == null) {
+            throw new NullPointerException();
+        }
+        for (;;) {
+            Layout<E> current = layout;
+            Shard<E> shard = current.shards[shardIndex(obj, current.bounds)];
+            shard.lock.lock();
+            if (!shard.retired) {
+                return shard;
+            }
+            shard.lock.unlock();
+        } // for
+    }
+
+    /*
+     * Returns the number of boundaries that are less than or equal to obj,
+     * which is the index of the shard holding obj. Unset boundaries (null)
+     * count as greater than everything.
+     */
+    protected int shardIndex(Object obj, Object[] bounds) {
+        int lo = 0, hi = bounds.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (bounds[mid] != null && compare(obj, bounds[mid]) >= 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        } // while
+        return lo;
+    }
+
+    protected boolean isOverfull(int shardSize, Layout<E> current) {
+        if (shardSize < MIN_REBALANCE_SIZE || shardCount == 1) {
+            return false;
+        }
+        long total = 0;
+        for (Shard<E> shard : current.shards) {
+            total += shard.size;
+        }
+        return (long) shardSize * shardCount > REBALANCE_FACTOR * total;
+    }
+
+    /*
+     * Determines whether at least as many elements have been added to the
+     * shards of current as they were built with, so that a rebalancing now
+     * would cost O(1) for each of those adds.
+     */
+    protected boolean isDue(Layout<E> current) {
+        long adds = 0;
+        for (Shard<E> shard : current.shards) {
+            adds += shard.adds;
+        }
+        return adds >= current.total;
+    }
+
+    /*
+     * Locks every shard of from, and, if from is still the current layout
+     * and a shard is overfull and the rebalancing due (or force is true),
+     * splits all the elements into shardCount equal ranges and publishes a
+     * new layout with freshly built shards.
+     */
+    @SuppressWarnings("unchecked")
+    protected void rebalance(Layout<E> from, boolean force) {
+        lockAll(from);
+        try {
+            if (from != layout) {
+                return;                                                         //another thread got there first
+            }
+            int total = 0, max = 0;
+            for (Shard<E> shard : from.shards) {
+                total += shard.tree.size();
+                max = Math.max(max, shard.tree.size());
+            }
+            if (!force && !(isOverfull(max, from) && isDue(from))) {
+                return;
+            }
+            Object[] all = new Object[total];
+            int n = 0;
+            for (Shard<E> shard : from.shards) {
+                for (E element : shard.tree) {
+                    all[n++] = element;
+                }
+            }
+            Object[] bounds = new Object[shardCount - 1];
+            Shard<E>[] shards = (Shard<E>[]) new Shard<?>[shardCount];
+            Iterator<E> sorted = (Iterator<E>) Arrays.asList(all).iterator();
+            for (int i = 0; i < shardCount; i++) {
+                int lo = rangeStart(i, total), hi = rangeStart(i + 1, total);
+                if (i > 0) {
+                    bounds[i - 1] = (lo < total) ? all[lo] : null;
+                }
+                shards[i] = new Shard<E>(newShardTree(sorted, hi - lo));
+            }
+            for (Shard<E> shard : from.shards) {
+                shard.retired = true;
+            }
+            layout = new Layout<E>(bounds, shards, total);
+        } finally {
+            unlockAll(from);
+        }
+    } // method rebalance
+
+    /*
+     * Returns the rank of the first element of shard i when total elements
+     * are spread evenly. With fewer elements than shards, the first total
+     * shards get one each, so that the empty shards, whose boundaries stay
+     * unset, all come last.
+     */
+    private int rangeStart(int i, int total) {
+        return (total >= shardCount) ? (int) ((long) total * i / shardCount)
+                : Math.min(i, total);
+    }
+
+    /*
+     * Returns a new shard tree holding the next size elements of sorted.
+     */
+    protected BinarySearchTreeArray<E> newShardTree(
+            Iterator<? extends E> sorted, int size) {
+        AVLTreeArray<E> tree = new AVLTreeArray<E>(Math.max(size, 1),
+                comparator);
+        tree.buildFromSorted(sorted, size, false);
+        return tree;
+    }
+
+    private static <E> void lockAll(Layout<E> layout) {
+        for (Shard<E> shard : layout.shards) {
+            shard.lock.lock();
+        }
+    }
+
+    private static <E> void unlockAll(Layout<E> layout) {
+        for (int i = layout.shards.length - 1; i >= 0; i--) {
+            layout.shards[i].lock.unlock();
+        }
+    }
+
+    /**
+     * Compares two elements using the ordering of this
+     * ShardedBinarySearchTreeArray object.
+     *
+     * @param a – the first element to be compared.
+     * @param b – the second element to be compared.
+     *
+     * @return a negative integer, zero or a positive integer as a is less
+     * than, equal to or greater than b.
+     *
+     * @throws ClassCastException – if a and b cannot be compared.
+     */
+    @SuppressWarnings("unchecked")
+    protected final int compare(Object a, Object b) {
+        return (comparator == null) ? ((Comparable<Object>) a).compareTo(b)
+                : comparator.compare((E) a, (E) b);
+    }
+
+    /**
+     * Returns an iterator over the elements of this
+     * ShardedBinarySearchTreeArray object in ascending order, shard by
+     * shard.
+     *
+     * @return an iterator positioned at the smallest element.
+     */
+    @Override
+    public Iterator<E> iterator() {
+        return new ShardIterator(layout);
+    }
+
+    protected class ShardIterator implements Iterator<E> {
+
+        protected final Shard<E>[] shards;
+        protected int nextShard = 0;
+        protected Object[] elements = new Object[0];
+        protected int next = 0;
+        protected E lastReturned = null;
+
+        /**
+         * Positions this ShardIterator at the smallest element of the
+         * shards of layout.
+         */
+        protected ShardIterator(Layout<E> layout) {
+            shards = layout.shards;
+            advance();
+        }
+
+        // Copies shards until one with elements is found or none are left.
+        private void advance() {
+            while (next == elements.length && nextShard < shards.length) {
+                Shard<E> shard = shards[nextShard++];
+                shard.lock.lock();
+                try {
+                    elements = shard.tree.toArray();
+                } finally {
+                    shard.lock.unlock();
+                }
+                next = 0;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < elements.length;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public E next() {
+            if (next == elements.length) {
+                throw new NoSuchElementException();
+            }
+            lastReturned = (E) elements[next++];
+            advance();
+            return lastReturned;
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturned == null) {
+                throw new IllegalStateException();
+            }
+            ShardedBinarySearchTreeArray.this.remove(lastReturned);
+            lastReturned = null;
+        }
+    }
+}
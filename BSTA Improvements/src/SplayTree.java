@@ -0,0 +1,326 @@
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * A BinarySearchTree that can adjust its shape to the way it is used: while
+ * it is splaying, contains and add move the Entry they reach to the root,
+ * with the zig-zig and zig-zag rotations of Sleator and Tarjan's splay tree.
+ * Elements that are looked up often then stay within a few levels of the
+ * root, so under a skewed access pattern, such as a Zipfian one, most
+ * lookups are short. Every operation takes O(log n) amortized time, whatever
+ * the order of the elements, but a single one may take O(n).
+ *
+ * Splaying can be turned off and on for each SplayTree object; while it is
+ * off, the tree is a plain BinarySearchTree and keeps whatever shape it has.
+ *
+ * Splaying changes the shape of the tree but not its elements, their order
+ * or the Entry of each, so it is not a modification: iterators and Cursors
+ * over the tree stay valid across contains, and contains may be called from
+ * within forEach. Because contains does change the shape, though, the tree
+ * must not be read by several threads at once without locking.
+ *
+ * @param <E> the element type, ordered by the Comparable interface
+ */
+public class SplayTree<E> extends BinarySearchTree<E> {
+
+    // True if contains and add move the Entry they reach to the root.
+    protected boolean splaying = true;
+
+    /**
+     * Initializes this SplayTree object to be empty, to contain only
+     * elements of type E, to be ordered by the Comparable interface, to
+     * contain no duplicate elements, and to be splaying.
+     */
+    public SplayTree() {
+        super();
+    } // default constructor
+
+    /**
+     * Initializes this SplayTree object to be empty, to contain only
+     * elements of type E, to be ordered by a specified Comparator, to
+     * contain no duplicate elements, and to be splaying.
+     *
+     * @param comparator – the Comparator that will order the elements of
+     * this SplayTree object, or null for their natural ordering.
+     */
+    public SplayTree(Comparator<? super E> comparator) {
+        super(comparator);
+    } // constructor with Comparator
+
+    /**
+     * Initializes this SplayTree object to contain a shallow copy, of the
+     * same shape, of a specified SplayTree object, and to be splaying if it
+     * is. The worstTime(n) is O(n).
+     *
+     * @param otherTree – the specified SplayTree object that this SplayTree
+     * object will be assigned a shallow copy of.
+     */
+    public SplayTree(SplayTree<? extends E> otherTree) {
+        super(otherTree);
+        splaying = otherTree.splaying;
+    } // copy constructor
+
+    /**
+     * Determines whether contains and add move the Entry they reach to the
+     * root of this SplayTree object.
+     *
+     * @return true – if this SplayTree object is splaying; otherwise, return
+     * false.
+     */
+    public boolean isSplaying() {
+        return splaying;
+    } // method isSplaying
+
+    /**
+     * Turns splaying on or off for this SplayTree object. Turning it off
+     * leaves the tree in its present shape.
+     *
+     * @param splaying – true to make contains and add move the Entry they
+     * reach to the root; false to make them leave the tree as it is.
+     */
+    public void setSplaying(boolean splaying) {
+        this.splaying = splaying;
+    } // method setSplaying
+
+    /**
+     * Determines if there is an element in this SplayTree object that equals
+     * a specified element. While splaying, it then moves the Entry of that
+     * element, or the last Entry reached if there is none, to the root. The
+     * amortized time is O(log n).
+     *
+     * @param obj – the element sought in this SplayTree object.
+     *
+     * @return true – if there is an element in this SplayTree object that
+     * equals obj; otherwise, return false.
+     *
+     * @throws ClassCastException – if obj is not null but cannot be compared
+     * to the elements already in this SplayTree object.
+     * @throws NullPointerException – if obj is null.
+     */
+    @Override
+    public boolean contains(Object obj) {
+        if (!splaying) {
+            return super.contains(obj);
+        }
+        if (obj == null) {
+            throw new NullPointerException();
+        }
+        Entry<E> x = root, last = null;
+        while (x != null) {
+            last = x;
+            int comp = compare(obj, x.element);
+            if (comp < 0) {
+                x = x.left;
+            } else if (comp > 0) {
+                x = x.right;
+            } else {
+                splay(x);
+                return true;
+            }
+        } // while
+        if (last != null) {
+            splay(last);
+        }
+        return false;
+    } // method contains
+
+    /**
+     * Ensures that this SplayTree object contains a specified element. While
+     * splaying, it then moves the Entry of that element, new or not, to the
+     * root. The amortized time is O(log n).
+     *
+     * @param element – the element whose presence is ensured in this
+     * SplayTree object.
+     *
+     * @return true – if this SplayTree object changed as a result of this
+     * method call (that is, if element was actually inserted); otherwise,
+     * return false.
+     *
+     * @throws ClassCastException – if element cannot be compared to the
+     * elements already in this SplayTree object.
+     * @throws NullPointerException – if element is null.
+     */
+    @Override
+    public boolean add(E element) {
+        if (!splaying || root == null) {
+            return super.add(element);
+        }
+        if (element == null) {
+            throw new NullPointerException();
+        }
+        Entry<E> x = root, parent;
+        int comp;
+        do {
+            parent = x;
+            comp = compare(element, x.element);
+            if (comp < 0) {
+                x = x.left;
+            } else if (comp > 0) {
+                x = x.right;
+            } else {
+                splay(x);
+                return false;
+            }
+        } while (x != null);
+        Entry<E> e = newEntry(element, parent);
+        if (comp < 0) {
+            parent.left = e;
+        } else {
+            parent.right = e;
+        }
+        size++;
+        modCount++;
+        fixAfterInsertion(e);
+        return true;
+    } // method add
+
+    @Override
+    protected BinarySearchTree<E> newEmptyTree() {
+        SplayTree<E> tree = new SplayTree<E>(comparator);
+        tree.splaying = splaying;
+        return tree;
+    } // method newEmptyTree
+
+    /*
+     * Moves a new Entry to the root while splaying, so that the elements
+     * added by addAllSorted are splayed as well.
+     */
+    @Override
+    protected void fixAfterInsertion(Entry<E> x) {
+        if (splaying) {
+            splay(x);
+        }
+    } // method fixAfterInsertion
+
+    /**
+     * Moves a specified Entry to the root of this SplayTree object, two
+     * levels at a time: when x and its parent are children on the same side,
+     * the parent is rotated above the grandparent first (zig-zig); otherwise
+     * x is rotated up twice (zig-zag). A last single rotation (zig) is made
+     * if x ends up a child of the root. Besides bringing x up, this roughly
+     * halves the depth of every Entry on its path, which is what bounds the
+     * amortized time.
+     *
+     * @param x – the Entry to move to the root.
+     */
+    protected void splay(Entry<E> x) {
+        if (x.parent == null) {
+            return;
+        }
+        while (x.parent != null) {
+            Entry<E> p = x.parent,
+                     g = p.parent;
+            if (g == null) {
+                rotateUp(x);
+            } else if ((x == p.left) == (p == g.left)) {
+                rotateUp(p);
+                rotateUp(x);
+            } else {
+                rotateUp(x);
+                rotateUp(x);
+            }
+        } // while
+    } // method splay
+
+    /**
+     * Performs an action on each element of this SplayTree object, in
+     * ascending order. It steps from each Entry to its successor, as an
+     * iterator does, rather than keeping a stack of the entries still to
+     * come, which an action that splays this tree would leave out of date.
+     * The worstTime(n) is O(n).
+     *
+     * @param action – the action to perform on each element.
+     *
+     * @throws ConcurrentModificationException – if action adds or removes an
+     * element of this SplayTree object.
+     * @throws NullPointerException – if action is null.
+     */
+    @Override
+    public void forEach(Consumer<? super E> action) {
+        Objects.requireNonNull(action);
+        walk(getFirstEntry(), getLastEntry(), action);
+    } // method forEach
+
+    /**
+     * Performs an action on each element of this SplayTree object that lies
+     * between two bounds, in ascending order, stepping from each Entry to
+     * its successor as forEach does. The amortized time is O(log n + k) for
+     * k elements in the range.
+     *
+     * @param lo – the low end of the range, or null for no low end.
+     * @param loInclusive – true if lo itself is in the range.
+     * @param hi – the high end of the range, or null for no high end.
+     * @param hiInclusive – true if hi itself is in the range.
+     * @param action – the action to perform on each element in the range.
+     *
+     * @throws ClassCastException – if lo or hi cannot be compared to the
+     * elements of this SplayTree object.
+     * @throws ConcurrentModificationException – if action adds or removes an
+     * element of this SplayTree object.
+     * @throws NullPointerException – if action is null.
+     */
+    @Override
+    public void forEachInRange(E lo, boolean loInclusive, E hi,
+            boolean hiInclusive, Consumer<? super E> action) {
+        Objects.requireNonNull(action);
+        Entry<E> lowest = (lo == null) ? getFirstEntry()
+                : loInclusive ? getCeilingEntry(lo) : getHigherEntry(lo);
+        Entry<E> highest = (hi == null) ? getLastEntry()
+                : hiInclusive ? getFloorEntry(hi) : getLowerEntry(hi);
+        if (lowest != null && highest != null
+                && compare(lowest.element, highest.element) <= 0) {
+            walk(lowest, highest, action);
+        }
+    } // method forEachInRange
+
+    /*
+     * Performs action on the elements from first to last, in ascending
+     * order, by successor.
+     */
+    private void walk(Entry<E> first, Entry<E> last,
+            Consumer<? super E> action) {
+        int expectedModCount = modCount;
+        for (Entry<E> e = first; e != null; e = successor(e)) {
+            action.accept(e.element);
+            if (expectedModCount != modCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (e == last) {
+                return;
+            }
+        } // for
+    } // method walk
+
+    /*
+     * Rotates x above its parent: a right rotation if x is a left child, a
+     * left rotation otherwise.
+     */
+    private void rotateUp(Entry<E> x) {
+        Entry<E> p = x.parent,
+                 g = p.parent;
+        if (x == p.left) {
+            p.left = x.right;
+            if (x.right != null) {
+                x.right.parent = p;
+            }
+            x.right = p;
+        } else {
+            p.right = x.left;
+            if (x.left != null) {
+                x.left.parent = p;
+            }
+            x.left = p;
+        }
+        p.parent = x;
+        x.parent = g;
+        if (g == null) {
+            root = x;
+        } else if (g.left == p) {
+            g.left = x;
+        } else {
+            g.right = x;
+        }
+    } // method rotateUp
+}
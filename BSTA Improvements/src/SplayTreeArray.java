@@ -0,0 +1,359 @@
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * A BinarySearchTreeArray that can adjust its shape to the way it is used:
+ * while it is splaying, contains and add move the Entry they reach to the
+ * root, with the zig-zig and zig-zag rotations of a splay tree. Elements
+ * that are looked up often then stay within a few levels of the root, so
+ * under a skewed access pattern most lookups are short. Every operation
+ * takes O(log n) amortized time, but a single one may take O(n).
+ *
+ * As in AVLTreeArray, rotations rewrite the left, right and parent indices
+ * in place and never move an Entry to a different array position.
+ *
+ * Splaying can be turned off and on for each SplayTreeArray object. It
+ * changes the shape of the tree but not its elements, their order or their
+ * array positions, so it is not a modification: iterators, Cursors and the
+ * lookup cache stay valid across contains, and contains may be called from
+ * within forEach. Because contains does change the shape, though, the tree
+ * must not be read by several threads at once without locking.
+ *
+ * @param <E> the element type, ordered by the Comparable interface
+ */
+public class SplayTreeArray<E> extends BinarySearchTreeArray<E> {
+
+    // True if contains and add move the Entry they reach to the root.
+    protected boolean splaying = true;
+
+    /**
+     * Initializes this SplayTreeArray object to be empty, to contain only
+     * elements of type E, to be ordered by the Comparable interface, to
+     * contain no duplicate elements, and to be splaying.
+     */
+    public SplayTreeArray() {
+        this(DEFAULT_SIZE);
+    }//default constructor
+
+    /**
+     * Initialises this SplayTreeArray object to be empty, with a specified
+     * initial capacity.
+     *
+     * @param capacity - the initial capacity of this SplayTreeArray object.
+     *
+     * @throws IllegalArgumentException - if capacity is non-positive
+     */
+    public SplayTreeArray(int capacity) {
+        this(capacity, null);
+    }
+
+    /**
+     * Initializes this SplayTreeArray object to be empty, to contain only
+     * elements of type E, to be ordered by a specified Comparator, to contain
+     * no duplicate elements, and to be splaying.
+     *
+     * @param comparator - the Comparator that will order the elements of this
+     * SplayTreeArray object, or null for their natural ordering.
+     */
+    public SplayTreeArray(Comparator<? super E> comparator) {
+        this(DEFAULT_SIZE, comparator);
+    }
+
+    /**
+     * Initialises this SplayTreeArray object to be empty, with a specified
+     * initial capacity and ordering.
+     *
+     * @param capacity - the initial capacity of this SplayTreeArray object.
+     * @param comparator - the Comparator that will order the elements of this
+     * SplayTreeArray object, or null for their natural ordering.
+     *
+     * @throws IllegalArgumentException - if capacity is non-positive
+     */
+    public SplayTreeArray(int capacity, Comparator<? super E> comparator) {
+        super(capacity, comparator);
+    }
+
+    /**
+     * Initialises this SplayTreeArray object to contain a copy, of the same
+     * shape, of specified SplayTreeArray object, and to be splaying if it is.
+     *
+     * @param otherTree the specified SplayTreeArray object that this
+     * SplayTreeArray object will be assigned a copy of.
+     */
+    public SplayTreeArray(SplayTreeArray<? extends E> otherTree) {
+        super(otherTree);
+        splaying = otherTree.splaying;
+    } // copy constructor
+
+    /**
+     * Determines whether contains and add move the Entry they reach to the
+     * root of this SplayTreeArray object.
+     *
+     * @return true - if this SplayTreeArray object is splaying; otherwise,
+     * return false.
+     */
+    public boolean isSplaying() {
+        return splaying;
+    }
+
+    /**
+     * Turns splaying on or off for this SplayTreeArray object. Turning it off
+     * leaves the tree in its present shape.
+     *
+     * @param splaying - true to make contains and add move the Entry they
+     * reach to the root; false to make them leave the tree as it is.
+     */
+    public void setSplaying(boolean splaying) {
+        this.splaying = splaying;
+    }
+
+    /**
+     * Determines if there is an element in this SplayTreeArray object that
+     * equals a specified element. While splaying, it then moves the Entry of
+     * that element, or the last Entry reached if there is none, to the root,
+     * unless the Bloom filter has ruled the element out. The amortized time
+     * is O(log n).
+     *
+     * @param obj - the element sought in this SplayTreeArray object.
+     *
+     * @return true - if there is an element in this SplayTreeArray object
+     * that equals obj; otherwise, return false.
+     *
+     * @throws ClassCastException - if obj is not null but cannot be compared
+     * to the elements already in this SplayTreeArray object.
+     * @throws NullPointerException - if obj is null.
+     */
+    @Override
+    public boolean contains(Object obj) {
+        if (!splaying) {
+            return super.contains(obj);
+        }
+        if (obj == null) {
+            throw new NullPointerException();
+        }
+        if (!filterMightContain(obj)) {
+            return false;
+        }
+        int x = root, last = NIL;
+        while (x != NIL) {
+            last = x;
+            int comp = compare(obj, tree[x].element);
+            if (comp < 0) {
+                x = tree[x].left;
+            } else if (comp > 0) {
+                x = tree[x].right;
+            } else {
+                splay(x);
+                return true;
+            }
+        } // while
+        if (last != NIL) {
+            splay(last);
+        }
+        return false;
+    }
+
+    /**
+     * Ensures that this SplayTreeArray object contains a specified element.
+     * While splaying, it then moves the Entry of that element, new or not, to
+     * the root. The amortized time is O(log n).
+     *
+     * @param element - the element whose presence is ensured in this
+     * SplayTreeArray object.
+     *
+     * @return true - if this SplayTreeArray object changed as a result of
+     * this method call (that is, if element was actually inserted);
+     * otherwise, return false.
+     *
+     * @throws ClassCastException - if element cannot be compared to the
+     * elements already in this SplayTreeArray object.
+     * @throws NullPointerException - if element is null.
+     */
+    @Override
+    public boolean add(E element) {
+        if (!splaying || root == NIL) {
+            return super.add(element);
+        }
+        if (element == null) {
+            throw new NullPointerException();
+        }
+        int x = root, parent, comp;
+        do {
+            parent = x;
+            comp = compare(element, tree[x].element);
+            if (comp < 0) {
+                x = tree[x].left;
+            } else if (comp > 0) {
+                x = tree[x].right;
+            } else {
+                splay(x);
+                return false;
+            }
+        } while (x != NIL);
+        if (size == tree.length) {
+            resize(tree.length * 2);
+        }
+        int slot = nextSlot();
+        if (comp < 0) {
+            tree[parent].left = slot;
+        } else {
+            tree[parent].right = slot;
+        }
+        tree[slot] = new Entry<>(element, parent);
+        if (freeCount > 0) {
+            freeCount--;                                                        //slot came off the top of the freeList
+        }
+        size++;
+        modCount++;
+        fixAfterInsertion(slot);
+        addToFilter(element);
+        return true;
+    }
+
+    @Override
+    protected BinarySearchTreeArray<E> newEmptyTree(int capacity) {
+        SplayTreeArray<E> tree = new SplayTreeArray<E>(capacity, comparator);
+        tree.splaying = splaying;
+        return tree;
+    }
+
+    /*
+     * Moves a new Entry to the root while splaying, so that the elements
+     * added by addAllSorted are splayed as well.
+     */
+    @Override
+    protected void fixAfterInsertion(int x) {
+        if (splaying) {
+            splay(x);
+        }
+    }
+
+    /**
+     * Moves the Entry at a specified position to the root of this
+     * SplayTreeArray object, two levels at a time: when x and its parent are
+     * children on the same side, the parent is rotated above the grandparent
+     * first (zig-zig); otherwise x is rotated up twice (zig-zag). A last
+     * single rotation (zig) is made if x ends up a child of the root.
+     *
+     * @param x - the array position of the Entry to move to the root.
+     */
+    protected void splay(int x) {
+        if (tree[x].parent == NIL) {
+            return;
+        }
+        while (tree[x].parent != NIL) {
+            int p = tree[x].parent, g = tree[p].parent;
+            if (g == NIL) {
+                rotateUp(x);
+            } else if ((x == tree[p].left) == (p == tree[g].left)) {
+                rotateUp(p);
+                rotateUp(x);
+            } else {
+                rotateUp(x);
+                rotateUp(x);
+            }
+        } // while
+    }
+
+    /**
+     * Performs an action on each element of this SplayTreeArray object, in
+     * ascending order. It steps from each position to its successor, as an
+     * iterator does, rather than keeping a stack of the positions still to
+     * come, which an action that splays this tree would leave out of date.
+     * The worstTime(n) is O(n).
+     *
+     * @param action - the action to perform on each element.
+     *
+     * @throws ConcurrentModificationException - if action adds or removes an
+     * element of this SplayTreeArray object.
+     * @throws NullPointerException - if action is null.
+     */
+    @Override
+    public void forEach(Consumer<? super E> action) {
+        Objects.requireNonNull(action);
+        walk(getFirstEntry(), getLastEntry(), action);
+    }
+
+    /**
+     * Performs an action on each element of this SplayTreeArray object that
+     * lies between two bounds, in ascending order, stepping from each
+     * position to its successor as forEach does. The amortized time is
+     * O(log n + k) for k elements in the range.
+     *
+     * @param lo - the low end of the range, or null for no low end.
+     * @param loInclusive - true if lo itself is in the range.
+     * @param hi - the high end of the range, or null for no high end.
+     * @param hiInclusive - true if hi itself is in the range.
+     * @param action - the action to perform on each element in the range.
+     *
+     * @throws ClassCastException - if lo or hi cannot be compared to the
+     * elements of this SplayTreeArray object.
+     * @throws ConcurrentModificationException - if action adds or removes an
+     * element of this SplayTreeArray object.
+     * @throws NullPointerException - if action is null.
+     */
+    @Override
+    public void forEachInRange(E lo, boolean loInclusive, E hi,
+            boolean hiInclusive, Consumer<? super E> action) {
+        Objects.requireNonNull(action);
+        int lowest = (lo == null) ? getFirstEntry()
+                : loInclusive ? getCeilingEntry(lo) : getHigherEntry(lo);
+        int highest = (hi == null) ? getLastEntry()
+                : hiInclusive ? getFloorEntry(hi) : getLowerEntry(hi);
+        if (lowest != NIL && highest != NIL
+                && compare(tree[lowest].element, tree[highest].element) <= 0) {
+            walk(lowest, highest, action);
+        }
+    }
+
+    /*
+     * Performs action on the elements from position first to position last,
+     * in ascending order, by successor.
+     */
+    private void walk(int first, int last, Consumer<? super E> action) {
+        int expectedModCount = modCount;
+        for (int e = first; e != NIL; e = successor(e)) {
+            action.accept(tree[e].element);
+            if (expectedModCount != modCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (e == last) {
+                return;
+            }
+        } // for
+    }
+
+    /*
+     * Rotates the Entry at position x above its parent by rewriting
+     * indices: a right rotation if x is a left child, a left rotation
+     * otherwise.
+     */
+    private void rotateUp(int x) {
+        Entry<E> e = tree[x];
+        int p = e.parent, g = tree[p].parent;
+        if (x == tree[p].left) {
+            tree[p].left = e.right;
+            if (e.right != NIL) {
+                tree[e.right].parent = p;
+            }
+            e.right = p;
+        } else {
+            tree[p].right = e.left;
+            if (e.left != NIL) {
+                tree[e.left].parent = p;
+            }
+            e.left = p;
+        }
+        tree[p].parent = x;
+        e.parent = g;
+        if (g == NIL) {
+            root = x;
+        } else if (tree[g].left == p) {
+            tree[g].left = x;
+        } else {
+            tree[g].right = x;
+        }
+    }
+}
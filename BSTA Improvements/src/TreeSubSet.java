@@ -0,0 +1,324 @@
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.SortedSet;
+import java.util.function.Consumer;
+
+/**
+ * A view of the elements of a NavigableTree that lie in a range, in
+ * ascending or descending order, as returned by subSet, headSet, tailSet and
+ * descendingSet. The view is backed by the tree: changes to either are seen
+ * in the other. Adding an element outside the range throws
+ * IllegalArgumentException.
+ *
+ * Navigation methods are passed to the tree and their results checked
+ * against the bounds, so they take O(log n) time; iteration starts with one
+ * descent to the first element in the range and then follows successor (or
+ * predecessor) links, so iterating over k elements takes O(log n + k) time.
+ * size() counts the elements, in O(log n + k) time.
+ *
+ * @param <E> the element type
+ */
+class TreeSubSet<E> extends AbstractSet<E> implements NavigableSet<E> {
+
+    protected final NavigableTree<E> m;
+
+    // The range, in the ascending order of m. fromStart and toEnd mean that
+    // the range is unbounded at that end, and lo or hi is then unused.
+    protected final E lo, hi;
+    protected final boolean fromStart, loInclusive, toEnd, hiInclusive;
+
+    // True if this view lists the range in descending order.
+    protected final boolean descending;
+
+    /**
+     * Initializes this TreeSubSet object as a view of the elements of m in a
+     * specified range.
+     *
+     * @throws IllegalArgumentException – if lo is greater than hi.
+     * @throws NullPointerException – if a bound in use is null.
+     */
+    TreeSubSet(NavigableTree<E> m, boolean fromStart, E lo,
+            boolean loInclusive, boolean toEnd, E hi, boolean hiInclusive,
+            boolean descending) {
+        if (!fromStart && lo == null || !toEnd && hi == null) {
+            throw new NullPointerException();
+        }
+        this.m = m;
+        if (!fromStart && !toEnd && compare(lo, hi) > 0) {
+            throw new IllegalArgumentException("fromElement > toElement");
+        }
+        this.fromStart = fromStart;
+        this.lo = lo;
+        this.loInclusive = loInclusive;
+        this.toEnd = toEnd;
+        this.hi = hi;
+        this.hiInclusive = hiInclusive;
+        this.descending = descending;
+    }
+
+    @SuppressWarnings("unchecked")
+    protected final int compare(Object a, Object b) {
+        Comparator<? super E> cpr = m.comparator();
+        return (cpr == null) ? ((Comparable<Object>) a).compareTo(b)
+                : cpr.compare((E) a, (E) b);
+    }
+
+    // Range tests, in the ascending order of m.
+    protected final boolean tooLow(Object obj) {
+        if (!fromStart) {
+            int c = compare(obj, lo);
+            return c < 0 || (c == 0 && !loInclusive);
+        }
+        return false;
+    }
+
+    protected final boolean tooHigh(Object obj) {
+        if (!toEnd) {
+            int c = compare(obj, hi);
+            return c > 0 || (c == 0 && !hiInclusive);
+        }
+        return false;
+    }
+
+    protected final boolean inRange(Object obj) {
+        return !tooLow(obj) && !tooHigh(obj);
+    }
+
+    // True if obj is in the range with both of its ends included; a bound
+    // of a new view may equal an excluded end of this one if the new view
+    // excludes it too.
+    protected final boolean inRange(Object obj, boolean inclusive) {
+        if (inclusive) {
+            return inRange(obj);
+        }
+        return (fromStart || compare(obj, lo) >= 0)
+                && (toEnd || compare(hi, obj) >= 0);
+    }
+
+    // The ascending-order navigation methods, limited to the range.
+    protected final E absLowest() {
+        E e = fromStart ? (m.isEmpty() ? null : m.first())
+                : loInclusive ? m.ceiling(lo) : m.higher(lo);
+        return (e == null || tooHigh(e)) ? null : e;
+    }
+
+    protected final E absHighest() {
+        E e = toEnd ? (m.isEmpty() ? null : m.last())
+                : hiInclusive ? m.floor(hi) : m.lower(hi);
+        return (e == null || tooLow(e)) ? null : e;
+    }
+
+    protected final E absCeiling(E element) {
+        if (tooLow(element)) {
+            return absLowest();
+        }
+        E e = m.ceiling(element);
+        return (e == null || tooHigh(e)) ? null : e;
+    }
+
+    protected final E absHigher(E element) {
+        if (tooLow(element)) {
+            return absLowest();
+        }
+        E e = m.higher(element);
+        return (e == null || tooHigh(e)) ? null : e;
+    }
+
+    protected final E absFloor(E element) {
+        if (tooHigh(element)) {
+            return absHighest();
+        }
+        E e = m.floor(element);
+        return (e == null || tooLow(e)) ? null : e;
+    }
+
+    protected final E absLower(E element) {
+        if (tooHigh(element)) {
+            return absHighest();
+        }
+        E e = m.lower(element);
+        return (e == null || tooLow(e)) ? null : e;
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (Iterator<E> it = iterator(); it.hasNext(); it.next()) {
+            size++;
+        }
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return absLowest() == null;
+    }
+
+    @Override
+    public boolean contains(Object obj) {
+        return inRange(obj) && m.contains(obj);
+    }
+
+    @Override
+    public boolean add(E element) {
+        if (!inRange(element)) {
+            throw new IllegalArgumentException("Element out of range: "
+                    + element);
+        }
+        return m.add(element);
+    }
+
+    @Override
+    public boolean remove(Object obj) {
+        return inRange(obj) && m.remove(obj);
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return m.rangeIterator(fromStart ? null : lo, loInclusive,
+                toEnd ? null : hi, hiInclusive, descending);
+    }
+
+    @Override
+    public Iterator<E> descendingIterator() {
+        return m.rangeIterator(fromStart ? null : lo, loInclusive,
+                toEnd ? null : hi, hiInclusive, !descending);
+    }
+
+    @Override
+    public void forEach(Consumer<? super E> action) {
+        if (descending) {
+            super.forEach(action);
+        } else {
+            m.forEachInRange(fromStart ? null : lo, loInclusive,
+                    toEnd ? null : hi, hiInclusive, action);
+        }
+    }
+
+    @Override
+    public Comparator<? super E> comparator() {
+        return descending ? Collections.reverseOrder(m.comparator())
+                : m.comparator();
+    }
+
+    @Override
+    public E first() {
+        E e = descending ? absHighest() : absLowest();
+        if (e == null) {
+            throw new NoSuchElementException();
+        }
+        return e;
+    }
+
+    @Override
+    public E last() {
+        E e = descending ? absLowest() : absHighest();
+        if (e == null) {
+            throw new NoSuchElementException();
+        }
+        return e;
+    }
+
+    @Override
+    public E lower(E element) {
+        return descending ? absHigher(element) : absLower(element);
+    }
+
+    @Override
+    public E floor(E element) {
+        return descending ? absCeiling(element) : absFloor(element);
+    }
+
+    @Override
+    public E ceiling(E element) {
+        return descending ? absFloor(element) : absCeiling(element);
+    }
+
+    @Override
+    public E higher(E element) {
+        return descending ? absLower(element) : absHigher(element);
+    }
+
+    @Override
+    public E pollFirst() {
+        E e = descending ? absHighest() : absLowest();
+        if (e != null) {
+            m.remove(e);
+        }
+        return e;
+    }
+
+    @Override
+    public E pollLast() {
+        E e = descending ? absLowest() : absHighest();
+        if (e != null) {
+            m.remove(e);
+        }
+        return e;
+    }
+
+    @Override
+    public NavigableSet<E> descendingSet() {
+        return new TreeSubSet<E>(m, fromStart, lo, loInclusive, toEnd, hi,
+                hiInclusive, !descending);
+    }
+
+    @Override
+    public NavigableSet<E> subSet(E fromElement, boolean fromInclusive,
+            E toElement, boolean toInclusive) {
+        if (!inRange(fromElement, fromInclusive)) {
+            throw new IllegalArgumentException("fromElement out of range");
+        }
+        if (!inRange(toElement, toInclusive)) {
+            throw new IllegalArgumentException("toElement out of range");
+        }
+        return descending
+                ? new TreeSubSet<E>(m, false, toElement, toInclusive, false,
+                        fromElement, fromInclusive, true)
+                : new TreeSubSet<E>(m, false, fromElement, fromInclusive,
+                        false, toElement, toInclusive, false);
+    }
+
+    @Override
+    public NavigableSet<E> headSet(E toElement, boolean inclusive) {
+        if (!inRange(toElement, inclusive)) {
+            throw new IllegalArgumentException("toElement out of range");
+        }
+        return descending
+                ? new TreeSubSet<E>(m, false, toElement, inclusive, toEnd, hi,
+                        hiInclusive, true)
+                : new TreeSubSet<E>(m, fromStart, lo, loInclusive, false,
+                        toElement, inclusive, false);
+    }
+
+    @Override
+    public NavigableSet<E> tailSet(E fromElement, boolean inclusive) {
+        if (!inRange(fromElement, inclusive)) {
+            throw new IllegalArgumentException("fromElement out of range");
+        }
+        return descending
+                ? new TreeSubSet<E>(m, fromStart, lo, loInclusive, false,
+                        fromElement, inclusive, true)
+                : new TreeSubSet<E>(m, false, fromElement, inclusive, toEnd,
+                        hi, hiInclusive, false);
+    }
+
+    @Override
+    public SortedSet<E> subSet(E fromElement, E toElement) {
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public SortedSet<E> headSet(E toElement) {
+        return headSet(toElement, false);
+    }
+
+    @Override
+    public SortedSet<E> tailSet(E fromElement) {
+        return tailSet(fromElement, true);
+    }
+}